@@ -0,0 +1,26 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.model.Person;
+
+import java.util.ArrayList;
+import java.util.List;
+
+final class BenchmarkData {
+
+    static final int SEEDED_ROWS = 10_000;
+
+    private BenchmarkData() {
+    }
+
+    static Person person(long n) {
+        return new Person("First" + n, "Last" + n, "Street " + n, n % 2 == 0 ? "F" : "M", "person" + n + "@bench.com");
+    }
+
+    static List<Person> people(long from, int count) {
+        List<Person> people = new ArrayList<>(count);
+        for (long n = from; n < from + count; n++) {
+            people.add(person(n));
+        }
+        return people;
+    }
+}
@@ -0,0 +1,100 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.Application;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import com.giordanni.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// findById sem cache (PersonCache e cache de segundo nivel desligados) em 16 threads: "defaults" volta o
+// Hikari e o Connector/J aos padroes e desliga o SlowQueryDataSource; "tuned" usa spring.datasource.hikari
+// de application.yml. O cache de prepared statements so existe no MySQL: variavel de ambiente
+// BENCHMARK_JDBC_URL=jdbc:mysql://localhost:3306/aprendendoTestesSpring?useCursorFetch=true
+// (usuario/senha de application.yml; o fork do JMH herda o ambiente, nao as -D do Maven). No H2 o resultado mostra so o custo do pool e do SlowQueryDataSource.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class PersonConnectionPoolBenchmark {
+
+    @Param({"defaults", "tuned"})
+    private String pool;
+
+    private ConfigurableApplicationContext context;
+    private PersonService service;
+    private List<Long> seededIds;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        String url = System.getenv("BENCHMARK_JDBC_URL");
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.devtools.restart.enabled=false",
+                "--person.cache.maximum-size=0",
+                "--person.hibernate-cache.enabled=false"));
+        args.add(url == null
+                ? "--spring.datasource.url=jdbc:h2:mem:pool-" + pool + ";DB_CLOSE_ON_EXIT=FALSE"
+                : "--spring.datasource.url=" + url);
+        if (pool.equals("defaults")) {
+            args.addAll(List.of(
+                    "--spring.datasource.hikari.maximum-pool-size=10",
+                    "--spring.datasource.hikari.leak-detection-threshold=0",
+                    "--spring.datasource.hikari.data-source-properties.useServerPrepStmts=false",
+                    "--spring.datasource.hikari.data-source-properties.cachePrepStmts=false",
+                    "--spring.datasource.hikari.data-source-properties.useLocalSessionState=false",
+                    "--spring.datasource.hikari.data-source-properties.elideSetAutoCommits=false",
+                    "--spring.datasource.hikari.data-source-properties.cacheServerConfiguration=false",
+                    "--spring.datasource.hikari.data-source-properties.cacheResultSetMetadata=false",
+                    "--spring.datasource.hikari.data-source-properties.maintainTimeStats=true",
+                    "--person.slow-query.enabled=false"));
+        }
+        SpringApplicationBuilder builder = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.SERVLET);
+        if (url == null) {
+            builder.profiles("test");
+        }
+        context = builder.run(args.toArray(String[]::new));
+        service = context.getBean(PersonService.class);
+        List<Person> seeded = context.getBean(PersonRepository.class)
+                .saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+        seededIds = seeded.stream().map(Person::getId).toList();
+        firstId = seededIds.get(0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        // no MySQL as linhas ficariam no banco e o proximo trial falharia na constraint de email
+        context.getBean(PersonRepository.class).deleteAllByIdInBatch(seededIds);
+        context.close();
+    }
+
+    @Benchmark
+    public Person findById() {
+        return service.findById(firstId + ThreadLocalRandom.current().nextLong(BenchmarkData.SEEDED_ROWS));
+    }
+}
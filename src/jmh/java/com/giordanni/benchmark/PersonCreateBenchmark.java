@@ -0,0 +1,55 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import com.giordanni.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// createPerson atual (INSERT + constraint) vs o caminho anterior (findByEmail e depois save)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonCreateBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong(BenchmarkData.SEEDED_ROWS + 1);
+
+    private PersonService service;
+    private PersonRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp(SpringContextState context) {
+        service = context.getBean(PersonService.class);
+        repository = context.getBean(PersonRepository.class);
+        repository.saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+    }
+
+    @Benchmark
+    public Person singleInsert() {
+        return service.createPerson(BenchmarkData.person(sequence.getAndIncrement()));
+    }
+
+    @Benchmark
+    public Person checkThenInsert() {
+        Person person = BenchmarkData.person(sequence.getAndIncrement());
+        if (repository.findByEmail(person.getEmail()).isPresent()) {
+            throw new IllegalArgumentException("Person with email " + person.getEmail() + " already exists.");
+        }
+        return repository.save(person);
+    }
+}
@@ -0,0 +1,82 @@
+package com.giordanni.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.Application;
+import com.giordanni.config.PersonExportProperties;
+import com.giordanni.export.PersonExportFormat;
+import com.giordanni.export.PersonExporter;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+// GET /person/export sem o HTTP: 10k pessoas do H2 em NDJSON com gzip, lidas por 1 ou 4 faixas ao mesmo tempo
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonExportBenchmark {
+
+    @Param({"1", "4"})
+    private int parallelism;
+
+    private ConfigurableApplicationContext context;
+    private PersonExporter exporter;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:export-" + parallelism + ";DB_CLOSE_ON_EXIT=FALSE");
+        context.getBean(PersonRepository.class).saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+
+        PersonExportProperties properties = new PersonExportProperties();
+        properties.setParallelism(parallelism);
+        properties.setRangeSize(1_000);
+        exporter = new PersonExporter(() -> context.getBean(DataSource.class),
+                context.getBean(ObjectMapper.class).getFactory(), properties, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        exporter.close();
+        context.close();
+    }
+
+    @Benchmark
+    public void exportNdjsonGzip() throws IOException {
+        try (PersonExporter.Export export = exporter.tryStart()) {
+            export.write(PersonExportFormat.NDJSON, true, 0, null, OutputStream.nullOutputStream());
+        }
+    }
+
+    @Benchmark
+    public void exportCsv() throws IOException {
+        try (PersonExporter.Export export = exporter.tryStart()) {
+            export.write(PersonExportFormat.CSV, false, 0, null, OutputStream.nullOutputStream());
+        }
+    }
+}
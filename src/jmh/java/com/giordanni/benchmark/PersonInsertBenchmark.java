@@ -0,0 +1,71 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import com.giordanni.service.PersonBatchService;
+import com.giordanni.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// compara POST /person linha a linha com POST /person/batch (custo medio por linha inserida)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersonInsertBenchmark {
+
+    private static final int ROWS = 1000;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private PersonService service;
+    private PersonBatchService batchService;
+    private PersonRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp(SpringContextState context) {
+        service = context.getBean(PersonService.class);
+        batchService = context.getBean(PersonBatchService.class);
+        repository = context.getBean(PersonRepository.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void cleanUp() {
+        repository.deleteAllInBatch();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public void singleInsert() {
+        for (Person person : newPeople()) {
+            service.createPerson(person);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(ROWS)
+    public Object batchInsert() {
+        return batchService.createPeople(newPeople());
+    }
+
+    private List<Person> newPeople() {
+        return BenchmarkData.people(sequence.getAndAdd(ROWS), ROWS);
+    }
+}
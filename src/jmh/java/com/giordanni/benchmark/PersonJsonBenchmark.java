@@ -0,0 +1,70 @@
+package com.giordanni.benchmark;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.model.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// (de)serializacao de Person com o mesmo ObjectMapper padrao que o Spring configura
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonJsonBenchmark {
+
+    private static final TypeReference<List<Person>> PERSON_LIST = new TypeReference<>() {
+    };
+
+    private ObjectMapper objectMapper;
+    private Person person;
+    private List<Person> people;
+    private String personJson;
+    private String peopleJson;
+
+    @Setup(Level.Trial)
+    public void setUp() throws JsonProcessingException {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        person = BenchmarkData.person(1);
+        person.setId(1L);
+        people = BenchmarkData.people(1, 100);
+        personJson = objectMapper.writeValueAsString(person);
+        peopleJson = objectMapper.writeValueAsString(people);
+    }
+
+    @Benchmark
+    public String serializePerson() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(person);
+    }
+
+    @Benchmark
+    public Person deserializePerson() throws JsonProcessingException {
+        return objectMapper.readValue(personJson, Person.class);
+    }
+
+    @Benchmark
+    public String serializeList100() throws JsonProcessingException {
+        return objectMapper.writeValueAsString(people);
+    }
+
+    @Benchmark
+    public List<Person> deserializeList100() throws JsonProcessingException {
+        return objectMapper.readValue(peopleJson, PERSON_LIST);
+    }
+}
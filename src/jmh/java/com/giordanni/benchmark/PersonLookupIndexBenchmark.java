@@ -0,0 +1,80 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.Application;
+import com.giordanni.index.HashPersonIndex;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import com.giordanni.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// PersonService.findByEmail/findByName com e sem o HashPersonIndex. Sem indice, o cache de consultas do
+// Hibernate ainda evita parte das idas ao H2; com indice, o id sai da memoria e a entidade do PersonCache
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonLookupIndexBenchmark {
+
+    @Param({"false", "true"})
+    private boolean index;
+
+    private ConfigurableApplicationContext context;
+    private PersonService service;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(Application.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--spring.devtools.restart.enabled=false",
+                        "--spring.datasource.url=jdbc:h2:mem:lookup-" + index + ";DB_CLOSE_ON_EXIT=FALSE",
+                        "--person.index.enabled=" + index);
+        context.getBean(PersonRepository.class).saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+        // a carga da subida viu a tabela vazia: recarrega com as linhas semeadas
+        if (index) {
+            context.getBean(HashPersonIndex.class).start();
+        }
+        service = context.getBean(PersonService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static Person target() {
+        return BenchmarkData.person(ThreadLocalRandom.current().nextLong(1, BenchmarkData.SEEDED_ROWS + 1));
+    }
+
+    @Benchmark
+    public Optional<Person> findByEmail() {
+        return service.findByEmail(target().getEmail());
+    }
+
+    @Benchmark
+    public Optional<Person> findByName() {
+        Person target = target();
+        return service.findByName(target.getFirstName(), target.getLastName());
+    }
+}
@@ -0,0 +1,72 @@
+package com.giordanni.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// round trip completo (DispatcherServlet -> controller -> service -> H2 -> Jackson) sem a rede
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonMockMvcBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong(BenchmarkData.SEEDED_ROWS + 1);
+
+    private MockMvc mockMvc;
+    private ObjectMapper objectMapper;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp(SpringContextState context) {
+        mockMvc = MockMvcBuilders.webAppContextSetup(context.getWebApplicationContext()).build();
+        objectMapper = context.getBean(ObjectMapper.class);
+        List<Person> seeded = context.getBean(PersonRepository.class)
+                .saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+        firstId = seeded.get(0).getId();
+    }
+
+    @Benchmark
+    public MvcResult getById() throws Exception {
+        long id = firstId + ThreadLocalRandom.current().nextLong(BenchmarkData.SEEDED_ROWS);
+        return mockMvc.perform(get("/person/{id}", id).accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult getPage() throws Exception {
+        return mockMvc.perform(get("/person/page").accept(MediaType.APPLICATION_JSON)).andReturn();
+    }
+
+    @Benchmark
+    public MvcResult createPerson() throws Exception {
+        return mockMvc.perform(post("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsBytes(BenchmarkData.person(sequence.getAndIncrement()))))
+                .andReturn();
+    }
+}
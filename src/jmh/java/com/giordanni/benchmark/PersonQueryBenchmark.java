@@ -0,0 +1,64 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// variantes de consulta do PersonRepository sobre uma tabela com SEEDED_ROWS linhas
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonQueryBenchmark {
+
+    private PersonRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp(SpringContextState context) {
+        repository = context.getBean(PersonRepository.class);
+        repository.saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+    }
+
+    private static Person target() {
+        return BenchmarkData.person(ThreadLocalRandom.current().nextLong(1, BenchmarkData.SEEDED_ROWS + 1));
+    }
+
+    @Benchmark
+    public Person findByJPQL() {
+        Person target = target();
+        return repository.findByJPQL(target.getFirstName(), target.getLastName());
+    }
+
+    @Benchmark
+    public Person findByJPQLNamedParams() {
+        Person target = target();
+        return repository.findByJPQLNamedParams(target.getFirstName(), target.getLastName());
+    }
+
+    @Benchmark
+    public Person findByNativeSQL() {
+        Person target = target();
+        return repository.findByNativeSQL(target.getFirstName(), target.getLastName());
+    }
+
+    @Benchmark
+    public Optional<Person> findByEmail() {
+        return repository.findByEmail(target().getEmail());
+    }
+}
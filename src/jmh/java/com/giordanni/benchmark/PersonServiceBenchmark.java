@@ -0,0 +1,68 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.dto.PersonPage;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import com.giordanni.service.PersonService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PersonServiceBenchmark {
+
+    private final AtomicLong sequence = new AtomicLong(BenchmarkData.SEEDED_ROWS + 1);
+
+    private PersonService service;
+    private long firstId;
+
+    @Setup(Level.Trial)
+    public void setUp(SpringContextState context) {
+        service = context.getBean(PersonService.class);
+        List<Person> seeded = context.getBean(PersonRepository.class)
+                .saveAll(BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS));
+        firstId = seeded.get(0).getId();
+    }
+
+    @Benchmark
+    public Person findById() {
+        return service.findById(firstId + ThreadLocalRandom.current().nextLong(BenchmarkData.SEEDED_ROWS));
+    }
+
+    @Benchmark
+    public PersonPage findPage() {
+        long after = firstId + ThreadLocalRandom.current().nextLong(BenchmarkData.SEEDED_ROWS - PersonService.DEFAULT_PAGE_SIZE);
+        return service.findPage(after, PersonService.DEFAULT_PAGE_SIZE);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @Measurement(iterations = 10)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Person> findAllPerson() {
+        return service.findAllPerson();
+    }
+
+    @Benchmark
+    public Person createPerson() {
+        return service.createPerson(BenchmarkData.person(sequence.getAndIncrement()));
+    }
+}
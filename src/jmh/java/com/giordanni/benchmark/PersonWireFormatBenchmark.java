@@ -0,0 +1,70 @@
+package com.giordanni.benchmark;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.model.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// JSON vs Smile (o formato binario do WireFormatConfig) vs CBOR para uma lista de 10k Person,
+// como a de /person/all; o tamanho de cada corpo e impresso no setup
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PersonWireFormatBenchmark {
+
+    private static final TypeReference<List<Person>> PERSON_LIST = new TypeReference<>() {
+    };
+
+    @Param({"json", "smile", "cbor"})
+    private String format;
+
+    private ObjectMapper objectMapper;
+    private List<Person> people;
+    private byte[] encoded;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        objectMapper = switch (format) {
+            case "json" -> Jackson2ObjectMapperBuilder.json().build();
+            case "smile" -> Jackson2ObjectMapperBuilder.smile().build();
+            case "cbor" -> Jackson2ObjectMapperBuilder.cbor().build();
+            default -> throw new IllegalArgumentException("Unknown format " + format);
+        };
+        people = BenchmarkData.people(1, BenchmarkData.SEEDED_ROWS);
+        for (int i = 0; i < people.size(); i++) {
+            people.get(i).setId(i + 1L);
+            people.get(i).setVersion(0L);
+        }
+        encoded = objectMapper.writeValueAsBytes(people);
+        System.out.printf("%n%s: %d bytes for %d rows%n", format, encoded.length, people.size());
+    }
+
+    @Benchmark
+    public byte[] serializeList10k() throws IOException {
+        return objectMapper.writeValueAsBytes(people);
+    }
+
+    @Benchmark
+    public List<Person> deserializeList10k() throws IOException {
+        return objectMapper.readValue(encoded, PERSON_LIST);
+    }
+}
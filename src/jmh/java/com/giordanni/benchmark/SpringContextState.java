@@ -0,0 +1,44 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.Application;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.context.WebApplicationContext;
+
+// sobe a aplicacao com o perfil "test" (H2 em memoria) uma vez por fork;
+// contexto servlet (porta aleatoria) para que os benchmarks de MockMvc tambem possam usa-lo
+@State(Scope.Benchmark)
+public class SpringContextState {
+
+    private ConfigurableApplicationContext context;
+
+    @Setup(Level.Trial)
+    public void start() {
+        context = new SpringApplicationBuilder(Application.class)
+                .profiles("test")
+                .web(WebApplicationType.SERVLET)
+                .run("--server.port=0",
+                        "--spring.devtools.restart.enabled=false",
+                        // o fork do JMH fecha o contexto depois do shutdown hook do H2
+                        "--spring.datasource.url=jdbc:h2:mem:testdb;DB_CLOSE_ON_EXIT=FALSE");
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        context.close();
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public WebApplicationContext getWebApplicationContext() {
+        return (WebApplicationContext) context;
+    }
+}
@@ -0,0 +1,165 @@
+package com.giordanni.benchmark;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Tempo de subida e RSS da aplicacao com o perfil prod em quatro modos: jar executavel, jar extraido,
+ * extraido + AOT e extraido + AOT + CDS. Cada modo sobe {@code startup.runs} vezes (mediana no relatorio);
+ * o tempo e o "process running for" do log do Spring Boot e o RSS e lido de /proc logo depois.
+ * <p>
+ * Usa so o JDK para rodar como programa de arquivo unico no perfil Maven startup
+ * ({@code ./mvnw -P startup verify -DskipTests}). Argumentos: jar executavel, diretorio extraido (com
+ * application.jsa), arquivo do relatorio e, opcionalmente, argumentos extras para a aplicacao
+ * (ex. {@code --spring.datasource.url=...}).
+ */
+public class StartupReport {
+
+    private static final Pattern STARTED = Pattern.compile("Started Application in ([0-9.]+) seconds \\(process running for ([0-9.]+)\\)");
+    private static final long TIMEOUT_SECONDS = 180;
+
+    public static void main(String[] args) throws Exception {
+        Path executableJar = Path.of(args[0]);
+        Path extracted = Path.of(args[1]);
+        Path output = Path.of(args[2]);
+        List<String> applicationArgs = Arrays.asList(args).subList(3, args.length);
+        int runs = Integer.getInteger("startup.runs", 3);
+
+        Path extractedJar = extracted.resolve(executableJar.getFileName());
+        Path archive = extracted.resolve("application.jsa");
+        List<Mode> modes = List.of(
+                new Mode("jar", List.of(), executableJar),
+                new Mode("extracted", List.of(), extractedJar),
+                new Mode("aot", List.of("-Dspring.aot.enabled=true"), extractedJar),
+                new Mode("aot+cds", List.of("-Dspring.aot.enabled=true", "-XX:SharedArchiveFile=" + archive), extractedJar));
+
+        List<Result> results = new ArrayList<>();
+        for (Mode mode : modes) {
+            if (mode.name().equals("aot+cds") && !Files.exists(archive)) {
+                System.out.println("Skipping aot+cds: " + archive + " not found");
+                continue;
+            }
+            long[] startupMs = new long[runs];
+            long[] rssKb = new long[runs];
+            for (int i = 0; i < runs; i++) {
+                long[] sample = start(mode, applicationArgs);
+                startupMs[i] = sample[0];
+                rssKb[i] = sample[1];
+            }
+            Result result = new Result(mode.name(), runs, median(startupMs), median(rssKb) / 1024.0);
+            results.add(result);
+            System.out.println(result);
+        }
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        Files.writeString(output, results.stream().map(Result::toJson).toList().toString());
+        System.out.println("Startup report is saved to " + output.toAbsolutePath());
+    }
+
+    // {ms ate o contexto pronto, RSS em KB}
+    private static long[] start(Mode mode, List<String> applicationArgs) throws Exception {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(mode.jvmArgs());
+        command.addAll(List.of("-jar", mode.jar().toString(), "--spring.profiles.active=prod", "--server.port=0"));
+        command.addAll(applicationArgs);
+
+        Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+        Deque<String> tail = new ArrayDeque<>();
+        CompletableFuture<Long> started = CompletableFuture.supplyAsync(() -> awaitStarted(process, tail));
+        try {
+            Long startupMs = started.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            if (startupMs == null) {
+                throw new IllegalStateException("Application did not start (" + mode.name() + "):\n" + String.join("\n", tail));
+            }
+            return new long[]{startupMs, rssKb(process.pid())};
+        } finally {
+            process.destroy();
+            if (!process.waitFor(30, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+    }
+
+    // null quando o processo termina sem subir; as ultimas linhas ficam em tail para a mensagem de erro
+    private static Long awaitStarted(Process process, Deque<String> tail) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+            String line;
+            while ((line = reader.readLine()) != null) {
+                Matcher matcher = STARTED.matcher(line);
+                if (matcher.find()) {
+                    // o resto da saida precisa continuar sendo lido para o processo nao travar no pipe
+                    Thread.ofVirtual().start(() -> drain(reader));
+                    return Math.round(Double.parseDouble(matcher.group(2)) * 1000);
+                }
+                tail.addLast(line);
+                if (tail.size() > 40) {
+                    tail.removeFirst();
+                }
+            }
+            return null;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // o stream fecha quando o processo e encerrado
+    private static void drain(BufferedReader reader) {
+        try {
+            while (reader.readLine() != null) {
+                // descarta
+            }
+        } catch (IOException ignored) {
+        }
+    }
+
+    // -1 fora do Linux
+    private static long rssKb(long pid) throws IOException {
+        Path status = Path.of("/proc", String.valueOf(pid), "status");
+        if (!Files.exists(status)) {
+            return -1;
+        }
+        return Files.readAllLines(status).stream()
+                .filter(line -> line.startsWith("VmRSS:"))
+                .mapToLong(line -> Long.parseLong(line.replaceAll("[^0-9]", "")))
+                .findFirst()
+                .orElse(-1);
+    }
+
+    private static long median(long[] values) {
+        long[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[sorted.length / 2];
+    }
+
+    record Mode(String name, List<String> jvmArgs, Path jar) {
+    }
+
+    record Result(String mode, int runs, long startupMs, double rssMb) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-10s runs=%d startup=%6d ms rss=%7.1f MB", mode, runs, startupMs, rssMb);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT, "{\"mode\":\"%s\",\"runs\":%d,\"startupMs\":%d,\"rssMb\":%.1f}",
+                    mode, runs, startupMs, rssMb);
+        }
+    }
+}
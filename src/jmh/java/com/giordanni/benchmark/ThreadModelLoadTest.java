@@ -0,0 +1,241 @@
+package com.giordanni.benchmark;
+
+import com.giordanni.Application;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import reactor.core.publisher.Mono;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Teste de carga de GET /person/{id} comparando o pool de platform threads do Tomcat, o perfil
+ * virtual-threads e o perfil reactive (WebFlux + R2DBC), todos com o mesmo numero de conexoes no pool.
+ * O banco e o H2 em memoria com uma latencia artificial por conexao (simulando a espera de rede/MySQL)
+ * e o cache de Person desligado, para que toda requisicao espere o banco.
+ * <p>
+ * {@code ./mvnw -P benchmarks test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.giordanni.benchmark.ThreadModelLoadTest -Dload.clients=1000,2000 -Dload.modes=platform,reactive}
+ * <p>
+ * Rode em uma maquina com varios nucleos: cliente e servidor dividem a mesma JVM.
+ */
+public class ThreadModelLoadTest {
+
+    private static final int SEEDED_ROWS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        int[] clients = Arrays.stream(System.getProperty("load.clients", "1000,2000").split(","))
+                .mapToInt(Integer::parseInt)
+                .toArray();
+        Duration duration = Duration.ofSeconds(Long.getLong("load.seconds", 20));
+        Duration warmup = Duration.ofSeconds(Long.getLong("load.warmup-seconds", 10));
+        long dbLatencyMs = Long.getLong("load.db-latency-ms", 20);
+        int poolSize = Integer.getInteger("load.pool-size", 400);
+        String[] modes = System.getProperty("load.modes", "platform,virtual,reactive").split(",");
+
+        List<Result> results = new ArrayList<>();
+        for (String mode : modes) {
+            try (ConfigurableApplicationContext context = start(mode, dbLatencyMs, poolSize)) {
+                List<Person> seeded = context.getBean(PersonRepository.class).saveAll(BenchmarkData.people(1, SEEDED_ROWS));
+                long firstId = seeded.get(0).getId();
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+
+                for (int concurrency : clients) {
+                    run("warmup", port, firstId, concurrency, warmup);
+                    Result result = run(mode, port, firstId, concurrency, duration);
+                    results.add(result);
+                    System.out.println(result);
+                }
+            }
+        }
+
+        Path output = Path.of("target", "load-test-result.json");
+        Files.createDirectories(output.getParent());
+        Files.writeString(output, results.stream().map(Result::toJson).toList().toString());
+        System.out.println("Load test result is saved to " + output.toAbsolutePath());
+    }
+
+    private static ConfigurableApplicationContext start(String mode, long dbLatencyMs, int poolSize) {
+        String[] profiles = switch (mode) {
+            case "platform" -> new String[]{"test"};
+            case "virtual" -> new String[]{"test", "virtual-threads"};
+            case "reactive" -> new String[]{"test", "reactive"};
+            default -> throw new IllegalArgumentException("Unknown load mode " + mode);
+        };
+        // argumentos de linha de comando: precisam sobrescrever os valores dos perfis test, virtual-threads e reactive
+        return new SpringApplicationBuilder(Application.class, SlowDatabaseConfig.class)
+                .profiles(profiles)
+                .run("--server.port=0",
+                        "--spring.datasource.url=jdbc:h2:mem:load-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--spring.datasource.hikari.maximum-pool-size=" + poolSize,
+                        "--spring.datasource.hikari.connection-timeout=30000",
+                        "--spring.r2dbc.url=r2dbc:h2:mem:///load-" + mode + ";DB_CLOSE_DELAY=-1",
+                        "--spring.r2dbc.username=sa",
+                        "--spring.r2dbc.password=",
+                        "--spring.r2dbc.pool.initial-size=" + Math.min(poolSize, 10),
+                        "--spring.r2dbc.pool.max-size=" + poolSize,
+                        "--spring.r2dbc.pool.max-acquire-time=30s",
+                        "--server.tomcat.accept-count=" + 2 * poolSize,
+                        "--person.cache.maximum-size=0",
+                        "--person.rate-limit.enabled=false",
+                        "--load.db-latency-ms=" + dbLatencyMs);
+    }
+
+    private static Result run(String mode, int port, long firstId, int concurrency, Duration duration) throws Exception {
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long deadline = System.nanoTime() + duration.toNanos();
+        AtomicLong errors = new AtomicLong();
+
+        List<Future<long[]>> futures = new ArrayList<>(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                futures.add(executor.submit(() -> {
+                    long[] latencies = new long[1024];
+                    int count = 0;
+                    while (System.nanoTime() < deadline) {
+                        long id = firstId + ThreadLocalRandom.current().nextLong(SEEDED_ROWS);
+                        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/person/" + id)).build();
+                        long start = System.nanoTime();
+                        try {
+                            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                                continue;
+                            }
+                        } catch (IOException e) {
+                            errors.incrementAndGet();
+                            continue;
+                        }
+                        if (count == latencies.length) {
+                            latencies = Arrays.copyOf(latencies, count * 2);
+                        }
+                        latencies[count++] = System.nanoTime() - start;
+                    }
+                    return Arrays.copyOf(latencies, count);
+                }));
+            }
+        }
+
+        long[] all = futures.stream().flatMapToLong(future -> Arrays.stream(join(future))).sorted().toArray();
+        double throughput = all.length / (double) duration.toSeconds();
+        return new Result(mode, concurrency, all.length, errors.get(), throughput, percentile(all, 0.50), percentile(all, 0.99));
+    }
+
+    private static long[] join(Future<long[]> future) {
+        try {
+            return future.get();
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        int index = (int) Math.ceil(percentile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1_000_000.0;
+    }
+
+    record Result(String mode, int clients, long requests, long errors, double throughput, double p50Ms, double p99Ms) {
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%-8s clients=%-5d requests=%-8d errors=%-6d throughput=%9.1f req/s p50=%8.2f ms p99=%8.2f ms",
+                    mode, clients, requests, errors, throughput, p50Ms, p99Ms);
+        }
+
+        String toJson() {
+            return String.format(Locale.ROOT,
+                    "{\"mode\":\"%s\",\"clients\":%d,\"requests\":%d,\"errors\":%d,\"throughput\":%.1f,\"p50Ms\":%.2f,\"p99Ms\":%.2f}",
+                    mode, clients, requests, errors, throughput, p50Ms, p99Ms);
+        }
+    }
+
+    // segura cada conexao (JDBC ou R2DBC) por load.db-latency-ms, como se a consulta estivesse esperando o MySQL.
+    // Sem @Configuration: o component scan de Application acharia a classe e atrasaria os outros benchmarks;
+    // so entra como fonte explicita em start()
+    static class SlowDatabaseConfig {
+
+        @Bean
+        static BeanPostProcessor slowDataSourcePostProcessor(Environment environment) {
+            long latencyMs = environment.getProperty("load.db-latency-ms", Long.class, 20L);
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource dataSource && !(bean instanceof DelegatingDataSource)) {
+                        return new DelegatingDataSource(dataSource) {
+                            @Override
+                            public Connection getConnection() throws SQLException {
+                                Connection connection = super.getConnection();
+                                try {
+                                    Thread.sleep(latencyMs);
+                                } catch (InterruptedException e) {
+                                    Thread.currentThread().interrupt();
+                                }
+                                return connection;
+                            }
+                        };
+                    }
+                    if (bean instanceof ConnectionFactory connectionFactory && !(bean instanceof SlowConnectionFactory)) {
+                        // sem bloquear: a conexao fica presa, a thread do event loop nao
+                        return new SlowConnectionFactory(connectionFactory, Duration.ofMillis(latencyMs));
+                    }
+                    return bean;
+                }
+            };
+        }
+    }
+
+    record SlowConnectionFactory(ConnectionFactory delegate, Duration latency) implements ConnectionFactory, AutoCloseable {
+
+        @Override
+        public Publisher<? extends io.r2dbc.spi.Connection> create() {
+            return Mono.from(delegate.create()).delayElement(latency);
+        }
+
+        @Override
+        public ConnectionFactoryMetadata getMetadata() {
+            return delegate.getMetadata();
+        }
+
+        @Override
+        public void close() throws Exception {
+            if (delegate instanceof AutoCloseable closeable) {
+                closeable.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.giordanni.cache;
+
+import com.giordanni.model.Person;
+
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Segundo nivel do cache de Person, compartilhado entre as instancias da aplicacao.
+ * Alem de guardar entradas, propaga invalidacoes para que cada no descarte sua copia local.
+ */
+public interface CacheTier {
+
+    CacheTier NONE = new CacheTier() {
+        @Override
+        public Optional<Person> get(Long id) {
+            return Optional.empty();
+        }
+
+        @Override
+        public void put(Long id, Person person) {
+        }
+
+        @Override
+        public void invalidate(Long id) {
+        }
+
+        @Override
+        public void subscribe(Consumer<Long> invalidationListener) {
+        }
+    };
+
+    Optional<Person> get(Long id);
+
+    void put(Long id, Person person);
+
+    void invalidate(Long id);
+
+    void subscribe(Consumer<Long> invalidationListener);
+}
@@ -0,0 +1,55 @@
+package com.giordanni.cache;
+
+import com.giordanni.model.Person;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Implementacao em memoria do {@link CacheTier}, usada como substituta local de um cache
+ * distribuido (Redis, Hazelcast...). Todos os PersonCache que compartilham a mesma instancia
+ * se comportam como nos diferentes de um cluster. Limitado por tamanho e TTL como um cache distribuido
+ * configurado com expiracao: uma entrada que escapar de uma invalidacao nao fica para sempre.
+ */
+public class LocalCacheTier implements CacheTier {
+
+    private final Cache<Long, Person> entries;
+    private final List<Consumer<Long>> listeners = new CopyOnWriteArrayList<>();
+
+    public LocalCacheTier() {
+        this(10_000, Duration.ofMinutes(10));
+    }
+
+    public LocalCacheTier(long maximumSize, Duration ttl) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    @Override
+    public Optional<Person> get(Long id) {
+        return Optional.ofNullable(entries.getIfPresent(id));
+    }
+
+    @Override
+    public void put(Long id, Person person) {
+        entries.put(id, person);
+    }
+
+    @Override
+    public void invalidate(Long id) {
+        entries.invalidate(id);
+        listeners.forEach(listener -> listener.accept(id));
+    }
+
+    @Override
+    public void subscribe(Consumer<Long> invalidationListener) {
+        listeners.add(invalidationListener);
+    }
+}
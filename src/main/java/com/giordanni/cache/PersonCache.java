@@ -0,0 +1,235 @@
+package com.giordanni.cache;
+
+import com.giordanni.config.PersonCacheProperties;
+import com.giordanni.model.Person;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Cache read-through de Person por id: primeiro o Caffeine local (limitado por tamanho e TTL),
+ * depois o {@link CacheTier} compartilhado e, por ultimo, o loader (banco).
+ * <p>
+ * O loader roda na thread chamadora e fora de qualquer monitor do mapa (o cache guarda apenas o
+ * {@link CompletableFuture}), para nao prender a carrier thread quando a requisicao roda em
+ * virtual thread. Chamadas concorrentes para o mesmo id aguardam o mesmo future, e buscas concorrentes pelo
+ * mesmo email dividem uma unica consulta ({@link SingleFlight}); em ambos os casos a espera e limitada por
+ * {@code person.cache.in-flight-timeout}.
+ * <p>
+ * Uma carga so publica no {@link CacheTier} se nenhuma invalidacao do mesmo id aconteceu desde que ela
+ * comecou (contador de geracao por faixa de ids): o resultado lido antes de uma escrita nao volta para o tier.
+ */
+@Component
+public class PersonCache {
+
+    private static final int GENERATION_STRIPES = 1024;
+
+    private final StatsCounter statsCounter = new ConcurrentStatsCounter();
+    private final AsyncCache<Long, Person> local;
+    private final CacheTier tier;
+    // para id o proprio mapa do Caffeine guarda o future em andamento: aqui so a espera e a contagem
+    private final SingleFlight<Long, Person> idLoads;
+    private final SingleFlight<String, Optional<Person>> emailLoads;
+    // geracao por faixa de ids, incrementada a cada invalidacao; colisao so faz pular um put
+    private final AtomicLongArray generations = new AtomicLongArray(GENERATION_STRIPES);
+    // caches abaixo deste (cache de segundo nivel do Hibernate), descartados antes da copia local
+    private final List<Consumer<Long>> invalidationListeners = new CopyOnWriteArrayList<>();
+
+    public PersonCache(PersonCacheProperties properties, CacheTier tier) {
+        this.local = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats(() -> statsCounter)
+                .buildAsync();
+        this.tier = tier;
+        this.idLoads = new SingleFlight<>(properties.getInFlightTimeout());
+        this.emailLoads = new SingleFlight<>(properties.getInFlightTimeout());
+        // outro no alterou a pessoa: descarta apenas a copia local
+        tier.subscribe(id -> {
+            invalidationListeners.forEach(listener -> listener.accept(id));
+            generations.incrementAndGet(stripe(id));
+            local.synchronous().invalidate(id);
+        });
+    }
+
+    public Optional<Person> get(Long id, Function<Long, Optional<Person>> loader) {
+        CompletableFuture<Person> loading = new CompletableFuture<>();
+        CompletableFuture<Person> existing = local.asMap().putIfAbsent(id, loading);
+
+        if (existing != null) {
+            statsCounter.recordHits(1);
+            return Optional.ofNullable(idLoads.await(existing));
+        }
+
+        statsCounter.recordMisses(1);
+        try {
+            Person person = load(id, loader);
+            loading.complete(person);
+            if (person == null) {
+                local.asMap().remove(id, loading);
+            }
+            return Optional.ofNullable(person);
+        } catch (RuntimeException e) {
+            local.asMap().remove(id, loading);
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * Varios ids de uma vez: os que estao no cache (ou sendo carregados por outra thread) sao reaproveitados
+     * e os demais vao ao {@link CacheTier} e depois ao loader numa chamada so. Ids inexistentes ficam de fora
+     * do mapa devolvido, que segue a ordem de {@code ids}.
+     */
+    public Map<Long, Person> getAll(Collection<Long> ids, Function<List<Long>, List<Person>> loader) {
+        Map<Long, CompletableFuture<Person>> shared = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<Person>> loading = new LinkedHashMap<>();
+        for (Long id : ids) {
+            CompletableFuture<Person> future = new CompletableFuture<>();
+            CompletableFuture<Person> existing = local.asMap().putIfAbsent(id, future);
+            if (existing != null) {
+                shared.put(id, existing);
+            } else {
+                loading.put(id, future);
+            }
+        }
+        statsCounter.recordHits(shared.size());
+        statsCounter.recordMisses(loading.size());
+
+        if (!loading.isEmpty()) {
+            loadAll(loading, loader);
+        }
+
+        Map<Long, Person> found = new LinkedHashMap<>();
+        for (Long id : ids) {
+            CompletableFuture<Person> future = loading.containsKey(id) ? loading.get(id) : shared.get(id);
+            Person person = idLoads.await(future);
+            if (person != null) {
+                found.put(id, person);
+            }
+        }
+        return found;
+    }
+
+    // sem cache por email (o indice cuida disso): so evita consultas repetidas simultaneas
+    public Optional<Person> findByEmail(String email, Function<String, Optional<Person>> loader) {
+        return emailLoads.execute(email, () -> loader.apply(email));
+    }
+
+    /**
+     * Chamado quando outro no invalida um id, antes de a copia local sair: uma recarga que comecar depois
+     * ja nao encontra a versao antiga num cache mais abaixo.
+     */
+    public void onRemoteInvalidation(Consumer<Long> listener) {
+        invalidationListeners.add(listener);
+    }
+
+    public void evict(Long id) {
+        generations.incrementAndGet(stripe(id));
+        local.synchronous().invalidate(id);
+        tier.invalidate(id);
+    }
+
+    public CacheStats stats() {
+        return statsCounter.snapshot();
+    }
+
+    public long size() {
+        return local.synchronous().estimatedSize();
+    }
+
+    public long coalescedIdLoads() {
+        return idLoads.coalesced();
+    }
+
+    public long coalescedEmailLoads() {
+        return emailLoads.coalesced();
+    }
+
+    private void loadAll(Map<Long, CompletableFuture<Person>> loading, Function<List<Long>, List<Person>> loader) {
+        Map<Long, Long> startedAt = new LinkedHashMap<>();
+        loading.keySet().forEach(id -> startedAt.put(id, generation(id)));
+        try {
+            List<Long> missing = new ArrayList<>();
+            for (Map.Entry<Long, CompletableFuture<Person>> entry : loading.entrySet()) {
+                Optional<Person> shared = tier.get(entry.getKey());
+                if (shared.isPresent()) {
+                    entry.getValue().complete(shared.get());
+                } else {
+                    missing.add(entry.getKey());
+                }
+            }
+            if (!missing.isEmpty()) {
+                for (Person person : loader.apply(missing)) {
+                    CompletableFuture<Person> future = loading.get(person.getId());
+                    if (future != null) {
+                        publish(person.getId(), person, startedAt.get(person.getId()));
+                        future.complete(person);
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            loading.forEach((id, future) -> {
+                if (future.completeExceptionally(e)) {
+                    local.asMap().remove(id, future);
+                }
+            });
+            throw e;
+        }
+        // o que o loader nao devolveu nao existe: nao fica no cache
+        loading.forEach((id, future) -> {
+            if (future.complete(null)) {
+                local.asMap().remove(id, future);
+            }
+        });
+    }
+
+    private Person load(Long id, Function<Long, Optional<Person>> loader) {
+        long startedAt = generation(id);
+        Optional<Person> shared = tier.get(id);
+        if (shared.isPresent()) {
+            return shared.get();
+        }
+
+        Person person = loader.apply(id).orElse(null);
+        if (person != null) {
+            publish(id, person, startedAt);
+        }
+        return person;
+    }
+
+    // invalidacao durante a carga: o valor lido pode ser anterior a escrita e nao vai para o tier. Se a
+    // invalidacao cair entre a conferencia e o put, a entrada recem-gravada e invalidada de novo
+    private void publish(Long id, Person person, long startedAt) {
+        if (generation(id) != startedAt) {
+            return;
+        }
+        tier.put(id, person);
+        if (generation(id) != startedAt) {
+            tier.invalidate(id);
+        }
+    }
+
+    private long generation(Long id) {
+        return generations.get(stripe(id));
+    }
+
+    private static int stripe(Long id) {
+        return Long.hashCode(id * 0x9E3779B97F4A7C15L) & (GENERATION_STRIPES - 1);
+    }
+}
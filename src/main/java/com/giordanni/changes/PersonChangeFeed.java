@@ -0,0 +1,225 @@
+package com.giordanni.changes;
+
+import com.giordanni.config.PersonChangesProperties;
+import com.giordanni.dto.PersonChangePage;
+import com.giordanni.dto.PersonChangeEvent;
+import com.giordanni.exception.ChangeCursorExpiredException;
+import com.giordanni.model.PersonChange;
+import com.giordanni.repository.PersonChangeRepository;
+import com.giordanni.service.PersonService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.Limit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Relay do outbox {@code person_change}: uma thread le os eventos novos pela PK a partir do ultimo cursor
+ * publicado, avanca o cursor sobre os que ja passaram do {@code settle} e acorda os long-polls de
+ * GET /person/changes que esperavam por eles. Tambem apaga os eventos mais velhos que {@code retention}.
+ * <p>
+ * Os consumidores so enxergam ate o cursor publicado: um id alocado por uma transacao que ainda nao
+ * commitou nao e pulado enquanto estiver dentro do {@code settle}.
+ */
+@Slf4j
+public class PersonChangeFeed implements AutoCloseable {
+
+    // o relay roda a cada poll-interval: com o banco fora, um WARN por minuto e nao um por ciclo
+    private static final Duration FAILURE_LOG_INTERVAL = Duration.ofMinutes(1);
+
+    private final PersonChangeRepository repository;
+    private final PersonChangesProperties properties;
+    private final Clock clock;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final List<Waiter> waiters = new ArrayList<>();
+    // o callback le o banco: roda fora da thread do relay
+    private final ExecutorService notifier = Executors.newVirtualThreadPerTaskExecutor();
+    private final Counter failures;
+
+    private volatile long published;
+    private volatile boolean running;
+    private Instant nextPurge;
+    private Instant nextFailureLog = Instant.MIN;
+    private Thread relay;
+
+    public PersonChangeFeed(PersonChangeRepository repository, PersonChangesProperties properties,
+                            MeterRegistry meterRegistry, Clock clock) {
+        this.repository = repository;
+        this.properties = properties;
+        this.clock = clock;
+
+        Gauge.builder("person.changes.waiters", waiters, List::size)
+                .description("Long-polls de /person/changes esperando um evento")
+                .register(meterRegistry);
+        Gauge.builder("person.changes.cursor", this, PersonChangeFeed::cursor)
+                .description("Ultimo id do outbox publicado pelo relay")
+                .register(meterRegistry);
+        this.failures = Counter.builder("person.changes.relay.failures")
+                .description("Ciclos do relay do outbox que falharam")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        Long last = repository.findLastIdOccurredBefore(settledBefore());
+        published = last == null ? 0L : last;
+        nextPurge = clock.instant();
+        running = true;
+        relay = Thread.ofPlatform().name("person-change-relay").daemon().start(this::run);
+    }
+
+    @Override
+    public void close() throws InterruptedException {
+        running = false;
+        if (relay != null) {
+            relay.interrupt();
+            relay.join();
+        }
+        notifier.shutdown();
+        notifier.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public long cursor() {
+        return published;
+    }
+
+    public Duration maxWait() {
+        return properties.getMaxWait();
+    }
+
+    // sem since: pagina vazia com o cursor atual, para o consumidor guardar antes de ler /person/all
+    public PersonChangePage read(Long since, int limit) {
+        if (limit < 1 || limit > PersonService.MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + PersonService.MAX_PAGE_SIZE + ".");
+        }
+        long through = published;
+        if (since == null) {
+            return new PersonChangePage(List.of(), through);
+        }
+        if (since < 0) {
+            throw new IllegalArgumentException("Cursor must not be negative.");
+        }
+
+        Long first = repository.findFirstId();
+        if (first != null && since < first - 1) {
+            throw new ChangeCursorExpiredException("Changes after cursor " + since + " were purged.");
+        }
+
+        List<PersonChangeEvent> content = since >= through
+                ? List.of()
+                : repository.findEvents(since, through, Limit.of(limit));
+        // pagina incompleta ja chegou ao cursor publicado: pula os ids de transacoes desfeitas
+        long nextCursor = content.size() < limit ? Math.max(since, through) : content.get(content.size() - 1).id();
+        return new PersonChangePage(content, nextCursor);
+    }
+
+    // chama onChange uma vez quando o cursor publicado passar de since; devolve o cancelamento
+    public Runnable await(long since, Runnable onChange) {
+        Waiter waiter = new Waiter(since, onChange);
+        lock.lock();
+        try {
+            if (published <= since) {
+                waiters.add(waiter);
+                return () -> remove(waiter);
+            }
+        } finally {
+            lock.unlock();
+        }
+        notifier.execute(onChange);
+        return () -> { };
+    }
+
+    private void remove(Waiter waiter) {
+        lock.lock();
+        try {
+            waiters.remove(waiter);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        while (running) {
+            try {
+                poll();
+                Thread.sleep(properties.getPollInterval());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // um ciclo do relay; package-private para os testes chamarem sem a thread
+    void poll() {
+        try {
+            relay();
+            if (!clock.instant().isBefore(nextPurge)) {
+                purge();
+            }
+        } catch (RuntimeException e) {
+            // banco fora: tenta de novo no proximo ciclo, com o cursor onde estava (e os long-polls esperando)
+            failures.increment();
+            Instant now = clock.instant();
+            if (!now.isBefore(nextFailureLog)) {
+                nextFailureLog = now.plus(FAILURE_LOG_INTERVAL);
+                log.warn("Person change relay failed ({} failures so far), cursor stays at {}",
+                        (long) failures.count(), published, e);
+            }
+        }
+    }
+
+    // package-private para os testes chamarem sem a thread
+    void relay() {
+        Instant cutoff = settledBefore();
+        long cursor = published;
+        List<PersonChange> fresh;
+        do {
+            fresh = repository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(PersonService.MAX_PAGE_SIZE));
+            for (PersonChange change : fresh) {
+                if (change.getOccurredAt().isAfter(cutoff)) {
+                    fresh = List.of();
+                    break;
+                }
+                cursor = change.getId();
+            }
+        } while (fresh.size() == PersonService.MAX_PAGE_SIZE);
+
+        if (cursor > published) {
+            publish(cursor);
+        }
+    }
+
+    void purge() {
+        repository.purge(clock.instant().minus(properties.getRetention()), published);
+        nextPurge = clock.instant().plus(properties.getPurgeInterval());
+    }
+
+    private void publish(long cursor) {
+        List<Waiter> ready = new ArrayList<>();
+        lock.lock();
+        try {
+            published = cursor;
+            waiters.removeIf(waiter -> waiter.since() < cursor && ready.add(waiter));
+        } finally {
+            lock.unlock();
+        }
+        ready.forEach(waiter -> notifier.execute(waiter.onChange()));
+    }
+
+    private Instant settledBefore() {
+        return clock.instant().minus(properties.getSettle());
+    }
+
+    private record Waiter(long since, Runnable onChange) {
+    }
+}
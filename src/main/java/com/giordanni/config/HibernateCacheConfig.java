@@ -0,0 +1,89 @@
+package com.giordanni.config;
+
+import com.giordanni.cache.PersonCache;
+import com.giordanni.model.Person;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.hibernate.cache.spi.RegionFactory;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import java.net.URI;
+import java.time.Duration;
+import java.util.OptionalLong;
+import java.util.UUID;
+
+/**
+ * Cache de segundo nivel do Hibernate em JCache/Caffeine, no mesmo processo.
+ * <p>
+ * As regioes sao criadas aqui com tamanho e TTL do application.yml (missing_cache_strategy=fail: uma regiao
+ * nao declarada derruba o boot em vez de virar um cache sem limite). O CacheManager e um por contexto, para
+ * dois contextos na mesma JVM (testes) nao dividirem as mesmas entradas.
+ * <p>
+ * Desligado por padrao: o cache e de cada instancia, e uma escrita feita em outro no so chega aqui pela
+ * invalidacao do {@link com.giordanni.cache.CacheTier} (que descarta a pessoa e todas as consultas em cache).
+ * Sem um tier compartilhado ({@code person.cache.second-tier}) a leitura velha dura ate o {@code ttl};
+ * com mais de uma instancia so ligar junto com o tier.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "person.hibernate-cache", name = "enabled", havingValue = "true")
+public class HibernateCacheConfig {
+
+    @Bean(destroyMethod = "close")
+    CacheManager hibernateCacheManager(HibernateCacheProperties properties) {
+        CacheManager cacheManager = Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+                .getCacheManager(URI.create("urn:person-hibernate-cache:" + UUID.randomUUID()), getClass().getClassLoader());
+
+        cacheManager.createCache(Person.CACHE_REGION, region(properties.getEntityMaximumSize(), properties.getTtl()));
+        cacheManager.createCache(RegionFactory.DEFAULT_QUERY_RESULTS_REGION_UNQUALIFIED_NAME,
+                region(properties.getQueryMaximumSize(), properties.getTtl()));
+        // sem limite nem TTL: uma entrada por tabela, e sem ela o Hibernate consideraria qualquer consulta em cache atual
+        cacheManager.createCache(RegionFactory.DEFAULT_UPDATE_TIMESTAMPS_REGION_UNQUALIFIED_NAME, new CaffeineConfiguration<>()
+                .setStoreByValue(false));
+        return cacheManager;
+    }
+
+    @Bean
+    HibernatePropertiesCustomizer hibernateCacheCustomizer(CacheManager hibernateCacheManager, HibernateCacheProperties properties) {
+        return hibernateProperties -> {
+            hibernateProperties.put(AvailableSettings.USE_SECOND_LEVEL_CACHE, true);
+            hibernateProperties.put(AvailableSettings.USE_QUERY_CACHE, true);
+            hibernateProperties.put(AvailableSettings.CACHE_REGION_FACTORY, "jcache");
+            hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+            hibernateProperties.put(ConfigSettings.MISSING_CACHE_STRATEGY, "fail");
+            hibernateProperties.put(AvailableSettings.GENERATE_STATISTICS, properties.isStatistics());
+        };
+    }
+
+    // outro no alterou a pessoa: sai daqui antes da copia do PersonCache, para a recarga ir ao banco
+    @Bean
+    SmartInitializingSingleton hibernateCacheInvalidation(ObjectProvider<PersonCache> personCache,
+                                                          EntityManagerFactory entityManagerFactory) {
+        return () -> personCache.ifAvailable(cache -> cache.onRemoteInvalidation(id -> {
+            Cache secondLevel = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+            secondLevel.evictEntityData(Person.class, id);
+            // o timestamp da tabela so muda com escritas locais: consulta em cache nao sabe da escrita remota
+            secondLevel.evictDefaultQueryRegion();
+        }));
+    }
+
+    private static CaffeineConfiguration<Object, Object> region(long maximumSize, Duration ttl) {
+        CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+        configuration.setMaximumSize(OptionalLong.of(maximumSize));
+        configuration.setExpireAfterWrite(OptionalLong.of(ttl.toNanos()));
+        // store-by-value do JCache serializaria cada entrada em todo get/put; o Hibernate ja guarda uma copia desmontada
+        configuration.setStoreByValue(false);
+        return configuration;
+    }
+}
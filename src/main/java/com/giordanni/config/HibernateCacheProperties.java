@@ -0,0 +1,24 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.hibernate-cache")
+public class HibernateCacheProperties {
+
+    // cache de segundo nivel (entidade Person) e de consultas do Hibernate; desligado por padrao, ver HibernateCacheConfig
+    private boolean enabled = false;
+
+    private long entityMaximumSize = 10_000;
+
+    private long queryMaximumSize = 1_000;
+
+    // o cache e local: sem person.cache.second-tier, escrita feita por outra instancia so aparece aqui depois do TTL
+    private Duration ttl = Duration.ofMinutes(10);
+
+    // hibernate.generate_statistics, exportado pelo Micrometer como hibernate_*
+    private boolean statistics = true;
+}
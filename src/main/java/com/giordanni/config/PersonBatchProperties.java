@@ -0,0 +1,14 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "person.batch")
+public class PersonBatchProperties {
+
+    // linhas gravadas por transacao (flush + clear ao final de cada chunk)
+    private int chunkSize = 500;
+
+    private int maxRows = 10_000;
+}
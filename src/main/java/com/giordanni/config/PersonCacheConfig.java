@@ -0,0 +1,24 @@
+package com.giordanni.config;
+
+import com.giordanni.cache.CacheTier;
+import com.giordanni.cache.LocalCacheTier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class PersonCacheConfig {
+
+    @Bean
+    @ConditionalOnProperty(prefix = "person.cache", name = "second-tier", havingValue = "local")
+    CacheTier localCacheTier(PersonCacheProperties properties) {
+        return new LocalCacheTier(properties.getMaximumSize(), properties.getTtl());
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(CacheTier.class)
+    CacheTier noCacheTier() {
+        return CacheTier.NONE;
+    }
+}
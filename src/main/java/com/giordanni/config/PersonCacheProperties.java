@@ -0,0 +1,21 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.cache")
+public class PersonCacheProperties {
+
+    private long maximumSize = 10_000;
+
+    private Duration ttl = Duration.ofMinutes(10);
+
+    // quanto uma requisicao espera a carga iniciada por outra (mesmo id ou email) antes de desistir
+    private Duration inFlightTimeout = Duration.ofSeconds(5);
+
+    // none | local
+    private String secondTier = "none";
+}
@@ -0,0 +1,19 @@
+package com.giordanni.config;
+
+import com.giordanni.changes.PersonChangeFeed;
+import com.giordanni.repository.PersonChangeRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+public class PersonChangesConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    PersonChangeFeed personChangeFeed(PersonChangeRepository repository, PersonChangesProperties properties,
+                                      MeterRegistry meterRegistry) {
+        return new PersonChangeFeed(repository, properties, meterRegistry, Clock.systemUTC());
+    }
+}
@@ -0,0 +1,26 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.changes")
+public class PersonChangesProperties {
+
+    // de quanto em quanto tempo o relay le o outbox a partir do ultimo cursor publicado
+    private Duration pollInterval = Duration.ofMillis(200);
+
+    // idade minima de um evento para ser publicado: uma transacao que pegou um id menor e ainda nao
+    // commitou tem esse tempo para aparecer antes de o cursor passar por ela
+    private Duration settle = Duration.ofSeconds(1);
+
+    // limite do ?wait= do long-poll
+    private Duration maxWait = Duration.ofSeconds(30);
+
+    // eventos mais velhos que isso sao apagados; um cursor anterior a eles recebe 410 Gone
+    private Duration retention = Duration.ofDays(7);
+
+    private Duration purgeInterval = Duration.ofHours(1);
+}
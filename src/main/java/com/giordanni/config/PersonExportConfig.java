@@ -0,0 +1,29 @@
+package com.giordanni.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.datasource.ReplicaRoutingDataSource;
+import com.giordanni.export.PersonExporter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.util.function.Supplier;
+
+// so o PersonController expoe /person/export
+@Configuration
+@Profile("!reactive")
+public class PersonExportConfig {
+
+    @Bean(destroyMethod = "close")
+    PersonExporter personExporter(DataSource dataSource, ObjectProvider<ReplicaRoutingDataSource> replicaDataSource,
+                                  ObjectMapper objectMapper, PersonExportProperties properties,
+                                  MeterRegistry meterRegistry) {
+        // com replicas: uma replica escolhida por export, a mesma para todas as faixas
+        ReplicaRoutingDataSource replicas = replicaDataSource.getIfAvailable();
+        Supplier<DataSource> sources = replicas != null ? replicas::pin : () -> dataSource;
+        return new PersonExporter(sources, objectMapper.getFactory(), properties, meterRegistry);
+    }
+}
@@ -0,0 +1,19 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "person.export")
+public class PersonExportProperties {
+
+    // faixas lidas ao mesmo tempo, cada uma com sua conexao; vale para todos os exports juntos,
+    // entao fica abaixo do maximum-pool-size para sobrar conexao para o resto da API
+    private int parallelism = 4;
+
+    // ids por faixa (um SELECT ... WHERE id > ? AND id <= ?); limita a memoria de cada faixa pronta
+    private long rangeSize = 10_000;
+
+    // exports ao mesmo tempo; o proximo recebe 503 em vez de esperar na fila das faixas dos outros
+    private int maxConcurrent = 2;
+}
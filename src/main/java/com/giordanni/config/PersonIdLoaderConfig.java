@@ -0,0 +1,19 @@
+package com.giordanni.config;
+
+import com.giordanni.loader.PersonIdLoader;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConditionalOnProperty(prefix = "person.id-loader", name = "enabled", havingValue = "true")
+public class PersonIdLoaderConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    PersonIdLoader personIdLoader(PersonIdLoaderProperties properties, PersonRepository repository,
+                                  MeterRegistry meterRegistry) {
+        return new PersonIdLoader(properties, repository::findAllById, meterRegistry);
+    }
+}
@@ -0,0 +1,23 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.id-loader")
+public class PersonIdLoaderProperties {
+
+    // true: faltas do PersonCache em findById que chegam juntas viram um SELECT ... WHERE id IN (...)
+    private boolean enabled = false;
+
+    // ids por consulta; o que passar disso fica para a proxima
+    private int maxBatchSize = 100;
+
+    // quanto o primeiro pedido de uma janela espera outros chegarem; soma-se a latencia de toda falta
+    private Duration maxWait = Duration.ofMillis(2);
+
+    // quanto quem chama espera o seu lote; depois disso QueryTimeoutException (503), e o lote segue sem ele
+    private Duration timeout = Duration.ofSeconds(5);
+}
@@ -0,0 +1,47 @@
+package com.giordanni.config;
+
+import com.giordanni.index.HashPersonIndex;
+import com.giordanni.index.PersonIndex;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+@Configuration
+public class PersonIndexConfig {
+
+    @Bean(initMethod = "start")
+    @ConditionalOnProperty(prefix = "person.index", name = "enabled", havingValue = "true")
+    HashPersonIndex hashPersonIndex(PersonRepository repository, PlatformTransactionManager transactionManager,
+                                    PersonIndexProperties properties) {
+        // read-only: com replicas a carga inicial sai delas
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        return new HashPersonIndex(repository, readOnlyTransaction, properties);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "person.index", name = "enabled", havingValue = "true")
+    MeterBinder personIndexMetrics(HashPersonIndex hashPersonIndex) {
+        return registry -> {
+            Gauge.builder("person.index.entries", hashPersonIndex, HashPersonIndex::size)
+                    .description("Pessoas no indice em memoria por email e nome")
+                    .register(registry);
+            Gauge.builder("person.index.memory", hashPersonIndex, HashPersonIndex::memoryBytes)
+                    .description("Tamanho das tabelas do indice em memoria")
+                    .baseUnit("bytes")
+                    .register(registry);
+        };
+    }
+
+    @Bean
+    @ConditionalOnMissingBean(PersonIndex.class)
+    PersonIndex noPersonIndex() {
+        return PersonIndex.NONE;
+    }
+}
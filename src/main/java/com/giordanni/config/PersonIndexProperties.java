@@ -0,0 +1,15 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@ConfigurationProperties(prefix = "person.index")
+public class PersonIndexProperties {
+
+    // indice em memoria por email e por nome (HashPersonIndex), carregado na subida
+    private boolean enabled = false;
+
+    // pessoas alem disso nao entram no indice (a busca delas vai ao SQL): limita a memoria
+    private int maxEntries = 1_000_000;
+}
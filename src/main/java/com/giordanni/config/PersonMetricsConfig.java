@@ -0,0 +1,48 @@
+package com.giordanni.config;
+
+import com.giordanni.cache.PersonCache;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Metricas do {@link PersonCache} com os mesmos nomes usados pelo binder de caches do Micrometer
+ * ({@code cache.gets}, {@code cache.evictions}, {@code cache.size}), tag {@code cache=person}, e as consultas
+ * economizadas pelo single-flight ({@code person.singleflight.coalesced}, tag {@code key=id|email}).
+ * Os contadores leem o {@code stats()} no momento do scrape; nada e registrado no caminho quente.
+ */
+@Configuration
+public class PersonMetricsConfig {
+
+    static final String CACHE_NAME = "person";
+
+    @Bean
+    MeterBinder personCacheMetrics(PersonCache personCache) {
+        return registry -> {
+            FunctionCounter.builder("cache.gets", personCache, cache -> cache.stats().hitCount())
+                    .tags("cache", CACHE_NAME, "result", "hit")
+                    .description("Leituras de /person/{id} atendidas pelo cache")
+                    .register(registry);
+            FunctionCounter.builder("cache.gets", personCache, cache -> cache.stats().missCount())
+                    .tags("cache", CACHE_NAME, "result", "miss")
+                    .description("Leituras de /person/{id} que foram ao banco")
+                    .register(registry);
+            FunctionCounter.builder("cache.evictions", personCache, cache -> cache.stats().evictionCount())
+                    .tags("cache", CACHE_NAME)
+                    .register(registry);
+            Gauge.builder("cache.size", personCache, PersonCache::size)
+                    .tags("cache", CACHE_NAME)
+                    .register(registry);
+            FunctionCounter.builder("person.singleflight.coalesced", personCache, PersonCache::coalescedIdLoads)
+                    .tags("key", "id")
+                    .description("Leituras que esperaram a carga em andamento de outra requisicao em vez de ir ao banco")
+                    .register(registry);
+            FunctionCounter.builder("person.singleflight.coalesced", personCache, PersonCache::coalescedEmailLoads)
+                    .tags("key", "email")
+                    .description("Buscas por email que dividiram a consulta em andamento de outra requisicao")
+                    .register(registry);
+        };
+    }
+}
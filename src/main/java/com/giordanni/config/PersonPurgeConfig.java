@@ -0,0 +1,21 @@
+package com.giordanni.config;
+
+import com.giordanni.purge.PersonPurgeJob;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Clock;
+
+@Configuration
+@ConditionalOnProperty(prefix = "person.purge", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PersonPurgeConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    PersonPurgeJob personPurgeJob(PersonRepository repository, PersonPurgeProperties properties,
+                                  MeterRegistry meterRegistry) {
+        return new PersonPurgeJob(repository, properties, meterRegistry, Clock.systemDefaultZone());
+    }
+}
@@ -0,0 +1,28 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.purge")
+public class PersonPurgeProperties {
+
+    private boolean enabled = true;
+
+    // quando a purga das pessoas apagadas (soft delete) roda: fora do horario de pico, no fuso da JVM
+    private String cron = "0 */10 2-5 * * *";
+
+    // linhas apagadas ha menos que isso ficam na tabela
+    private Duration grace = Duration.ofHours(1);
+
+    // cada lote e um DELETE ... WHERE id IN (...) na sua transacao: locks curtos
+    private int batchSize = 1000;
+
+    // intervalo entre lotes, para a purga nao disputar o banco com as requisicoes
+    private Duration pause = Duration.ofMillis(100);
+
+    // tempo maximo de uma execucao; o que sobrar fica para a proxima
+    private Duration maxDuration = Duration.ofMinutes(5);
+}
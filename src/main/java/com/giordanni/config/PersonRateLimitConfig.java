@@ -0,0 +1,54 @@
+package com.giordanni.config;
+
+import com.giordanni.ratelimit.AdaptiveConcurrencyLimit;
+import com.giordanni.ratelimit.PersonRateLimitFilter;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+import java.util.function.BooleanSupplier;
+
+// filtro de servlet: no perfil reactive quem segura a carga e o pool do R2DBC
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "person.rate-limit", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class PersonRateLimitConfig {
+
+    @Bean
+    AdaptiveConcurrencyLimit personConcurrencyLimit(PersonRateLimitProperties properties, DataSource dataSource) {
+        return new AdaptiveConcurrencyLimit(properties.getConcurrency(), poolCongested(dataSource), System::nanoTime);
+    }
+
+    @Bean
+    FilterRegistrationBean<PersonRateLimitFilter> personRateLimitFilter(PersonRateLimitProperties properties,
+                                                                        AdaptiveConcurrencyLimit personConcurrencyLimit,
+                                                                        MeterRegistry meterRegistry) {
+        FilterRegistrationBean<PersonRateLimitFilter> registration = new FilterRegistrationBean<>(
+                new PersonRateLimitFilter(properties, personConcurrencyLimit, meterRegistry, System::nanoTime));
+        registration.addUrlPatterns("/person", "/person/*");
+        return registration;
+    }
+
+    // thread esperando conexao no pool primario (atras do SlowQueryDataSource e do roteamento de replicas)
+    private static BooleanSupplier poolCongested(DataSource dataSource) {
+        try {
+            if (!dataSource.isWrapperFor(HikariDataSource.class)) {
+                return () -> false;
+            }
+            HikariDataSource pool = dataSource.unwrap(HikariDataSource.class);
+            return () -> {
+                HikariPoolMXBean mxBean = pool.getHikariPoolMXBean();
+                return mxBean != null && mxBean.getThreadsAwaitingConnection() > 0;
+            };
+        } catch (SQLException e) {
+            return () -> false;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.rate-limit")
+public class PersonRateLimitProperties {
+
+    private boolean enabled = true;
+
+    // cliente identificado por este header; sem ele, pelo IP de origem
+    private String apiKeyHeader = "X-API-Key";
+
+    // buckets em memoria; o de um cliente parado some depois de idle-timeout (e volta cheio)
+    private long maxClients = 100_000;
+
+    private Duration idleTimeout = Duration.ofMinutes(10);
+
+    // GET /person/{id}, escritas de uma pessoa, /person/changes
+    private Budget cheap = new Budget(200, 100);
+
+    // /person/all, /person/search, /person/page, /person/batch e DELETE /person?ids=
+    private Budget expensive = new Budget(20, 5);
+
+    private Concurrency concurrency = new Concurrency();
+
+    @Data
+    public static class Budget {
+
+        // rajada maxima
+        private int capacity;
+
+        // requisicoes por segundo no regime
+        private double refillPerSecond;
+
+        public Budget() {
+        }
+
+        public Budget(int capacity, double refillPerSecond) {
+            this.capacity = capacity;
+            this.refillPerSecond = refillPerSecond;
+        }
+    }
+
+    // limite global de requisicoes em andamento, ajustado por AIMD (AdaptiveConcurrencyLimit)
+    @Data
+    public static class Concurrency {
+
+        private int initialLimit = 40;
+
+        private int minLimit = 8;
+
+        private int maxLimit = 400;
+
+        // resposta mais lenta que isso (ou thread esperando conexao no Hikari) reduz o limite
+        private Duration targetLatency = Duration.ofMillis(250);
+
+        private double backoffRatio = 0.9;
+
+        // fracao do limite que as requisicoes caras podem ocupar: sobra espaco para as baratas
+        private double expensiveShare = 0.5;
+    }
+}
@@ -0,0 +1,44 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+@Data
+@ConfigurationProperties(prefix = "person.replica")
+public class PersonReplicaProperties {
+
+    private boolean enabled = false;
+
+    private List<Node> nodes = new ArrayList<>();
+
+    // replica com atraso maior que isso sai do rodizio ate a proxima verificacao
+    private Duration maxLag = Duration.ofSeconds(5);
+
+    // depois de uma escrita as leituras daquele cliente vao ao primario por pelo menos esse tempo (read-your-writes)
+    private Duration stickyWindow = Duration.ofSeconds(2);
+
+    private Duration healthCheckInterval = Duration.ofSeconds(5);
+
+    // consulta executada na replica que devolve o atraso em segundos na primeira coluna;
+    // vazia: apenas valida a conexao e considera atraso zero
+    private String lagQuery;
+
+    @Data
+    public static class Node {
+
+        private String url;
+
+        private String username;
+
+        private String password;
+
+        private int maximumPoolSize = 10;
+
+        // pouco tempo esperando conexao: replica fora do ar cai para o primario rapido
+        private Duration connectionTimeout = Duration.ofSeconds(1);
+    }
+}
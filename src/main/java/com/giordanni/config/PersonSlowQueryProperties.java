@@ -0,0 +1,19 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.slow-query")
+public class PersonSlowQueryProperties {
+
+    private boolean enabled = true;
+
+    // comandos que demoram mais que isso sao logados em WARN e contados em person.db.slow.queries
+    private Duration threshold = Duration.ofMillis(200);
+
+    // o primeiro frame da pilha dentro deste pacote e registrado como quem disparou o comando
+    private String callerPackage = "com.giordanni.service";
+}
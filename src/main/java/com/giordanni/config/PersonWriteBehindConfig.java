@@ -0,0 +1,31 @@
+package com.giordanni.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.service.PersonBatchService;
+import com.giordanni.service.PersonService;
+import com.giordanni.writebehind.PersonWriteBehindQueue;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+
+// so o PersonController usa a fila; no perfil reactive as escritas continuam sincronas
+@Configuration
+@Profile("!reactive")
+@ConditionalOnProperty(prefix = "person.write-behind", name = "enabled", havingValue = "true")
+public class PersonWriteBehindConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    PersonWriteBehindQueue personWriteBehindQueue(PersonWriteBehindProperties properties, PersonBatchService batchService,
+                                                  PersonService personService, PersonCache personCache,
+                                                  TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                                  ObjectMapper objectMapper) throws IOException {
+        return PersonWriteBehindQueue.create(properties, batchService, personService, personCache,
+                transactionTemplate, meterRegistry, objectMapper);
+    }
+}
@@ -0,0 +1,27 @@
+package com.giordanni.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@ConfigurationProperties(prefix = "person.write-behind")
+public class PersonWriteBehindProperties {
+
+    // true: POST/PUT /person com "Prefer: respond-async" entram na fila e respondem 202
+    private boolean enabled = false;
+
+    // fila cheia: 503 com Retry-After em vez de segurar a requisicao
+    private int capacity = 10_000;
+
+    // escritas por lote do flusher; o que passar disso fica para o proximo lote
+    private int maxBatchSize = 500;
+
+    // journal local (uma linha JSON por escrita, com fsync antes do 202); vazio: fila so em memoria
+    private Path journal;
+
+    // por quanto tempo GET /person/writes/{ticket} ainda responde depois da escrita
+    private Duration statusRetention = Duration.ofMinutes(10);
+}
@@ -0,0 +1,28 @@
+package com.giordanni.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+/**
+ * O Spring Boot desliga o DataSource automatico quando existe um ConnectionFactory R2DBC. No perfil
+ * reactive as escritas continuam no JPA, entao o pool JDBC e declarado aqui com as mesmas propriedades
+ * ({@code spring.datasource.*}).
+ */
+@Configuration
+@Profile("reactive")
+@ConditionalOnProperty(prefix = "person.replica", name = "enabled", havingValue = "false", matchIfMissing = true)
+@EnableConfigurationProperties(DataSourceProperties.class)
+public class ReactiveDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource dataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+}
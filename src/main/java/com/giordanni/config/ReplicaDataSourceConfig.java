@@ -0,0 +1,96 @@
+package com.giordanni.config;
+
+import com.giordanni.datasource.ReadYourWritesFilter;
+import com.giordanni.datasource.ReplicaNode;
+import com.giordanni.datasource.ReplicaRoutingDataSource;
+import com.giordanni.datasource.WriteTrackingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Com {@code person.replica.enabled=true}: transacoes {@code readOnly} (findById, findAll, page, search...)
+ * leem das replicas e as demais vao ao primario ({@code spring.datasource}).
+ * <p>
+ * O {@link LazyConnectionDataSourceProxy} so abre a conexao fisica no primeiro comando, quando o flag
+ * read-only da transacao ja foi aplicado, e por isso consegue escolher o DataSource certo.
+ * O read-your-writes vale por cliente: o {@link ReadYourWritesFilter} guarda a ultima escrita num cookie.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "person.replica", name = "enabled", havingValue = "true")
+public class ReplicaDataSourceConfig {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "close")
+    ReplicaRoutingDataSource replicaDataSource(HikariDataSource primaryDataSource, PersonReplicaProperties properties) {
+        List<ReplicaNode> replicas = new ArrayList<>();
+        for (int i = 0; i < properties.getNodes().size(); i++) {
+            PersonReplicaProperties.Node node = properties.getNodes().get(i);
+            HikariDataSource replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(node.getUrl());
+            replica.setUsername(node.getUsername());
+            replica.setPassword(node.getPassword());
+            replica.setMaximumPoolSize(node.getMaximumPoolSize());
+            replica.setConnectionTimeout(node.getConnectionTimeout().toMillis());
+            replica.setReadOnly(true);
+            // mesmo cache de prepared statements e deteccao de vazamento do primario (spring.datasource.hikari)
+            replica.setDataSourceProperties(primaryDataSource.getDataSourceProperties());
+            replica.setLeakDetectionThreshold(primaryDataSource.getLeakDetectionThreshold());
+            // replica fora do ar na subida nao impede o start: fica marcada como indisponivel
+            replica.setInitializationFailTimeout(-1);
+            replicas.add(new ReplicaNode(replica.getPoolName(), replica));
+        }
+        return new ReplicaRoutingDataSource(primaryDataSource, replicas, properties, Clock.systemUTC());
+    }
+
+    @Bean
+    @Primary
+    DataSource dataSource(HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+        LazyConnectionDataSourceProxy dataSource =
+                new LazyConnectionDataSourceProxy(new WriteTrackingDataSource(primaryDataSource, replicaDataSource));
+        dataSource.setReadOnlyDataSource(replicaDataSource);
+        return dataSource;
+    }
+
+    @Bean
+    @Profile("!reactive")
+    FilterRegistrationBean<ReadYourWritesFilter> readYourWritesFilter(ReplicaRoutingDataSource replicaDataSource) {
+        FilterRegistrationBean<ReadYourWritesFilter> registration =
+                new FilterRegistrationBean<>(new ReadYourWritesFilter(replicaDataSource));
+        registration.addUrlPatterns("/person", "/person/*");
+        return registration;
+    }
+
+    @Bean
+    MeterBinder replicaMetrics(ReplicaRoutingDataSource replicaDataSource) {
+        return registry -> replicaDataSource.getReplicas().forEach(replica -> {
+            Gauge.builder("person.replica.healthy", replica, node -> node.isHealthy() ? 1 : 0)
+                    .tag("replica", replica.getName())
+                    .register(registry);
+            Gauge.builder("person.replica.lag", replica, node -> node.getLag().toMillis() / 1000.0)
+                    .tag("replica", replica.getName())
+                    .baseUnit("seconds")
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,42 @@
+package com.giordanni.config;
+
+import com.giordanni.datasource.SlowQueryDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import javax.sql.DataSource;
+
+/**
+ * Envolve o DataSource principal ({@code dataSource}: o Hikari do Spring Boot, o do perfil reactive ou o
+ * proxy de {@link ReplicaDataSourceConfig}) no {@link SlowQueryDataSource}, cobrindo primario e replicas.
+ * <p>
+ * BeanPostProcessor e criado antes dos demais beans: as propriedades sao lidas direto do Environment
+ * e o MeterRegistry so e buscado no primeiro comando lento.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "person.slow-query", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SlowQueryConfig {
+
+    @Bean
+    static BeanPostProcessor slowQueryDataSourcePostProcessor(Environment environment,
+                                                              ObjectProvider<MeterRegistry> meterRegistry) {
+        PersonSlowQueryProperties properties = Binder.get(environment)
+                .bindOrCreate("person.slow-query", PersonSlowQueryProperties.class);
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if ("dataSource".equals(beanName) && bean instanceof DataSource dataSource) {
+                    return new SlowQueryDataSource(dataSource, properties.getThreshold(),
+                            properties.getCallerPackage(), meterRegistry::getObject);
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -0,0 +1,23 @@
+package com.giordanni.config;
+
+import com.giordanni.index.HashPersonIndex;
+import com.giordanni.purge.PersonPurgeJob;
+import com.giordanni.writebehind.PersonWriteBehindQueue;
+import org.springframework.boot.LazyInitializationExcludeFilter;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Com {@code spring.main.lazy-initialization=true} (perfil prod) continuam sendo criados na subida os beans
+ * que ninguem injeta numa requisicao: a purga agendada, o replay do journal do write-behind e a carga do
+ * indice em memoria. O {@code PersonChangeFeed} sobe junto com o PersonController, na primeira requisicao.
+ */
+@Configuration
+public class StartupConfig {
+
+    @Bean
+    static LazyInitializationExcludeFilter eagerBackgroundBeans() {
+        return LazyInitializationExcludeFilter.forBeanTypes(PersonPurgeJob.class, PersonWriteBehindQueue.class,
+                HashPersonIndex.class);
+    }
+}
@@ -0,0 +1,45 @@
+package com.giordanni.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+import org.springframework.util.MimeType;
+
+/**
+ * Smile ({@code application/x-jackson-smile}), o JSON binario do Jackson, para chamadas entre servicos.
+ * Numa lista de Person os nomes de campo repetidos viram back-references, entao o corpo fica com
+ * cerca de metade do tamanho do JSON (ver PersonWireFormatBenchmark).
+ * <p>
+ * MVC e WebFlux ja registram Smile quando a lib esta no classpath, mas com um ObjectMapper padrao;
+ * aqui os dois usam o {@link Jackson2ObjectMapperBuilder} do Spring Boot, como o conversor JSON.
+ */
+@Configuration
+public class WireFormatConfig {
+
+    private static final MimeType SMILE = new MimeType("application", "x-jackson-smile");
+
+    @Bean
+    MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(smileMapper(builder));
+    }
+
+    // sem o MimeType explicito os codecs assumiriam application/json
+    @Bean
+    CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        ObjectMapper mapper = smileMapper(builder);
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(mapper, SMILE));
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(mapper, SMILE));
+        };
+    }
+
+    private static ObjectMapper smileMapper(Jackson2ObjectMapperBuilder builder) {
+        return builder.factory(new SmileFactory()).build();
+    }
+}
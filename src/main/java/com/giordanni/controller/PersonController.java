@@ -1,55 +1,356 @@
 package com.giordanni.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.giordanni.changes.PersonChangeFeed;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.DeleteResult;
+import com.giordanni.dto.PersonChangePage;
+import com.giordanni.dto.PersonPage;
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.dto.PersonSearchCriteria;
+import com.giordanni.dto.WriteStatus;
+import com.giordanni.exception.ChangeCursorExpiredException;
+import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.exception.WriteQueueFullException;
+import com.giordanni.export.PersonExportFormat;
+import com.giordanni.export.PersonExporter;
 import com.giordanni.model.Person;
+import com.giordanni.service.PersonBatchService;
 import com.giordanni.service.PersonService;
+import com.giordanni.writebehind.PersonWriteBehindQueue;
+import jakarta.servlet.http.HttpServletResponse;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.web.SortDefault;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.HttpStatusCode;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.DeferredResult;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
+// no perfil reactive o mesmo contrato e servido pelo ReactivePersonRouter;
+// JSON por padrao, Smile (WireFormatConfig) quando o cliente pede application/x-jackson-smile
 @RestController
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping("/person")
 public class PersonController {
 
+    public static final String MERGE_PATCH_JSON_VALUE = "application/merge-patch+json";
+    public static final String JACKSON_SMILE_VALUE = "application/x-jackson-smile";
+    public static final MediaType JACKSON_SMILE = MediaType.valueOf(JACKSON_SMILE_VALUE);
+    static final String PREFER = "Prefer";
+    static final String PREFERENCE_APPLIED = "Preference-Applied";
+    static final String RESPOND_ASYNC = "respond-async";
+
     private final PersonService service;
+    private final PersonBatchService batchService;
+    private final ObjectMapper objectMapper;
+    private final PersonChangeFeed changeFeed;
+    private final PersonExporter exporter;
+    // so existe com person.write-behind.enabled=true
+    private final ObjectProvider<PersonWriteBehindQueue> writeBehind;
+
+    // o ETag e calculado antes de ler as linhas: uma escrita no meio so deixa o ETag mais velho que o
+    // corpo, e o cliente busca de novo na proxima vez. No 304 a lista nem e carregada.
+    // Com ?fields= (PersonProjection) a lista vem como DTOs, so com as colunas pedidas
+    @GetMapping(path = "/all", produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<List<?>> findAll(@RequestParam(value = "fields", required = false) String fields,
+                                           @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                           WebRequest request, HttpServletResponse response){
+        PersonProjection projection;
+        try {
+            projection = projectionOf(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        // no 304 tambem: JSON, Smile e NDJSON saem da mesma URL
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String eTag = PersonETags.of(service.collectionVersion(), projection, PersonETags.representationOf(accept));
+        if(request.checkNotModified(eTag)){
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(eTag)
+                .body(projection == null ? service.findAllPerson() : service.findAll(projection));
+    }
+
+    @GetMapping(path = "/all", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAll(@RequestParam(value = "fields", required = false) String fields,
+                                                           WebRequest request, HttpServletResponse response){
+        PersonProjection projection;
+        try {
+            projection = projectionOf(fields);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        String eTag = PersonETags.of(service.collectionVersion(), projection, MediaType.APPLICATION_NDJSON);
+        if(request.checkNotModified(eTag)){
+            return null;
+        }
+        ObjectWriter writer = objectMapper.writerFor(projection == null ? Person.class : projection.type())
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        StreamingResponseBody body = out -> {
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.setRootValueSeparator(null);
+                Consumer<Object> line = value -> {
+                    try {
+                        writer.writeValue(generator, value);
+                        generator.writeRaw('\n');
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+                if(projection == null){
+                    service.streamAllPerson(line::accept);
+                } else {
+                    service.streamAll(projection, line);
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .eTag(eTag)
+                .body(body);
+    }
+
+    // extracao para analytics: faixas de id lidas em paralelo (PersonExporter); para retomar, after=<ultimo id recebido>
+    @GetMapping(path = "/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "csv") String format,
+                                                        @RequestParam(value = "gzip", defaultValue = "false") boolean gzip,
+                                                        @RequestParam(value = "after", defaultValue = "0") long after,
+                                                        @RequestParam(value = "until", required = false) Long until){
+        PersonExportFormat exportFormat;
+        try {
+            exportFormat = PersonExportFormat.of(format);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        PersonExporter.Export export = exporter.tryStart();
+        if(export == null){
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(exportFormat.mediaType());
+        if(gzip){
+            response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+        }
+        return response.body(out -> {
+            try (export) {
+                export.write(exportFormat, gzip, after, until, out);
+            }
+        });
+    }
+
+    @GetMapping(path = "/page", produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<PersonPage> findPage(
+            @RequestParam(value = "after", required = false) Long after,
+            @RequestParam(value = "size", defaultValue = "" + PersonService.DEFAULT_PAGE_SIZE) int size){
+        try {
+            return ResponseEntity.ok(service.findPage(after, size));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    // delta para quem sincroniza com /person/all: sem since devolve so o cursor atual; com wait > 0 e nada
+    // novo a requisicao fica pendurada (sem prender thread do Tomcat) ate o relay publicar um evento
+    @GetMapping(path = "/changes", produces = MediaType.APPLICATION_JSON_VALUE)
+    public DeferredResult<ResponseEntity<PersonChangePage>> changes(
+            @RequestParam(value = "since", required = false) Long since,
+            @RequestParam(value = "limit", defaultValue = "" + PersonService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "wait", defaultValue = "0") int wait){
+        DeferredResult<ResponseEntity<PersonChangePage>> result = new DeferredResult<>();
+        PersonChangePage page;
+        try {
+            if(wait < 0){
+                throw new IllegalArgumentException("Wait must not be negative.");
+            }
+            page = changeFeed.read(since, limit);
+        } catch (IllegalArgumentException e) {
+            result.setResult(ResponseEntity.badRequest().build());
+            return result;
+        } catch (ChangeCursorExpiredException e) {
+            result.setResult(ResponseEntity.status(HttpStatus.GONE).build());
+            return result;
+        }
+        if(since == null || wait == 0 || !page.content().isEmpty()){
+            result.setResult(ResponseEntity.ok(page));
+            return result;
+        }
+
+        Duration timeout = Duration.ofSeconds(wait);
+        if(timeout.compareTo(changeFeed.maxWait()) > 0){
+            timeout = changeFeed.maxWait();
+        }
+        DeferredResult<ResponseEntity<PersonChangePage>> longPoll = new DeferredResult<>(timeout.toMillis(), ResponseEntity.ok(page));
+        Runnable cancel = changeFeed.await(page.nextCursor(), () -> {
+            try {
+                longPoll.setResult(ResponseEntity.ok(changeFeed.read(page.nextCursor(), limit)));
+            } catch (RuntimeException e) {
+                longPoll.setErrorResult(e);
+            }
+        });
+        longPoll.onCompletion(cancel);
+        return longPoll;
+    }
 
-    @GetMapping(path = "/all", produces = MediaType.APPLICATION_JSON_VALUE)
-    public List<Person> findAll(){
-        return service.findAllPerson();
+    // GET /person?ids=1,2,3: uma pagina do agregador numa requisicao e numa consulta IN (so os ids fora do cache)
+    @GetMapping(params = "ids", produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<List<Person>> findAllById(@RequestParam("ids") List<Long> ids){
+        try {
+            return ResponseEntity.ok(service.findAllById(new LinkedHashSet<>(ids)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        } catch (QueryTimeoutException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        }
     }
 
-    @GetMapping(value = "/{id}", produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Person> findById(@PathVariable("id") Long id){
+    // com If-None-Match igual ao ETag o Spring responde 304 sem serializar o corpo
+    @GetMapping(value = "/{id}", produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<Person> findById(@PathVariable("id") Long id,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
         try {
-            return ResponseEntity.ok(service.findById(id));
-        } catch (Exception e) {
+            Person person = service.findById(id);
+            return ok(person, accept);
+        } catch (QueryTimeoutException e) {
+            // a carga compartilhada (mesmo id ou lote do PersonIdLoader) nao terminou a tempo
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").build();
+        } catch (ResourceNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
-    @PostMapping(consumes = MediaType.APPLICATION_JSON_VALUE, produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Person> createPerson(@RequestBody Person person){
+    @PostMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<?> createPerson(@RequestBody Person person,
+            @RequestHeader(value = PREFER, required = false) String prefer,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept){
+       PersonWriteBehindQueue queue = writeBehind.getIfAvailable();
+       if(queue != null && respondAsync(prefer)){
+          return accepted(() -> queue.submitCreate(person));
+       }
        try{
           Person createdPerson = service.createPerson(person);
-          return ResponseEntity.status(HttpStatus.CREATED).body(createdPerson);
+          return ResponseEntity.status(HttpStatus.CREATED)
+                  .eTag(PersonETags.of(createdPerson, PersonETags.representationOf(accept)))
+                  .varyBy(HttpHeaders.ACCEPT)
+                  .body(createdPerson);
        } catch (IllegalArgumentException e){
           return ResponseEntity.badRequest().build();
        }
     }
 
-    @PutMapping(consumes = MediaType.APPLICATION_JSON_VALUE,
-            produces = MediaType.APPLICATION_JSON_VALUE)
-    public ResponseEntity<Person> update(@RequestBody Person person) {
+    @GetMapping(path = "/search", produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<List<?>> search(
+            @RequestParam(value = "firstName", required = false) String firstName,
+            @RequestParam(value = "lastName", required = false) String lastName,
+            @RequestParam(value = "gender", required = false) String gender,
+            @RequestParam(value = "emailDomain", required = false) String emailDomain,
+            @RequestParam(value = "limit", defaultValue = "" + PersonService.DEFAULT_PAGE_SIZE) int limit,
+            @RequestParam(value = "fields", required = false) String fields,
+            @SortDefault(sort = "id") Sort sort){
+        try {
+            PersonSearchCriteria criteria = new PersonSearchCriteria(firstName, lastName, gender, emailDomain);
+            PersonProjection projection = projectionOf(fields);
+            return ResponseEntity.ok(projection == null
+                    ? service.search(criteria, sort, limit)
+                    : service.search(criteria, sort, limit, projection));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PostMapping(path = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<BatchResult> createPeople(@RequestBody List<Person> people){
+        try {
+            return ResponseEntity.ok(batchService.createPeople(people));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PutMapping(consumes = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<?> update(@RequestBody Person person,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = PREFER, required = false) String prefer,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        // If-Match sobrescreve a versao do corpo; um ETag que nao e nosso nunca casa
+        boolean conditional = ifMatch != null && !PersonETags.isWildcard(ifMatch);
+        if(conditional){
+            Long version = PersonETags.versionOf(ifMatch);
+            if(version == null){
+                return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+            }
+            person.setVersion(version);
+        }
+        PersonWriteBehindQueue queue = writeBehind.getIfAvailable();
+        if(queue != null && respondAsync(prefer)){
+            // a versao (corpo ou If-Match) e conferida so na gravacao: conflito vira status FAILED
+            return accepted(() -> queue.submitUpdate(person));
+        }
+        try {
+            Person updatedPerson = service.updatePerson(person);
+            return ok(updatedPerson, accept);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(conditional ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build();
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @PatchMapping(value = "/{id}",
+            consumes = {MERGE_PATCH_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE},
+            produces = {MediaType.APPLICATION_JSON_VALUE, JACKSON_SMILE_VALUE})
+    public ResponseEntity<Person> patch(@PathVariable("id") Long id, @RequestBody JsonNode patch,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         try {
-            return ResponseEntity.ok(service.updatePerson(person));
-        } catch (Exception e) {
+            Person patchedPerson = service.patchPerson(id, patch);
+            return ok(patchedPerson, accept);
+        } catch (ResourceNotFoundException e) {
+            return ResponseEntity.notFound().build();
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping(value = "/writes/{ticket}", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<WriteStatus> writeStatus(@PathVariable("ticket") String ticket) {
+        PersonWriteBehindQueue queue = writeBehind.getIfAvailable();
+        if(queue == null){
             return ResponseEntity.notFound().build();
         }
+        return ResponseEntity.of(queue.status(ticket));
     }
 
     @DeleteMapping(value = "/{id}")
@@ -58,5 +359,54 @@ public class PersonController {
         return ResponseEntity.noContent().build();
     }
 
+    // DELETE /person?ids=1,2,3: um UPDATE so para todos; ids inexistentes ou ja apagados nao contam
+    @DeleteMapping(params = "ids", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<DeleteResult> deletePeople(@RequestParam("ids") List<Long> ids) {
+        try {
+            return ResponseEntity.ok(new DeleteResult(service.deletePeople(new LinkedHashSet<>(ids))));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    private static PersonProjection projectionOf(String fields){
+        return fields == null ? null : PersonProjection.of(fields);
+    }
+
+    // RFC 7240: o cliente escolhe o write-behind por requisicao; sem o header o contrato sincrono continua igual
+    private static boolean respondAsync(String prefer){
+        return prefer != null && Arrays.stream(prefer.split(","))
+                .map(String::trim)
+                .anyMatch(RESPOND_ASYNC::equalsIgnoreCase);
+    }
+
+    private static ResponseEntity<WriteStatus> accepted(Supplier<WriteStatus> submit){
+        try {
+            WriteStatus status = submit.get();
+            URI location = ServletUriComponentsBuilder.fromCurrentContextPath()
+                    .path("/person/writes/{ticket}")
+                    .buildAndExpand(status.ticket())
+                    .toUri();
+            return ResponseEntity.accepted()
+                    .location(location)
+                    .header(PREFERENCE_APPLIED, RESPOND_ASYNC)
+                    .body(status);
+        } catch (WriteQueueFullException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
 
+
+    // o ETag de uma pessoa depende da representacao negociada (JSON ou Smile)
+    private static ResponseEntity<Person> ok(Person person, String accept){
+        return ResponseEntity.ok()
+                .eTag(PersonETags.of(person, PersonETags.representationOf(accept)))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(person);
+    }
 }
@@ -0,0 +1,80 @@
+package com.giordanni.controller;
+
+import com.giordanni.dto.PersonCollectionVersion;
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.model.Person;
+import org.springframework.http.MediaType;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ETags fortes de Person, compartilhados pelo {@link PersonController} e pelo {@link ReactivePersonHandler}.
+ * <p>
+ * O ETag de uma pessoa e a propria {@code @Version}: o 304 sai sem serializar o corpo e o
+ * {@code If-Match} do PUT vira o lock otimista. O de {@code /person/all} vem do outbox {@code person_change},
+ * sem agregar a tabela. JSON, Smile e NDJSON sao bytes diferentes: cada um tem o seu sufixo (o JSON fica sem)
+ * e as respostas levam {@code Vary: Accept}.
+ */
+final class PersonETags {
+
+    private static final Pattern VERSION = Pattern.compile("\"(\\d{1,18})(?:-smile)?\"");
+
+    private PersonETags() {
+    }
+
+    static String of(Person person, MediaType representation) {
+        return "\"" + person.getVersion() + suffix(representation) + "\"";
+    }
+
+    // cada ?fields= e outra representacao da mesma colecao: o ETag forte precisa ser outro
+    static String of(PersonCollectionVersion version, PersonProjection projection, MediaType representation) {
+        String eTag = version.settledChange() + "-" + version.lastChange();
+        if (projection != null) {
+            eTag += "-" + projection.name().toLowerCase(Locale.ROOT);
+        }
+        return "\"" + eTag + suffix(representation) + "\"";
+    }
+
+    // JSON por padrao; Smile quando o Accept pede application/x-jackson-smile com qualidade >= a do JSON,
+    // como o produces = {JSON, Smile} do PersonController
+    static MediaType representationOf(List<MediaType> accept) {
+        double smile = quality(accept, PersonController.JACKSON_SMILE);
+        return smile > 0 && smile >= quality(accept, MediaType.APPLICATION_JSON)
+                ? PersonController.JACKSON_SMILE : MediaType.APPLICATION_JSON;
+    }
+
+    static MediaType representationOf(String accept) {
+        return representationOf(accept == null ? List.of() : MediaType.parseMediaTypes(accept));
+    }
+
+    static boolean isWildcard(String ifMatch) {
+        return "*".equals(ifMatch.trim());
+    }
+
+    // versao de um If-Match com um unico ETag forte gerado por of(Person, ...); null se nao for um ETag nosso
+    static Long versionOf(String ifMatch) {
+        Matcher matcher = VERSION.matcher(ifMatch.trim());
+        return matcher.matches() ? Long.valueOf(matcher.group(1)) : null;
+    }
+
+    private static String suffix(MediaType representation) {
+        if (PersonController.JACKSON_SMILE.equalsTypeAndSubtype(representation)) {
+            return "-smile";
+        }
+        if (MediaType.APPLICATION_NDJSON.equalsTypeAndSubtype(representation)) {
+            return "-ndjson";
+        }
+        return "";
+    }
+
+    private static double quality(List<MediaType> accept, MediaType mediaType) {
+        return accept.stream()
+                .filter(mediaType::equalsTypeAndSubtype)
+                .mapToDouble(MediaType::getQualityValue)
+                .max()
+                .orElse(0);
+    }
+}
@@ -0,0 +1,190 @@
+package com.giordanni.controller;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.PersonPage;
+import com.giordanni.dto.PersonSearchCriteria;
+import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.model.Person;
+import com.giordanni.service.PersonService;
+import com.giordanni.service.ReactivePersonService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Mono;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Handlers WebFlux com o mesmo contrato do {@link PersonController} (status e corpo).
+ */
+@Component
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactivePersonHandler {
+
+    private static final ParameterizedTypeReference<List<Person>> PERSON_LIST = new ParameterizedTypeReference<>() {};
+
+    private final ReactivePersonService service;
+
+    public Mono<ServerResponse> findAll(ServerRequest request){
+        MediaType contentType = responseType(request);
+        return withCollectionETag(request, contentType, eTag -> {
+            ServerResponse.BodyBuilder response = ServerResponse.ok().contentType(contentType).eTag(eTag)
+                    .varyBy(HttpHeaders.ACCEPT);
+            // o encoder Jackson junta um Flux com '[' e ',' em texto, o que so vale para JSON:
+            // em Smile a lista e escrita como um valor unico
+            return MediaType.APPLICATION_JSON.equals(contentType)
+                    ? response.body(service.findAllPerson(), Person.class)
+                    : service.findAllPerson().collectList().flatMap(response::bodyValue);
+        });
+    }
+
+    public Mono<ServerResponse> streamAll(ServerRequest request){
+        return withCollectionETag(request, MediaType.APPLICATION_NDJSON, eTag -> ServerResponse.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .eTag(eTag)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(service.findAllPerson(), Person.class));
+    }
+
+    // mesmo ETag de colecao do PersonController: no 304 o Flux de linhas nem e assinado
+    private Mono<ServerResponse> withCollectionETag(ServerRequest request, MediaType representation,
+                                                    Function<String, Mono<ServerResponse>> response){
+        return service.collectionVersion()
+                .map(version -> PersonETags.of(version, null, representation))
+                .flatMap(eTag -> request.checkNotModified(eTag)
+                        .switchIfEmpty(Mono.defer(() -> response.apply(eTag))));
+    }
+
+    public Mono<ServerResponse> findPage(ServerRequest request){
+        return Mono.fromCallable(() -> intParam(request, "size"))
+                .flatMap(size -> service.findPage(request.queryParam("after").map(Long::valueOf).orElse(null), size))
+                .flatMap(page -> ServerResponse.ok().contentType(responseType(request)).bodyValue(page))
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> search(ServerRequest request){
+        return Mono.fromCallable(() -> {
+                    PersonSearchCriteria criteria = new PersonSearchCriteria(
+                            request.queryParam("firstName").orElse(null),
+                            request.queryParam("lastName").orElse(null),
+                            request.queryParam("gender").orElse(null),
+                            request.queryParam("emailDomain").orElse(null));
+                    return service.search(criteria, sort(request), intParam(request, "limit"));
+                })
+                // a validacao de sort/limit acontece na assinatura: collectList antes de escolher o status
+                .flatMap(people -> people.collectList())
+                .flatMap(people -> ServerResponse.ok().contentType(responseType(request)).bodyValue(people))
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> findById(ServerRequest request){
+        return Mono.fromCallable(() -> Long.valueOf(request.pathVariable("id")))
+                .flatMap(service::findById)
+                .flatMap(person -> request.checkNotModified(PersonETags.of(person, responseType(request)))
+                        .switchIfEmpty(Mono.defer(() -> ok(request, person))))
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> createPerson(ServerRequest request){
+        return request.bodyToMono(Person.class)
+                .flatMap(service::createPerson)
+                .flatMap(person -> ServerResponse.status(HttpStatus.CREATED).contentType(responseType(request))
+                        .eTag(PersonETags.of(person, responseType(request))).varyBy(HttpHeaders.ACCEPT).bodyValue(person))
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> createPeople(ServerRequest request){
+        return request.bodyToMono(PERSON_LIST)
+                .flatMap(service::createPeople)
+                .flatMap((BatchResult result) -> ServerResponse.ok().contentType(responseType(request)).bodyValue(result))
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> update(ServerRequest request){
+        String ifMatch = request.headers().firstHeader(HttpHeaders.IF_MATCH);
+        boolean conditional = ifMatch != null && !PersonETags.isWildcard(ifMatch);
+        Long version = conditional ? PersonETags.versionOf(ifMatch) : null;
+        if(conditional && version == null){
+            return ServerResponse.status(HttpStatus.PRECONDITION_FAILED).build();
+        }
+        return request.bodyToMono(Person.class)
+                .doOnNext(person -> {
+                    if(conditional){
+                        person.setVersion(version);
+                    }
+                })
+                .flatMap(service::updatePerson)
+                .flatMap(person -> ok(request, person))
+                .onErrorResume(OptimisticLockingFailureException.class, e -> ServerResponse.status(
+                        conditional ? HttpStatus.PRECONDITION_FAILED : HttpStatus.CONFLICT).build())
+                // 404 so para pessoa inexistente; email de outra pessoa e 400, falha do banco segue como 5xx
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> patch(ServerRequest request){
+        Long id = Long.valueOf(request.pathVariable("id"));
+        return request.bodyToMono(JsonNode.class)
+                .flatMap(patch -> service.patchPerson(id, patch))
+                .flatMap(person -> ok(request, person))
+                .onErrorResume(ReactivePersonHandler::toErrorResponse);
+    }
+
+    public Mono<ServerResponse> delete(ServerRequest request){
+        return service.deletePerson(Long.valueOf(request.pathVariable("id")))
+                .then(ServerResponse.noContent().build());
+    }
+
+    private static Mono<ServerResponse> ok(ServerRequest request, Person person){
+        MediaType contentType = responseType(request);
+        return ServerResponse.ok().contentType(contentType).eTag(PersonETags.of(person, contentType))
+                .varyBy(HttpHeaders.ACCEPT).bodyValue(person);
+    }
+
+    private static MediaType responseType(ServerRequest request){
+        return PersonETags.representationOf(request.headers().accept());
+    }
+
+    private static int intParam(ServerRequest request, String name){
+        return request.queryParam(name).map(Integer::parseInt).orElse(PersonService.DEFAULT_PAGE_SIZE);
+    }
+
+    // sort=campo[,asc|desc], repetivel; padrao "id", como o @SortDefault do controller
+    private static Sort sort(ServerRequest request){
+        List<String> params = request.queryParams().getOrDefault("sort", List.of());
+        if(params.isEmpty()){
+            return Sort.by("id");
+        }
+        List<Sort.Order> orders = new ArrayList<>();
+        for(String param : params){
+            String[] parts = param.split(",");
+            Sort.Direction direction = parts.length > 1 ? Sort.Direction.fromString(parts[1]) : Sort.Direction.ASC;
+            orders.add(new Sort.Order(direction, parts[0]));
+        }
+        return Sort.by(orders);
+    }
+
+    private static Mono<ServerResponse> toErrorResponse(Throwable e){
+        if(e instanceof ResourceNotFoundException){
+            return ServerResponse.notFound().build();
+        }
+        if(e instanceof OptimisticLockingFailureException){
+            return ServerResponse.status(HttpStatus.CONFLICT).build();
+        }
+        if(e instanceof IllegalArgumentException){
+            return ServerResponse.badRequest().build();
+        }
+        return Mono.error(e);
+    }
+}
@@ -0,0 +1,40 @@
+package com.giordanni.controller;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import static org.springframework.web.reactive.function.server.RequestPredicates.accept;
+import static org.springframework.web.reactive.function.server.RequestPredicates.contentType;
+import static org.springframework.web.reactive.function.server.RouterFunctions.route;
+
+@Configuration
+@Profile("reactive")
+public class ReactivePersonRouter {
+
+    // com o Tomcat tambem no classpath (starter-web) o Spring Boot escolheria o Tomcat; o event loop e do Netty
+    @Bean
+    NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+
+    @Bean
+    RouterFunction<ServerResponse> personRoutes(ReactivePersonHandler handler) {
+        return route()
+                .GET("/person/all", accept(MediaType.APPLICATION_NDJSON), handler::streamAll)
+                .GET("/person/all", handler::findAll)
+                .GET("/person/page", handler::findPage)
+                .GET("/person/search", handler::search)
+                .GET("/person/{id}", handler::findById)
+                .POST("/person/batch", contentType(MediaType.APPLICATION_JSON, PersonController.JACKSON_SMILE), handler::createPeople)
+                .POST("/person", contentType(MediaType.APPLICATION_JSON, PersonController.JACKSON_SMILE), handler::createPerson)
+                .PUT("/person", contentType(MediaType.APPLICATION_JSON, PersonController.JACKSON_SMILE), handler::update)
+                .PATCH("/person/{id}", contentType(MediaType.valueOf(PersonController.MERGE_PATCH_JSON_VALUE), MediaType.APPLICATION_JSON), handler::patch)
+                .DELETE("/person/{id}", handler::delete)
+                .build();
+    }
+}
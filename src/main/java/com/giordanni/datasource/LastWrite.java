@@ -0,0 +1,46 @@
+package com.giordanni.datasource;
+
+/**
+ * Momento da ultima escrita de quem esta chamando, para o read-your-writes valer por cliente e nao pelo
+ * processo: a escrita de um cliente nao manda as leituras dos outros para o primario.
+ * <p>
+ * O {@link ReadYourWritesFilter} liga uma instancia a thread da requisicao (lida do cookie, vinda de qualquer
+ * no) e o {@link WriteTrackingDataSource} a atualiza. Sem instancia ligada (jobs, write-behind, streams em
+ * outra thread) nao ha cliente a proteger: a escrita nao prende ninguem e a leitura vai as replicas.
+ */
+public final class LastWrite {
+
+    public static final long NONE = Long.MIN_VALUE;
+
+    private static final ThreadLocal<LastWrite> CURRENT = new ThreadLocal<>();
+
+    private volatile long millis;
+
+    public LastWrite(long millis) {
+        this.millis = millis;
+    }
+
+    public static LastWrite current() {
+        return CURRENT.get();
+    }
+
+    public static void bind(LastWrite lastWrite) {
+        CURRENT.set(lastWrite);
+    }
+
+    public static void unbind() {
+        CURRENT.remove();
+    }
+
+    public long millis() {
+        return millis;
+    }
+
+    public boolean isPresent() {
+        return millis != NONE;
+    }
+
+    void mark(long millis) {
+        this.millis = Math.max(this.millis, millis);
+    }
+}
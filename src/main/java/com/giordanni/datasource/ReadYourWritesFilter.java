@@ -0,0 +1,130 @@
+package com.giordanni.datasource;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Leva o {@link LastWrite} de uma requisicao para a proxima do mesmo cliente, em qualquer no: o momento da
+ * ultima escrita vai e volta no cookie {@value #COOKIE}. Quando a requisicao escreve, o cookie sai atualizado
+ * assim que a resposta comeca a ser escrita, ja depois do commit.
+ * <p>
+ * O valor e do relogio do servidor (os nos precisam de NTP) e um valor no futuro vale como agora: o cliente
+ * nao consegue se prender ao primario alem da janela.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    public static final String COOKIE = "person-last-write";
+
+    private final ReplicaRoutingDataSource router;
+
+    public ReadYourWritesFilter(ReplicaRoutingDataSource router) {
+        this.router = router;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        long received = lastWriteOf(request);
+        LastWrite lastWrite = new LastWrite(received);
+        CookieResponse cookieResponse = new CookieResponse(response, lastWrite, received);
+        LastWrite.bind(lastWrite);
+        try {
+            chain.doFilter(request, cookieResponse);
+        } finally {
+            LastWrite.unbind();
+            cookieResponse.writeCookie();
+        }
+    }
+
+    private long lastWriteOf(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return LastWrite.NONE;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE.equals(cookie.getName())) {
+                try {
+                    return Math.min(Long.parseLong(cookie.getValue()), router.getClock().millis());
+                } catch (NumberFormatException e) {
+                    return LastWrite.NONE;
+                }
+            }
+        }
+        return LastWrite.NONE;
+    }
+
+    // o Set-Cookie so pode ir antes do primeiro byte do corpo
+    private class CookieResponse extends HttpServletResponseWrapper {
+
+        private final LastWrite lastWrite;
+        private final long received;
+        private boolean written;
+
+        CookieResponse(HttpServletResponse response, LastWrite lastWrite, long received) {
+            super(response);
+            this.lastWrite = lastWrite;
+            this.received = received;
+        }
+
+        void writeCookie() {
+            if (written || lastWrite.millis() == received || isCommitted()) {
+                return;
+            }
+            written = true;
+            addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE, Long.toString(lastWrite.millis()))
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .maxAge(router.stickiness())
+                    .build()
+                    .toString());
+        }
+
+        @Override
+        public ServletOutputStream getOutputStream() throws IOException {
+            writeCookie();
+            return super.getOutputStream();
+        }
+
+        @Override
+        public PrintWriter getWriter() throws IOException {
+            writeCookie();
+            return super.getWriter();
+        }
+
+        @Override
+        public void flushBuffer() throws IOException {
+            writeCookie();
+            super.flushBuffer();
+        }
+
+        @Override
+        public void sendError(int sc) throws IOException {
+            writeCookie();
+            super.sendError(sc);
+        }
+
+        @Override
+        public void sendError(int sc, String msg) throws IOException {
+            writeCookie();
+            super.sendError(sc, msg);
+        }
+
+        @Override
+        public void sendRedirect(String location) throws IOException {
+            writeCookie();
+            super.sendRedirect(location);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.giordanni.datasource;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+/**
+ * Uma replica de leitura e o ultimo estado observado pela verificacao de saude.
+ */
+public class ReplicaNode {
+
+    private final String name;
+    private final DataSource dataSource;
+    private volatile boolean healthy = true;
+    private volatile Duration lag = Duration.ZERO;
+
+    public ReplicaNode(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    public boolean isHealthy() {
+        return healthy;
+    }
+
+    public Duration getLag() {
+        return lag;
+    }
+
+    void markUp(Duration lag) {
+        this.lag = lag;
+        this.healthy = true;
+    }
+
+    void markDown() {
+        this.healthy = false;
+    }
+}
@@ -0,0 +1,171 @@
+package com.giordanni.datasource;
+
+import com.giordanni.config.PersonReplicaProperties;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lado de leitura do roteamento: entrega conexoes das replicas em rodizio e cai para o primario quando
+ * <ul>
+ *     <li>o cliente atual ({@link LastWrite}) escreveu ha menos de {@code sticky-window} (ou do atraso da
+ *     replica, o que for maior), para enxergar o que acabou de gravar; escritas de outros clientes nao contam;</li>
+ *     <li>a replica esta atrasada mais que {@code max-lag};</li>
+ *     <li>a replica falhou na ultima verificacao ou ao abrir a conexao.</li>
+ * </ul>
+ * Usado como read-only DataSource do {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy},
+ * que so chama este DataSource para transacoes {@code readOnly}.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+    private final DataSource primary;
+    private final List<ReplicaNode> replicas;
+    private final PersonReplicaProperties properties;
+    private final Clock clock;
+    private final AtomicInteger next = new AtomicInteger();
+    private ScheduledExecutorService healthCheck;
+
+    public ReplicaRoutingDataSource(DataSource primary, List<ReplicaNode> replicas,
+                                    PersonReplicaProperties properties, Clock clock) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.properties = properties;
+        this.clock = clock;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ReplicaNode replica = replicas.get((start + i) % size);
+            if (!isEligible(replica)) {
+                continue;
+            }
+            try {
+                return replica.getDataSource().getConnection();
+            } catch (SQLException e) {
+                // failover imediato; a verificacao periodica devolve a replica ao rodizio
+                replica.markDown();
+            }
+        }
+        return primary.getConnection();
+    }
+
+    // leitura longa em varias conexoes (export): todas da mesma replica, escolhida agora, ou todas do primario
+    public DataSource pin() {
+        int size = replicas.size();
+        int start = Math.floorMod(next.getAndIncrement(), Math.max(size, 1));
+        for (int i = 0; i < size; i++) {
+            ReplicaNode replica = replicas.get((start + i) % size);
+            if (isEligible(replica)) {
+                return replica.getDataSource();
+            }
+        }
+        return primary;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+
+    // so o cliente da requisicao atual fica preso ao primario
+    public void markWrite() {
+        LastWrite caller = LastWrite.current();
+        if (caller != null) {
+            caller.mark(clock.millis());
+        }
+    }
+
+    public Clock getClock() {
+        return clock;
+    }
+
+    // tempo que o cookie do read-your-writes precisa durar: replica mais atrasada que max-lag ja sai do rodizio
+    public Duration stickiness() {
+        Duration window = properties.getStickyWindow();
+        return window.compareTo(properties.getMaxLag()) > 0 ? window : properties.getMaxLag();
+    }
+
+    public List<ReplicaNode> getReplicas() {
+        return replicas;
+    }
+
+    public void checkHealth() {
+        for (ReplicaNode replica : replicas) {
+            try (Connection connection = replica.getDataSource().getConnection()) {
+                Duration lag = measureLag(connection);
+                if (lag == null) {
+                    replica.markDown();
+                } else {
+                    replica.markUp(lag);
+                }
+            } catch (SQLException e) {
+                replica.markDown();
+            }
+        }
+    }
+
+    public void start() {
+        long interval = properties.getHealthCheckInterval().toMillis();
+        healthCheck = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("replica-health").daemon().factory());
+        healthCheck.scheduleWithFixedDelay(this::checkHealth, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void close() {
+        if (healthCheck != null) {
+            healthCheck.shutdownNow();
+        }
+        for (ReplicaNode replica : replicas) {
+            if (replica.getDataSource() instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception ignored) {
+                    // desligando: nada a fazer com a falha de uma replica
+                }
+            }
+        }
+    }
+
+    private boolean isEligible(ReplicaNode replica) {
+        if (!replica.isHealthy() || replica.getLag().compareTo(properties.getMaxLag()) > 0) {
+            return false;
+        }
+        LastWrite caller = LastWrite.current();
+        if (caller == null || !caller.isPresent()) {
+            return true;
+        }
+        long lastWrite = caller.millis();
+        long sticky = Math.max(properties.getStickyWindow().toMillis(), replica.getLag().toMillis());
+        return clock.millis() - lastWrite >= sticky;
+    }
+
+    // null: replicacao parada (atraso desconhecido)
+    private Duration measureLag(Connection connection) throws SQLException {
+        String lagQuery = properties.getLagQuery();
+        if (lagQuery == null || lagQuery.isBlank()) {
+            return connection.isValid(1) ? Duration.ZERO : null;
+        }
+        try (Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery(lagQuery)) {
+            if (!resultSet.next()) {
+                return null;
+            }
+            double seconds = resultSet.getDouble(1);
+            return resultSet.wasNull() ? null : Duration.ofMillis(Math.round(seconds * 1000));
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.giordanni.datasource;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Mede cada {@code execute*} dos statements abertos pelas conexoes deste DataSource. O que passar de
+ * {@code threshold} e logado em WARN com o SQL e o metodo que o disparou (o primeiro frame da pilha em
+ * {@code callerPackage}, ex. {@code PersonService.findById}) e entra no timer {@code person.db.slow.queries}.
+ * <p>
+ * So o comando e medido: as linhas buscadas depois pelo ResultSet (streaming com cursor) nao entram.
+ * A pilha so e percorrida quando o comando ja passou do limite.
+ */
+@Slf4j
+public class SlowQueryDataSource extends DelegatingDataSource implements AutoCloseable {
+
+    static final String UNKNOWN_CALLER = "unknown";
+
+    private final long thresholdNanos;
+    private final String callerPackage;
+    private final Supplier<MeterRegistry> meterRegistry;
+
+    public SlowQueryDataSource(DataSource target, Duration threshold, String callerPackage,
+                               Supplier<MeterRegistry> meterRegistry) {
+        super(target);
+        this.thresholdNanos = threshold.toNanos();
+        this.callerPackage = callerPackage;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return wrap(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(super.getConnection(username, password));
+    }
+
+    // o bean original (HikariDataSource) e substituido por este: o close do contexto precisa chegar ao pool
+    @Override
+    public void close() throws Exception {
+        if (getTargetDataSource() instanceof AutoCloseable closeable) {
+            closeable.close();
+        }
+    }
+
+    private Connection wrap(Connection connection) {
+        return proxy(Connection.class, connection, (proxy, method, args) -> {
+            Object result = invoke(connection, method, args);
+            if (result instanceof Statement statement) {
+                String sql = method.getName().startsWith("prepare") ? (String) args[0] : null;
+                return wrap(statement, sql);
+            }
+            return result;
+        });
+    }
+
+    private Statement wrap(Statement statement, String preparedSql) {
+        Class<? extends Statement> type = statement instanceof CallableStatement ? CallableStatement.class
+                : statement instanceof PreparedStatement ? PreparedStatement.class
+                : Statement.class;
+        return proxy(type, statement, (proxy, method, args) -> {
+            if (!method.getName().startsWith("execute")) {
+                return invoke(statement, method, args);
+            }
+            long start = System.nanoTime();
+            try {
+                return invoke(statement, method, args);
+            } finally {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed >= thresholdNanos) {
+                    String sql = args != null && args.length > 0 && args[0] instanceof String text ? text : preparedSql;
+                    record(sql, elapsed);
+                }
+            }
+        });
+    }
+
+    private void record(String sql, long elapsedNanos) {
+        String caller = caller();
+        log.warn("Slow query ({} ms) in {}: {}", TimeUnit.NANOSECONDS.toMillis(elapsedNanos), caller, sql);
+        Timer.builder("person.db.slow.queries")
+                .description("Comandos JDBC acima de person.slow-query.threshold, por metodo de origem")
+                .tag("caller", caller)
+                .register(meterRegistry.get())
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+    }
+
+    // ignora os proxies CGLIB/JDK do Spring: o nome que interessa e o da classe do servico
+    private String caller() {
+        return StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE).walk(frames -> frames
+                .filter(frame -> frame.getClassName().startsWith(callerPackage))
+                .filter(frame -> !frame.getClassName().contains("$$"))
+                .filter(frame -> !frame.getDeclaringClass().equals(SlowQueryDataSource.class))
+                .map(frame -> simpleName(frame.getClassName()) + "." + frame.getMethodName())
+                .findFirst()
+                .orElse(UNKNOWN_CALLER));
+    }
+
+    private static String simpleName(String className) {
+        return className.substring(className.lastIndexOf('.') + 1);
+    }
+
+    private static <T> T proxy(Class<T> type, Object target, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(SlowQueryDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.giordanni.datasource;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Lado de escrita: toda conexao read-write vem do primario e registra a escrita do cliente atual
+ * ({@link LastWrite}), no momento em que e aberta e de novo ao fim da transacao (o commit pode demorar mais
+ * que a janela).
+ */
+public class WriteTrackingDataSource extends DelegatingDataSource {
+
+    private final ReplicaRoutingDataSource router;
+
+    public WriteTrackingDataSource(DataSource primary, ReplicaRoutingDataSource router) {
+        super(primary);
+        this.router = router;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = super.getConnection();
+        trackWrite();
+        return connection;
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        Connection connection = super.getConnection(username, password);
+        trackWrite();
+        return connection;
+    }
+
+    private void trackWrite() {
+        router.markWrite();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    router.markWrite();
+                }
+            });
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.giordanni.dto;
+
+import java.util.List;
+
+public record BatchResult(int created, int failed, List<BatchRowResult> rows) {
+
+    public static BatchResult of(List<BatchRowResult> rows) {
+        int created = (int) rows.stream()
+                .filter(row -> row.status() == BatchRowResult.Status.CREATED)
+                .count();
+        return new BatchResult(created, rows.size() - created, rows);
+    }
+}
@@ -0,0 +1,17 @@
+package com.giordanni.dto;
+
+public record BatchRowResult(int index, String email, Status status, Long id, String error) {
+
+    public enum Status {
+        CREATED,
+        FAILED
+    }
+
+    public static BatchRowResult created(int index, String email, Long id) {
+        return new BatchRowResult(index, email, Status.CREATED, id, null);
+    }
+
+    public static BatchRowResult failed(int index, String email, String error) {
+        return new BatchRowResult(index, email, Status.FAILED, null, error);
+    }
+}
@@ -0,0 +1,5 @@
+package com.giordanni.dto;
+
+// resposta de DELETE /person?ids=: quantas pessoas foram de fato apagadas
+public record DeleteResult(int deleted) {
+}
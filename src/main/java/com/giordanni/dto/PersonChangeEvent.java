@@ -0,0 +1,10 @@
+package com.giordanni.dto;
+
+import com.giordanni.model.Person;
+import com.giordanni.model.PersonChange;
+
+import java.time.Instant;
+
+// person e o estado atual da linha (null depois do DELETED): o consumidor aplica um upsert ou um delete
+public record PersonChangeEvent(Long id, PersonChange.Type type, Long personId, Long version, Instant occurredAt, Person person) {
+}
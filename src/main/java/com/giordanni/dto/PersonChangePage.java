@@ -0,0 +1,6 @@
+package com.giordanni.dto;
+
+import java.util.List;
+
+public record PersonChangePage(List<PersonChangeEvent> content, Long nextCursor) {
+}
@@ -0,0 +1,7 @@
+package com.giordanni.dto;
+
+// toda escrita grava um evento no outbox person_change (PK crescente). lastChange muda no commit; settledChange
+// e o cursor do relay, que so passa de um id quando todos os anteriores ja commitaram: um commit fora de ordem,
+// invisivel no MAX(id), ainda muda o ETag dentro do settle
+public record PersonCollectionVersion(long settledChange, long lastChange) {
+}
@@ -0,0 +1,5 @@
+package com.giordanni.dto;
+
+// ?fields=email
+public record PersonEmail(Long id, String email) {
+}
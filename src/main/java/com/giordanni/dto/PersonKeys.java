@@ -0,0 +1,5 @@
+package com.giordanni.dto;
+
+// colunas de busca do HashPersonIndex, sem carregar a entidade
+public record PersonKeys(Long id, String email, String firstName, String lastName) {
+}
@@ -0,0 +1,5 @@
+package com.giordanni.dto;
+
+// ?fields=firstName,lastName
+public record PersonName(Long id, String firstName, String lastName) {
+}
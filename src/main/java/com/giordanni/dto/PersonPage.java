@@ -0,0 +1,8 @@
+package com.giordanni.dto;
+
+import com.giordanni.model.Person;
+
+import java.util.List;
+
+public record PersonPage(List<Person> content, Long nextCursor) {
+}
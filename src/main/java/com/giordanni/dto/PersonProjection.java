@@ -0,0 +1,49 @@
+package com.giordanni.dto;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Conjuntos de campos aceitos no {@code ?fields=} de /person/all e /person/search. Cada um vira um
+ * SELECT so com essas colunas montando o DTO direto (constructor expression): sem entidade gerenciada,
+ * sem snapshot para dirty checking e sem as colunas que o cliente nao pediu. O id sempre vem.
+ */
+public enum PersonProjection {
+
+    NAME(PersonName.class, List.of("id", "firstName", "lastName")),
+    EMAIL(PersonEmail.class, List.of("id", "email"));
+
+    private final Class<?> type;
+    // na ordem dos parametros do construtor do DTO
+    private final List<String> attributes;
+
+    PersonProjection(Class<?> type, List<String> attributes) {
+        this.type = type;
+        this.attributes = attributes;
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public List<String> attributes() {
+        return attributes;
+    }
+
+    // "firstName,lastName" ou "id,lastName,firstName" -> NAME; a ordem nao importa
+    public static PersonProjection of(String fields) {
+        Set<String> requested = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toSet());
+        requested.add("id");
+        for (PersonProjection projection : values()) {
+            if (requested.equals(Set.copyOf(projection.attributes))) {
+                return projection;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported fields " + fields + ".");
+    }
+}
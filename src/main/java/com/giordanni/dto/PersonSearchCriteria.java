@@ -0,0 +1,4 @@
+package com.giordanni.dto;
+
+public record PersonSearchCriteria(String firstName, String lastName, String gender, String emailDomain) {
+}
@@ -0,0 +1,22 @@
+package com.giordanni.dto;
+
+public record WriteStatus(String ticket, Status status, Long personId, String error) {
+
+    public enum Status {
+        PENDING,
+        DONE,
+        FAILED
+    }
+
+    public static WriteStatus pending(String ticket) {
+        return new WriteStatus(ticket, Status.PENDING, null, null);
+    }
+
+    public static WriteStatus done(String ticket, Long personId) {
+        return new WriteStatus(ticket, Status.DONE, personId, null);
+    }
+
+    public static WriteStatus failed(String ticket, String error) {
+        return new WriteStatus(ticket, Status.FAILED, null, error);
+    }
+}
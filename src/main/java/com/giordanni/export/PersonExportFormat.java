@@ -0,0 +1,29 @@
+package com.giordanni.export;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum PersonExportFormat {
+
+    CSV(MediaType.parseMediaType("text/csv;charset=UTF-8")),
+    NDJSON(MediaType.APPLICATION_NDJSON);
+
+    private final MediaType mediaType;
+
+    PersonExportFormat(MediaType mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    public MediaType mediaType() {
+        return mediaType;
+    }
+
+    public static PersonExportFormat of(String format) {
+        try {
+            return valueOf(format.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown export format: " + format);
+        }
+    }
+}
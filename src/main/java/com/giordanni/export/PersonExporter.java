@@ -0,0 +1,267 @@
+package com.giordanni.export;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.giordanni.config.PersonExportProperties;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.sql.DataSource;
+
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * GET /person/export: a tabela e dividida em faixas de id, lidas em paralelo por um pool limitado
+ * ({@code person.export.parallelism}, uma conexao por faixa) com JDBC puro, sem entidade nem persistence context.
+ * Cada faixa vira um bloco de bytes pronto (CSV ou NDJSON, e ja comprimido quando gzip) na thread que a leu;
+ * a thread da requisicao so copia os blocos para a resposta, na ordem dos ids.
+ * <p>
+ * Com gzip cada faixa e um membro gzip separado: membros concatenados formam um stream gzip valido
+ * (RFC 1952), entao a compressao tambem roda em paralelo. A saida segue a ordem dos ids, e o ultimo id recebido
+ * serve de cursor ({@code after}) para retomar um export interrompido.
+ * <p>
+ * Nao e um snapshot: cada faixa e um SELECT proprio, em autocommit. Todas as faixas de um export leem da mesma
+ * fonte (uma replica escolhida no inicio, ou o primario), mas uma linha alterada durante o export sai com o valor
+ * do momento em que a sua faixa foi lida, e uma inserida numa faixa ja lida fica de fora. No maximo
+ * {@code max-concurrent} exports rodam ao mesmo tempo; {@link #tryStart()} recusa os demais.
+ */
+public class PersonExporter implements AutoCloseable {
+
+    static final String[] COLUMNS = {"id", "firstName", "lastName", "address", "gender", "email", "version"};
+
+    // SQL nativo: filtra a mao as linhas apagadas (o @SQLRestriction so vale para JPA)
+    private static final String MAX_ID_SQL = "SELECT MAX(id) FROM person WHERE deleted_at IS NULL";
+    private static final String RANGE_SQL = "SELECT id, first_name, last_name, address, gender, email, version "
+            + "FROM person WHERE id > ? AND id <= ? AND deleted_at IS NULL ORDER BY id";
+
+    private final Supplier<DataSource> sources;
+    private final JsonFactory jsonFactory;
+    private final PersonExportProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final ExecutorService executor;
+    private final Semaphore running;
+
+    public PersonExporter(Supplier<DataSource> sources, JsonFactory jsonFactory, PersonExportProperties properties,
+                          MeterRegistry meterRegistry) {
+        this.sources = sources;
+        this.jsonFactory = jsonFactory;
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.executor = Executors.newFixedThreadPool(properties.getParallelism(),
+                Thread.ofPlatform().name("person-export-", 0).daemon().factory());
+        this.running = new Semaphore(properties.getMaxConcurrent());
+    }
+
+    /**
+     * Reserva uma vaga e fixa a fonte do export; null quando ja ha {@code max-concurrent} exports rodando
+     * (em vez de enfileirar faixas atras das dos outros). A vaga volta no {@link Export#close()}.
+     */
+    public Export tryStart() {
+        if (!running.tryAcquire()) {
+            meterRegistry.counter("person.export.rejected").increment();
+            return null;
+        }
+        try {
+            return new Export(new JdbcTemplate(sources.get()));
+        } catch (RuntimeException e) {
+            running.release();
+            throw e;
+        }
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public class Export implements AutoCloseable {
+
+        private final JdbcTemplate jdbcTemplate;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Export(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        /**
+         * Escreve as pessoas com {@code after < id <= until} ({@code until} nulo: ate o fim da tabela).
+         * No maximo {@code 2 * parallelism} faixas ficam prontas ou sendo lidas a frente da que esta sendo escrita.
+         * O cabecalho CSV so sai no comeco do export, nao ao retomar com {@code after}.
+         */
+        public void write(PersonExportFormat format, boolean gzip, long after, Long until, OutputStream out)
+                throws IOException {
+            Long maxId = jdbcTemplate.queryForObject(MAX_ID_SQL, Long.class);
+            long end = maxId == null ? after : (until == null ? maxId : Math.min(until, maxId));
+
+            boolean written = false;
+            if (format == PersonExportFormat.CSV && after <= 0) {
+                out.write(encode(gzip, writer -> writer.write(String.join(",", COLUMNS) + "\n")));
+                written = true;
+            }
+
+            Deque<Future<byte[]>> window = new ArrayDeque<>();
+            long next = after;
+            try {
+                while (next < end || !window.isEmpty()) {
+                    while (next < end && window.size() < 2 * properties.getParallelism()) {
+                        long from = next;
+                        long to = Math.min(end, next + properties.getRangeSize());
+                        window.addLast(executor.submit(() -> range(jdbcTemplate, format, gzip, from, to)));
+                        next = to;
+                    }
+                    byte[] chunk = await(window.removeFirst());
+                    if (chunk.length > 0) {
+                        out.write(chunk);
+                        written = true;
+                    }
+                }
+                // corpo vazio nao e um gzip valido
+                if (gzip && !written) {
+                    out.write(encode(true, writer -> { }));
+                }
+                out.flush();
+            } finally {
+                // cliente desconectou ou uma faixa falhou: as faixas pendentes nao precisam mais ser lidas
+                window.forEach(future -> future.cancel(true));
+            }
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                running.release();
+            }
+        }
+    }
+
+    private byte[] range(JdbcTemplate jdbcTemplate, PersonExportFormat format, boolean gzip, long from, long to) {
+        int[] rows = {0};
+        byte[] chunk = encode(gzip, writer -> {
+            RowWriter row = format == PersonExportFormat.CSV ? csv(writer) : ndjson(writer);
+            jdbcTemplate.query(RANGE_SQL, (RowCallbackHandler) rs -> {
+                try {
+                    row.write(rs);
+                    rows[0]++;
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, from, to);
+            row.finish();
+        });
+        meterRegistry.counter("person.export.rows", "format", format.name().toLowerCase(Locale.ROOT)).increment(rows[0]);
+        return rows[0] == 0 ? new byte[0] : chunk;
+    }
+
+    private byte[] encode(boolean gzip, Body body) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+        try (OutputStream target = gzip ? new GZIPOutputStream(buffer, 8192) : buffer;
+             Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8), 8192)) {
+            body.write(writer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static RowWriter csv(Writer writer) {
+        return new RowWriter() {
+            @Override
+            public void write(ResultSet rs) throws SQLException, IOException {
+                writer.write(Long.toString(rs.getLong(1)));
+                for (int column = 2; column <= 6; column++) {
+                    writer.write(',');
+                    writer.write(csvField(rs.getString(column)));
+                }
+                writer.write(',');
+                writer.write(Long.toString(rs.getLong(7)));
+                writer.write('\n');
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
+    }
+
+    private RowWriter ndjson(Writer writer) throws IOException {
+        JsonGenerator generator = jsonFactory.createGenerator(writer);
+        generator.setRootValueSeparator(null);
+        return new RowWriter() {
+            @Override
+            public void write(ResultSet rs) throws SQLException, IOException {
+                generator.writeStartObject();
+                generator.writeNumberField(COLUMNS[0], rs.getLong(1));
+                for (int column = 2; column <= 6; column++) {
+                    generator.writeStringField(COLUMNS[column - 1], rs.getString(column));
+                }
+                generator.writeNumberField(COLUMNS[6], rs.getLong(7));
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+            }
+
+            @Override
+            public void finish() throws IOException {
+                generator.flush();
+            }
+        };
+    }
+
+    // RFC 4180: aspas so quando o valor tem separador, aspas ou quebra de linha
+    static String csvField(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Export interrupted", e);
+        } catch (CancellationException e) {
+            throw new IOException("Export cancelled", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private interface Body {
+        void write(Writer writer) throws IOException;
+    }
+
+    private interface RowWriter {
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        void finish() throws IOException;
+    }
+}
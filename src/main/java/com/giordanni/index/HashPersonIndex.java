@@ -0,0 +1,172 @@
+package com.giordanni.index;
+
+import com.giordanni.config.PersonIndexProperties;
+import com.giordanni.dto.PersonKeys;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+/**
+ * {@link PersonIndex} em quatro {@link LongLongMultimap}: email e nome viram uma impressao digital de
+ * 64 bits (as strings nao ficam em memoria) que aponta para os ids, e cada id aponta de volta para as
+ * suas impressoes, para o update e o delete removerem as chaves antigas.
+ * <p>
+ * Colisao de impressao digital ou entrada desatualizada por escrita de outra instancia so custam a
+ * conferencia na entidade: o chamador descarta o id que nao bate e vai ao SQL.
+ */
+@Slf4j
+public class HashPersonIndex implements PersonIndex {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final PersonRepository repository;
+    private final TransactionTemplate readOnlyTransaction;
+    private final int maxEntries;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean fullReported = new AtomicBoolean();
+    private final LongLongMultimap idsByEmail = new LongLongMultimap();
+    private final LongLongMultimap idsByName = new LongLongMultimap();
+    private final LongLongMultimap emailById = new LongLongMultimap();
+    private final LongLongMultimap nameById = new LongLongMultimap();
+
+    public HashPersonIndex(PersonRepository repository, TransactionTemplate readOnlyTransaction,
+                           PersonIndexProperties properties) {
+        this.repository = repository;
+        this.readOnlyTransaction = readOnlyTransaction;
+        this.maxEntries = properties.getMaxEntries();
+    }
+
+    // carga inicial: so as quatro colunas, em streaming
+    public void start() {
+        long start = System.nanoTime();
+        readOnlyTransaction.executeWithoutResult(status -> {
+            try (Stream<PersonKeys> keys = repository.streamKeys()) {
+                keys.forEach(key -> add(key.id(), key.email(), key.firstName(), key.lastName()));
+            }
+        });
+        log.info("Person index loaded {} people ({} KB) in {} ms", size(), memoryBytes() / 1024,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+    }
+
+    @Override
+    public long[] idsByEmail(String email) {
+        long key = emailKey(email);
+        lock.readLock().lock();
+        try {
+            return idsByEmail.getAll(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long[] idsByName(String firstName, String lastName) {
+        long key = nameKey(firstName, lastName);
+        lock.readLock().lock();
+        try {
+            return idsByName.getAll(key);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void put(Person person) {
+        if (person.getId() != null) {
+            add(person.getId(), person.getEmail(), person.getFirstName(), person.getLastName());
+        }
+    }
+
+    @Override
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            removeKeys(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return emailById.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long memoryBytes() {
+        lock.readLock().lock();
+        try {
+            return idsByEmail.memoryBytes() + idsByName.memoryBytes() + emailById.memoryBytes() + nameById.memoryBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(long id, String email, String firstName, String lastName) {
+        long emailKey = emailKey(email);
+        long nameKey = nameKey(firstName, lastName);
+        lock.writeLock().lock();
+        try {
+            removeKeys(id);
+            if (emailById.size() >= maxEntries) {
+                if (fullReported.compareAndSet(false, true)) {
+                    log.warn("Person index is full ({} people): new people are looked up in the database", maxEntries);
+                }
+                return;
+            }
+            idsByEmail.put(emailKey, id);
+            idsByName.put(nameKey, id);
+            emailById.put(id, emailKey);
+            nameById.put(id, nameKey);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void removeKeys(long id) {
+        long emailKey = emailById.get(id);
+        if (emailKey == 0) {
+            return;
+        }
+        long nameKey = nameById.get(id);
+        idsByEmail.remove(emailKey, id);
+        idsByName.remove(nameKey, id);
+        emailById.remove(id, emailKey);
+        nameById.remove(id, nameKey);
+    }
+
+    static long emailKey(String email) {
+        return fingerprint(hash(FNV_OFFSET, email));
+    }
+
+    // o separador impede que ("ab", "c") e ("a", "bc") tenham a mesma chave
+    static long nameKey(String firstName, String lastName) {
+        return fingerprint(hash((hash(FNV_OFFSET, firstName) ^ 0xFFFF) * FNV_PRIME, lastName));
+    }
+
+    // FNV-1a de 64 bits sobre os chars
+    private static long hash(long hash, String value) {
+        if (value == null) {
+            return (hash ^ 0xFFFE) * FNV_PRIME;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            hash = (hash ^ value.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // 0 e a posicao vazia do LongLongMultimap
+    private static long fingerprint(long hash) {
+        return hash == 0 ? 1 : hash;
+    }
+}
@@ -0,0 +1,130 @@
+package com.giordanni.index;
+
+import java.util.Arrays;
+
+/**
+ * Multimapa long -> long com enderecamento aberto (sondagem linear) sobre dois {@code long[]}: sem boxing
+ * nem objeto por entrada, 16 bytes por posicao da tabela. A chave 0 marca posicao vazia e nao pode ser usada.
+ * <p>
+ * Nao e thread-safe: o {@link HashPersonIndex} serializa as escritas.
+ */
+final class LongLongMultimap {
+
+    private static final double MAX_LOAD = 0.75;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] keys;
+    private long[] values;
+    private int mask;
+    private int size;
+
+    LongLongMultimap() {
+        allocate(MIN_CAPACITY);
+    }
+
+    void put(long key, long value) {
+        if (size + 1 > keys.length * MAX_LOAD) {
+            resize(keys.length * 2);
+        }
+        insert(key, value);
+        size++;
+    }
+
+    // primeiro valor da chave, ou 0
+    long get(long key) {
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return 0;
+    }
+
+    // todos os valores da chave, em ordem crescente
+    long[] getAll(long key) {
+        long[] found = null;
+        int count = 0;
+        for (int i = slot(key); keys[i] != 0; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                if (found == null) {
+                    found = new long[2];
+                } else if (count == found.length) {
+                    found = Arrays.copyOf(found, count * 2);
+                }
+                found[count++] = values[i];
+            }
+        }
+        if (found == null) {
+            return new long[0];
+        }
+        long[] result = count == found.length ? found : Arrays.copyOf(found, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    boolean remove(long key, long value) {
+        int hole = slot(key);
+        while (keys[hole] != key || values[hole] != value) {
+            if (keys[hole] == 0) {
+                return false;
+            }
+            hole = (hole + 1) & mask;
+        }
+        // backward shift: puxa para o buraco as entradas cuja sondagem passa por ele, sem lapides
+        for (int i = (hole + 1) & mask; keys[i] != 0; i = (i + 1) & mask) {
+            if (((i - slot(keys[i])) & mask) >= ((i - hole) & mask)) {
+                keys[hole] = keys[i];
+                values[hole] = values[i];
+                hole = i;
+            }
+        }
+        keys[hole] = 0;
+        values[hole] = 0;
+        size--;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    long memoryBytes() {
+        return (long) keys.length * Long.BYTES * 2;
+    }
+
+    private void insert(long key, long value) {
+        int i = slot(key);
+        while (keys[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        values[i] = value;
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                insert(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    // ids sao sequenciais: o fmix64 do MurmurHash3 espalha os bits antes do mascaramento
+    private int slot(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+}
@@ -0,0 +1,39 @@
+package com.giordanni.index;
+
+import com.giordanni.model.Person;
+
+/**
+ * Indice em memoria de ids de Person por email e por (firstName, lastName). Nao e a fonte da verdade:
+ * um id encontrado ainda precisa ser conferido na entidade e a ausencia nao prova nada (cai no SQL).
+ */
+public interface PersonIndex {
+
+    PersonIndex NONE = new PersonIndex() {
+        @Override
+        public long[] idsByEmail(String email) {
+            return new long[0];
+        }
+
+        @Override
+        public long[] idsByName(String firstName, String lastName) {
+            return new long[0];
+        }
+
+        @Override
+        public void put(Person person) {
+        }
+
+        @Override
+        public void remove(Long id) {
+        }
+    };
+
+    long[] idsByEmail(String email);
+
+    long[] idsByName(String firstName, String lastName);
+
+    // insere ou atualiza as chaves da pessoa
+    void put(Person person);
+
+    void remove(Long id);
+}
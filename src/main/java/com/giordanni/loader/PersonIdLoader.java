@@ -0,0 +1,151 @@
+package com.giordanni.loader;
+
+import com.giordanni.config.PersonIdLoaderProperties;
+import com.giordanni.model.Person;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Loader de findById no estilo DataLoader: os pedidos que chegam dentro de {@code max-wait} (ou ate
+ * {@code max-batch-size} ids) viram uma consulta so, {@code SELECT ... WHERE id IN (...)}.
+ * <p>
+ * Uma thread junta os pedidos e cada lote roda numa virtual thread, para que uma consulta lenta nao segure
+ * a janela seguinte. Quem chama espera o resultado do seu lote por ate {@code timeout} (depois disso
+ * {@link QueryTimeoutException}, como a espera do PersonCache); um erro da consulta chega a todo o lote.
+ */
+public class PersonIdLoader implements AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+
+    private final PersonIdLoaderProperties properties;
+    private final Function<List<Long>, List<Person>> query;
+    private final BlockingQueue<Request> queue = new LinkedBlockingQueue<>();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final DistributionSummary batchSize;
+
+    private volatile boolean running;
+    private Thread dispatcher;
+
+    public PersonIdLoader(PersonIdLoaderProperties properties, Function<List<Long>, List<Person>> query,
+                          MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.query = query;
+        this.batchSize = DistributionSummary.builder("person.idloader.batch.size")
+                .description("Ids por consulta IN do PersonIdLoader")
+                .register(meterRegistry);
+    }
+
+    public Optional<Person> load(Long id) {
+        // parado (subida ou shutdown): consulta direta, sem esperar janela
+        if (!running) {
+            return query.apply(List.of(id)).stream().findFirst();
+        }
+        Request request = new Request(id, new CompletableFuture<>());
+        queue.add(request);
+        return Optional.ofNullable(await(request.result()));
+    }
+
+    public void start() {
+        running = true;
+        dispatcher = Thread.ofPlatform().name("person-id-loader").daemon().start(this::run);
+    }
+
+    // os pedidos ja na fila ainda sao atendidos antes de o contexto fechar o EntityManagerFactory
+    @Override
+    public void close() throws Exception {
+        running = false;
+        if (dispatcher != null) {
+            dispatcher.join();
+        }
+        // pedido que entrou na fila enquanto o dispatcher saia
+        List<Request> rest = new ArrayList<>();
+        queue.drainTo(rest);
+        if (!rest.isEmpty()) {
+            fetch(rest);
+        }
+        executor.close();
+    }
+
+    private void run() {
+        List<Request> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                Request first = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                collect(batch);
+                List<Request> dispatched = List.copyOf(batch);
+                executor.execute(() -> fetch(dispatched));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // janela contada a partir do primeiro pedido: um fluxo continuo nao adia o lote indefinidamente
+    private void collect(List<Request> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + properties.getMaxWait().toNanos();
+        while (batch.size() < properties.getMaxBatchSize()) {
+            long remaining = deadline - System.nanoTime();
+            Request next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    void fetch(List<Request> batch) {
+        try {
+            List<Long> ids = batch.stream().map(Request::id).distinct().toList();
+            batchSize.record(ids.size());
+            Map<Long, Person> found = query.apply(ids).stream()
+                    .collect(Collectors.toMap(Person::getId, Function.identity()));
+            batch.forEach(request -> request.result().complete(found.get(request.id())));
+        } catch (RuntimeException e) {
+            batch.forEach(request -> request.result().completeExceptionally(e));
+        }
+    }
+
+    private Person await(CompletableFuture<Person> future) {
+        Duration timeout = properties.getTimeout();
+        try {
+            return future.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new QueryTimeoutException("Batched load did not finish within " + timeout, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new QueryTimeoutException("Interrupted while waiting for batched load", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    record Request(Long id, CompletableFuture<Person> result) {
+    }
+}
@@ -1,24 +1,52 @@
 package com.giordanni.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
-import lombok.RequiredArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.SQLRestriction;
 
 import java.io.Serializable;
+import java.time.Instant;
+import java.util.Locale;
 
 @Entity
 @Data
-@Table(name = "person")
+@DynamicUpdate
+// cache de segundo nivel (HibernateCacheConfig): READ_WRITE trava a entrada durante a escrita, sem leitura suja
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = Person.CACHE_REGION)
+// soft delete: linhas com deleted_at ficam fora de toda consulta JPA/HQL (SQL nativo precisa filtrar a mao)
+@SQLRestriction("deleted_at IS NULL")
+// cada filtro de GET /person/search tem um indice cujo prefixo e a coluna filtrada (range scan)
+@Table(name = "person", uniqueConstraints = {
+        @UniqueConstraint(name = Person.EMAIL_UNIQUE_CONSTRAINT, columnNames = "email")
+}, indexes = {
+        @Index(name = "idx_person_first_name_last_name", columnList = "first_name, last_name"),
+        @Index(name = "idx_person_last_name_first_name", columnList = "last_name, first_name"),
+        @Index(name = "idx_person_gender_first_name", columnList = "gender, first_name"),
+        @Index(name = "idx_person_email_domain_email", columnList = "email_domain, email"),
+        @Index(name = "idx_person_deleted_at", columnList = "deleted_at")
+})
 @AllArgsConstructor
 @NoArgsConstructor
 public class Person implements Serializable {
 
     private static final long serialVersionUID = 1L;
 
+    public static final String EMAIL_UNIQUE_CONSTRAINT = "uk_person_email";
+    public static final String CACHE_REGION = "person";
+
+    // sequence com pooled optimizer: IDENTITY desliga o batch de inserts do Hibernate
+    // bancos existentes: semear com db/migration/001_person_seq.sql antes do deploy
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "person_seq")
+    @SequenceGenerator(name = "person_seq", sequenceName = "person_seq", allocationSize = 50)
     private Long id;
 
     @Column(name = "first_name", nullable = false)
@@ -36,6 +64,23 @@ public class Person implements Serializable {
     @Column(nullable = false, length = 100)
     private String email;
 
+    // derivado de email: "LIKE '%@dominio'" nao usa indice, "email_domain = ?" usa
+    // linhas antigas: backfill em db/migration/002_person_email_domain.sql
+    @JsonIgnore
+    @Column(name = "email_domain", length = 100)
+    private String emailDomain;
+
+    // lock otimista; default 0 para linhas que ja existiam antes da coluna
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
+    // preenchido pelo DELETE (um UPDATE so); o PersonPurgeJob apaga a linha de verdade depois
+    @JsonIgnore
+    @Column(name = "deleted_at")
+    private Instant deletedAt;
+
     public Person(String firstName, String lastName, String address, String gender, String email) {
         this.firstName = firstName;
         this.lastName = lastName;
@@ -43,4 +88,17 @@ public class Person implements Serializable {
         this.gender = gender;
         this.email = email;
     }
+
+    @PrePersist
+    @PreUpdate
+    void deriveEmailDomain() {
+        this.emailDomain = emailDomainOf(email);
+    }
+
+    public static String emailDomainOf(String email) {
+        if (email == null || email.indexOf('@') < 0) {
+            return null;
+        }
+        return email.substring(email.lastIndexOf('@') + 1).toLowerCase(Locale.ROOT);
+    }
 }
@@ -0,0 +1,45 @@
+package com.giordanni.model;
+
+import jakarta.persistence.*;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+
+// outbox: gravada na mesma transacao da escrita em person e lida por GET /person/changes
+@Entity
+@Data
+@Table(name = "person_change")
+@AllArgsConstructor
+@NoArgsConstructor
+public class PersonChange {
+
+    public enum Type {
+        CREATED,
+        UPDATED,
+        DELETED
+    }
+
+    // IDENTITY e nao sequence com pool: o id e o cursor dos consumidores e precisa crescer na ordem dos inserts
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "person_id", nullable = false)
+    private Long personId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 7)
+    private Type type;
+
+    // versao da linha depois da escrita (no DELETED, a ultima versao)
+    private Long version;
+
+    @Column(name = "occurred_at", nullable = false)
+    private Instant occurredAt;
+
+    public static PersonChange of(Type type, Person person) {
+        return new PersonChange(null, person.getId(), type, person.getVersion(), Instant.now());
+    }
+}
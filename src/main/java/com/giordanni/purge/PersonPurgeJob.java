@@ -0,0 +1,98 @@
+package com.giordanni.purge;
+
+import com.giordanni.config.PersonPurgeProperties;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.support.CronExpression;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Remove de verdade as pessoas apagadas por soft delete ha mais de {@code grace}, nos horarios do
+ * {@code cron}: le ate {@code batch-size} ids pelo indice de deleted_at e apaga so esses, lote a lote,
+ * com uma pausa entre eles e no maximo {@code max-duration} por execucao.
+ */
+@Slf4j
+public class PersonPurgeJob implements AutoCloseable {
+
+    private final PersonRepository repository;
+    private final PersonPurgeProperties properties;
+    private final CronExpression cron;
+    private final Counter purged;
+    private final Clock clock;
+    private ScheduledExecutorService scheduler;
+
+    public PersonPurgeJob(PersonRepository repository, PersonPurgeProperties properties,
+                          MeterRegistry meterRegistry, Clock clock) {
+        this.repository = repository;
+        this.properties = properties;
+        this.cron = CronExpression.parse(properties.getCron());
+        this.clock = clock;
+        this.purged = Counter.builder("person.purge.rows")
+                .description("Pessoas apagadas (soft delete) removidas da tabela pela purga")
+                .register(meterRegistry);
+    }
+
+    public void start() {
+        scheduler = Executors.newSingleThreadScheduledExecutor(Thread.ofPlatform().name("person-purge").daemon().factory());
+        scheduleNext();
+    }
+
+    @Override
+    public void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    private void scheduleNext() {
+        ZonedDateTime now = ZonedDateTime.now(clock);
+        ZonedDateTime next = cron.next(now);
+        if (next != null && !scheduler.isShutdown()) {
+            scheduler.schedule(this::run, Duration.between(now, next).toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void run() {
+        try {
+            purge();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (RuntimeException e) {
+            // banco fora do ar: tenta de novo no proximo horario. Logado: sem purga as linhas apagadas se acumulam
+            log.warn("Person purge failed, retrying at the next scheduled run", e);
+        }
+        scheduleNext();
+    }
+
+    // devolve quantas linhas foram removidas nesta execucao
+    long purge() throws InterruptedException {
+        Instant start = clock.instant();
+        Instant cutoff = start.minus(properties.getGrace());
+        Instant deadline = start.plus(properties.getMaxDuration());
+        long total = 0;
+        while (true) {
+            List<Long> ids = repository.findDeletedIdsBefore(cutoff, properties.getBatchSize());
+            if (ids.isEmpty()) {
+                return total;
+            }
+            int deleted = repository.purgeDeleted(ids);
+            purged.increment(deleted);
+            total += deleted;
+            if (ids.size() < properties.getBatchSize() || !clock.instant().isBefore(deadline)) {
+                return total;
+            }
+            Thread.sleep(properties.getPause().toMillis());
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.giordanni.ratelimit;
+
+import com.giordanni.config.PersonRateLimitProperties;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BooleanSupplier;
+import java.util.function.LongSupplier;
+
+/**
+ * Limite global de requisicoes em andamento, ajustado por AIMD como a janela do TCP: cada resposta
+ * dentro de {@code target-latency} soma {@code 1/limit} (cerca de +1 por "rodada" de requisicoes) e
+ * cada resposta lenta, ou com thread esperando conexao no Hikari, multiplica o limite por
+ * {@code backoff-ratio}. O excesso e recusado (503) antes de virar fila no pool.
+ * <p>
+ * Requisicoes caras so ocupam {@code expensive-share} do limite. Respostas em streaming devolvem a vaga
+ * sem amostra ({@link Permit#releaseUnmeasured()}): a duracao delas mede o cliente e o tamanho do corpo, nao o banco.
+ */
+public class AdaptiveConcurrencyLimit {
+
+    private final PersonRateLimitProperties.Concurrency properties;
+    private final BooleanSupplier poolCongested;
+    private final LongSupplier nanoTime;
+    private final long targetLatencyNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private double limit;
+    private int inFlight;
+
+    public AdaptiveConcurrencyLimit(PersonRateLimitProperties.Concurrency properties, BooleanSupplier poolCongested,
+                                    LongSupplier nanoTime) {
+        this.properties = properties;
+        this.poolCongested = poolCongested;
+        this.nanoTime = nanoTime;
+        this.targetLatencyNanos = properties.getTargetLatency().toNanos();
+        this.limit = properties.getInitialLimit();
+    }
+
+    // null quando o limite esta tomado
+    public Permit tryAcquire(boolean expensive) {
+        lock.lock();
+        try {
+            int allowed = expensive ? Math.max(1, (int) (limit * properties.getExpensiveShare())) : (int) limit;
+            if (inFlight >= allowed) {
+                return null;
+            }
+            inFlight++;
+            return new Permit(nanoTime.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int limit() {
+        return (int) limit;
+    }
+
+    public int inFlight() {
+        return inFlight;
+    }
+
+    private void release(long latencyNanos) {
+        boolean congested = latencyNanos > targetLatencyNanos || poolCongested.getAsBoolean();
+        lock.lock();
+        try {
+            // so cresce quando o limite esta sendo usado: folga sem carga nao prova nada
+            boolean saturated = inFlight >= limit / 2;
+            inFlight--;
+            if (congested) {
+                limit = Math.max(properties.getMinLimit(), limit * properties.getBackoffRatio());
+            } else if (saturated) {
+                limit = Math.min(properties.getMaxLimit(), limit + 1 / limit);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void free() {
+        lock.lock();
+        try {
+            inFlight--;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public class Permit {
+
+        private final long start;
+        private final AtomicBoolean released = new AtomicBoolean();
+
+        private Permit(long start) {
+            this.start = start;
+        }
+
+        // idempotente: o fim de uma requisicao async pode chegar por mais de um callback
+        public void release() {
+            if (released.compareAndSet(false, true)) {
+                AdaptiveConcurrencyLimit.this.release(nanoTime.getAsLong() - start);
+            }
+        }
+
+        // so libera a vaga, sem mexer no limite
+        public void releaseUnmeasured() {
+            if (released.compareAndSet(false, true)) {
+                free();
+            }
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.giordanni.ratelimit;
+
+import com.giordanni.config.PersonRateLimitProperties;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Protege o banco de um cliente descontrolado antes do controller:
+ * <ol>
+ *     <li>token bucket por cliente ({@code api-key-header} ou IP) e por custo do endpoint: estourou,
+ *     429 com {@code Retry-After};</li>
+ *     <li>{@link AdaptiveConcurrencyLimit} global: sem vaga, 503 com {@code Retry-After}, antes de a
+ *     requisicao entrar na fila do pool de conexoes.</li>
+ * </ol>
+ * O long-poll de /person/changes e o status do write-behind nao seguram conexao e ficam fora do limite
+ * de concorrencia; as respostas async (streaming) ocupam vaga mas nao ajustam o limite. Recusas vao para {@code person.ratelimit.rejected{reason, tier}}.
+ */
+public class PersonRateLimitFilter extends OncePerRequestFilter {
+
+    enum Tier {
+        CHEAP,
+        EXPENSIVE
+    }
+
+    private final PersonRateLimitProperties properties;
+    private final AdaptiveConcurrencyLimit concurrencyLimit;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+    private final Cache<String, TokenBucket> buckets;
+
+    public PersonRateLimitFilter(PersonRateLimitProperties properties, AdaptiveConcurrencyLimit concurrencyLimit,
+                                 MeterRegistry meterRegistry, LongSupplier nanoTime) {
+        this.properties = properties;
+        this.concurrencyLimit = concurrencyLimit;
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxClients())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+
+        Gauge.builder("person.concurrency.limit", concurrencyLimit, AdaptiveConcurrencyLimit::limit)
+                .description("Limite atual de requisicoes em andamento em /person")
+                .register(meterRegistry);
+        Gauge.builder("person.concurrency.inflight", concurrencyLimit, AdaptiveConcurrencyLimit::inFlight)
+                .description("Requisicoes em andamento em /person")
+                .register(meterRegistry);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return !path.equals("/person") && !path.startsWith("/person/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        Tier tier = tierOf(request.getMethod(), path);
+
+        long wait = buckets.get(clientOf(request) + "|" + tier, key -> bucketFor(tier)).tryConsume();
+        if (wait > 0) {
+            reject(response, HttpStatus.TOO_MANY_REQUESTS, TimeUnit.NANOSECONDS.toSeconds(wait - 1) + 1, "rate", tier);
+            return;
+        }
+        if (!holdsConnection(path)) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AdaptiveConcurrencyLimit.Permit permit = concurrencyLimit.tryAcquire(tier == Tier.EXPENSIVE);
+        if (permit == null) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, 1, "concurrency", tier);
+            return;
+        }
+        boolean async = false;
+        try {
+            chain.doFilter(request, response);
+            // streaming (NDJSON de /person/all, /person/export): a vaga so e devolvida quando a resposta termina,
+            // e sem amostra para o AIMD, que encolheria o limite a cada download longo
+            async = request.isAsyncStarted();
+            if (async) {
+                request.getAsyncContext().addListener(new ReleaseOnCompletion(permit));
+            }
+        } finally {
+            if (!async) {
+                permit.release();
+            }
+        }
+    }
+
+    static Tier tierOf(String method, String path) {
+        boolean expensive = path.equals("/person/all")
+                || path.equals("/person/search")
+                || path.equals("/person/page")
+                || path.equals("/person/batch")
+                || path.equals("/person/export")
+                || (path.equals("/person") && (HttpMethod.DELETE.matches(method) || HttpMethod.GET.matches(method)));
+        return expensive ? Tier.EXPENSIVE : Tier.CHEAP;
+    }
+
+    private static boolean holdsConnection(String path) {
+        return !path.equals("/person/changes") && !path.startsWith("/person/writes/");
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        String apiKey = request.getHeader(properties.getApiKeyHeader());
+        return apiKey != null && !apiKey.isBlank() ? "key:" + apiKey : "ip:" + request.getRemoteAddr();
+    }
+
+    private TokenBucket bucketFor(Tier tier) {
+        PersonRateLimitProperties.Budget budget = tier == Tier.EXPENSIVE ? properties.getExpensive() : properties.getCheap();
+        return new TokenBucket(budget.getCapacity(), budget.getRefillPerSecond(), nanoTime);
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, long retryAfterSeconds, String reason, Tier tier) {
+        meterRegistry.counter("person.ratelimit.rejected", "reason", reason, "tier", tier.name().toLowerCase(Locale.ROOT))
+                .increment();
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+    }
+
+    private record ReleaseOnCompletion(AdaptiveConcurrencyLimit.Permit permit) implements AsyncListener {
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.releaseUnmeasured();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+            permit.releaseUnmeasured();
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+            permit.releaseUnmeasured();
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package com.giordanni.repository;
+
+import com.giordanni.dto.PersonChangeEvent;
+import com.giordanni.model.PersonChange;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+
+public interface PersonChangeRepository extends JpaRepository<PersonChange, Long> {
+
+    // um INSERT ... SELECT por chunk de /person/batch, em vez de um INSERT por linha (IDENTITY nao faz batch)
+    @Modifying
+    @Query("INSERT INTO PersonChange (personId, type, version, occurredAt) "
+            + "SELECT p.id, com.giordanni.model.PersonChange.Type.CREATED, p.version, :occurredAt "
+            + "FROM Person p WHERE p.id IN :ids ORDER BY p.id")
+    int recordCreated(@Param("ids") Collection<Long> ids, @Param("occurredAt") Instant occurredAt);
+
+    // eventos DELETED das linhas que o PersonRepository.softDelete acabou de marcar com este deletedAt
+    // (SQL nativo: em HQL o @SQLRestriction de Person esconderia essas linhas)
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "person_change"))
+    @Query(value = "INSERT INTO person_change (person_id, type, version, occurred_at) "
+            + "SELECT p.id, 'DELETED', p.version, p.deleted_at "
+            + "FROM person p WHERE p.id IN :ids AND p.deleted_at = :deletedAt ORDER BY p.id", nativeQuery = true)
+    int recordDeleted(@Param("ids") Collection<Long> ids, @Param("deletedAt") Instant deletedAt);
+
+    // mudancas ja publicadas pelo relay junto com o estado atual da pessoa, numa consulta so
+    @Query("SELECT new com.giordanni.dto.PersonChangeEvent(c.id, c.type, c.personId, c.version, c.occurredAt, p) "
+            + "FROM PersonChange c LEFT JOIN Person p ON p.id = c.personId "
+            + "WHERE c.id > :since AND c.id <= :through ORDER BY c.id")
+    List<PersonChangeEvent> findEvents(@Param("since") Long since, @Param("through") Long through, Limit limit);
+
+    List<PersonChange> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @Query("SELECT MAX(c.id) FROM PersonChange c WHERE c.occurredAt <= :cutoff")
+    Long findLastIdOccurredBefore(@Param("cutoff") Instant cutoff);
+
+    @Query("SELECT MIN(c.id) FROM PersonChange c")
+    Long findFirstId();
+
+    // ETag de /person/all: ponta do indice da PK, sem agregar a tabela person
+    @Query("SELECT MAX(c.id) FROM PersonChange c")
+    Long findLastId();
+
+    // mantem a linha do cursor publicado: sem ela nao da para saber se um cursor antigo perdeu mudancas
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM PersonChange c WHERE c.occurredAt < :cutoff AND c.id < :through")
+    int purge(@Param("cutoff") Instant cutoff, @Param("through") Long through);
+}
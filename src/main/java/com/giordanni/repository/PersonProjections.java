@@ -0,0 +1,19 @@
+package com.giordanni.repository;
+
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.model.Person;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+// fragmento do PersonRepository: consultas que devolvem o DTO do PersonProjection em vez de Person
+public interface PersonProjections {
+
+    List<?> findAllProjected(PersonProjection projection);
+
+    Stream<?> streamAllProjected(PersonProjection projection);
+
+    List<?> searchProjected(Specification<Person> specification, Sort sort, int limit, PersonProjection projection);
+}
@@ -0,0 +1,69 @@
+package com.giordanni.repository;
+
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.model.Person;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
+
+// Criteria com constructor expression: os mesmos Specification e Sort do search de entidades, mas o
+// SELECT so traz as colunas do DTO (o @SQLRestriction do soft delete continua valendo)
+@Transactional(readOnly = true)
+@RequiredArgsConstructor
+class PersonProjectionsImpl implements PersonProjections {
+
+    private final EntityManager entityManager;
+
+    @Override
+    public List<?> findAllProjected(PersonProjection projection) {
+        return query(null, Sort.by("id"), projection.type(), projection).getResultList();
+    }
+
+    // mesmo fetch size do streamAll: o driver entrega as linhas aos poucos
+    @Override
+    public Stream<?> streamAllProjected(PersonProjection projection) {
+        return query(null, Sort.by("id"), projection.type(), projection)
+                .setHint(HINT_FETCH_SIZE, 500)
+                .getResultStream();
+    }
+
+    @Override
+    public List<?> searchProjected(Specification<Person> specification, Sort sort, int limit, PersonProjection projection) {
+        return query(specification, sort, projection.type(), projection)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+
+    private <T> TypedQuery<T> query(Specification<Person> specification, Sort sort, Class<T> type,
+                                    PersonProjection projection) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<T> query = cb.createQuery(type);
+        Root<Person> root = query.from(Person.class);
+        query.select(cb.construct(type, projection.attributes().stream()
+                .map(root::get)
+                .toArray(Selection<?>[]::new)));
+        if (specification != null) {
+            Predicate where = specification.toPredicate(root, query, cb);
+            if (where != null) {
+                query.where(where);
+            }
+        }
+        query.orderBy(QueryUtils.toOrders(sort, root, cb));
+        return entityManager.createQuery(query).setHint(HINT_READ_ONLY, true);
+    }
+}
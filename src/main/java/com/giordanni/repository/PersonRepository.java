@@ -1,24 +1,100 @@
 package com.giordanni.repository;
 
+import com.giordanni.dto.PersonKeys;
 import com.giordanni.model.Person;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
-public interface PersonRepository extends JpaRepository<Person, Long> {
+import static org.hibernate.jpa.HibernateHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.HibernateHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.HibernateHints.HINT_NATIVE_SPACES;
+import static org.hibernate.jpa.HibernateHints.HINT_READ_ONLY;
 
+public interface PersonRepository extends JpaRepository<Person, Long>, JpaSpecificationExecutor<Person>, PersonProjections {
+
+    // consultas no cache do Hibernate: guardam so os ids (a entidade vem da regiao "person") e sao
+    // invalidadas por qualquer escrita na tabela person feita pelo Hibernate
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     Optional<Person> findByEmail(String email);
 
+    @Query("SELECT p.email FROM Person p WHERE p.email IN :emails")
+    Set<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     @Query("SELECT p FROM Person p WHERE p.firstName = ?1 AND p.lastName = ?2")
     Person findByJPQL(String firstName, String lastName);
 
+    @QueryHints(@QueryHint(name = HINT_CACHEABLE, value = "true"))
     @Query("SELECT p FROM Person p WHERE p.firstName =:firstName AND p.lastName =:lastName")
     Person findByJPQLNamedParams(
             @Param("firstName") String firstName,
             @Param("lastName") String lastName);
 
-    @Query(value = "SELECT * FROM person p WHERE p.first_name =?1 AND p.last_name =?2", nativeQuery = true)
+    // SQL nativo: sem a tabela declarada o Hibernate nao saberia quando invalidar o resultado
+    @QueryHints({
+            @QueryHint(name = HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HINT_NATIVE_SPACES, value = "person")
+    })
+    @Query(value = "SELECT * FROM person p WHERE p.first_name =?1 AND p.last_name =?2 AND p.deleted_at IS NULL", nativeQuery = true)
     Person findByNativeSQL(String firstName, String lastName);
+
+    // keyset pagination: WHERE id > :after ORDER BY id, usa o indice da PK em vez de OFFSET
+    List<Person> findByIdGreaterThanOrderByIdAsc(Long id, Limit limit);
+
+    @QueryHints({
+            @QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT p FROM Person p ORDER BY p.id")
+    Stream<Person> streamAll();
+
+    // carga do HashPersonIndex: quatro colunas por linha, sem entidade no persistence context
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("SELECT new com.giordanni.dto.PersonKeys(p.id, p.email, p.firstName, p.lastName) FROM Person p")
+    Stream<PersonKeys> streamKeys();
+
+    // soft delete: um UPDATE so, sem o SELECT do deleteById; a versao sobe para o ETag mudar.
+    // O Hibernate invalida a regiao "person" e o cache de consultas depois de um UPDATE em HQL
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Person p SET p.deletedAt = :deletedAt, p.version = p.version + 1 "
+            + "WHERE p.id IN :ids AND p.deletedAt IS NULL")
+    int softDelete(@Param("ids") Collection<Long> ids, @Param("deletedAt") Instant deletedAt);
+
+    // SQL nativo daqui para baixo: o @SQLRestriction esconderia justamente as linhas apagadas
+    @Query(value = "SELECT id FROM person WHERE deleted_at < :cutoff ORDER BY id LIMIT :limit", nativeQuery = true)
+    List<Long> findDeletedIdsBefore(@Param("cutoff") Instant cutoff, @Param("limit") int limit);
+
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "person"))
+    @Query(value = "DELETE FROM person WHERE id IN :ids AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeDeleted(@Param("ids") Collection<Long> ids);
+
+    // o email de uma pessoa apagada continua preso na uk_person_email ate a purga
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "person"))
+    @Query(value = "DELETE FROM person WHERE email = :email AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeDeletedByEmail(@Param("email") String email);
+
+    // lote: o findExistingEmails nao ve as apagadas, entao o chunk remove antes do INSERT
+    @Transactional
+    @Modifying
+    @QueryHints(@QueryHint(name = HINT_NATIVE_SPACES, value = "person"))
+    @Query(value = "DELETE FROM person WHERE email IN :emails AND deleted_at IS NOT NULL", nativeQuery = true)
+    int purgeDeletedByEmails(@Param("emails") Collection<String> emails);
 }
@@ -0,0 +1,51 @@
+package com.giordanni.repository;
+
+import com.giordanni.dto.PersonSearchCriteria;
+import com.giordanni.model.Person;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.Locale;
+
+public final class PersonSpecifications {
+
+    private static final char ESCAPE = '\\';
+
+    private PersonSpecifications() {
+    }
+
+    public static Specification<Person> matching(PersonSearchCriteria criteria) {
+        return Specification.where(startsWith("firstName", criteria.firstName()))
+                .and(startsWith("lastName", criteria.lastName()))
+                .and(equalTo("gender", criteria.gender()))
+                .and(equalTo("emailDomain", normalizeDomain(criteria.emailDomain())));
+    }
+
+    // prefixo (LIKE 'abc%') ainda usa o indice; o conteudo digitado e escapado
+    static Specification<Person> startsWith(String attribute, String prefix) {
+        if (prefix == null || prefix.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.like(root.get(attribute), escapeLike(prefix) + "%", ESCAPE);
+    }
+
+    static Specification<Person> equalTo(String attribute, String value) {
+        if (value == null || value.isBlank()) {
+            return null;
+        }
+        return (root, query, cb) -> cb.equal(root.get(attribute), value);
+    }
+
+    static String normalizeDomain(String domain) {
+        if (domain == null) {
+            return null;
+        }
+        String normalized = domain.startsWith("@") ? domain.substring(1) : domain;
+        return normalized.toLowerCase(Locale.ROOT);
+    }
+
+    static String escapeLike(String value) {
+        return value.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+}
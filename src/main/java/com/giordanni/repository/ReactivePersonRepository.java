@@ -0,0 +1,78 @@
+package com.giordanni.repository;
+
+import com.giordanni.dto.PersonSearchCriteria;
+import com.giordanni.model.Person;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Leituras de Person via R2DBC (perfil reactive): as mesmas consultas do {@link PersonRepository},
+ * sem bloquear thread enquanto o banco responde.
+ * <p>
+ * Classe sobre o {@link R2dbcEntityTemplate} em vez de uma interface {@code R2dbcRepository}: como
+ * Person e {@code @Entity}, o scan do Spring Data JPA tambem reivindicaria a interface reativa.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactivePersonRepository {
+
+    private final R2dbcEntityTemplate template;
+
+    public Mono<Person> findById(Long id) {
+        return template.selectOne(Query.query(live().and("id").is(id)), Person.class);
+    }
+
+    // Flux do driver: as linhas sao lidas conforme o cliente consome (backpressure ate o socket)
+    public Flux<Person> findAll() {
+        return template.select(Query.query(live()).sort(Sort.by("id")), Person.class);
+    }
+
+    // keyset pagination, igual ao findByIdGreaterThanOrderByIdAsc do JPA
+    public Flux<Person> findByIdGreaterThanOrderByIdAsc(Long id, int limit) {
+        return template.select(Query.query(live().and("id").greaterThan(id)).sort(Sort.by("id")).limit(limit), Person.class);
+    }
+
+    public Flux<Person> search(PersonSearchCriteria criteria, Sort sort, int limit) {
+        return template.select(Query.query(matching(criteria)).sort(sort).limit(limit), Person.class);
+    }
+
+    // mesmo MAX do PersonChangeRepository.findLastId, para o ETag de /person/all
+    public Mono<Long> findLastChangeId() {
+        return template.getDatabaseClient()
+                .sql("SELECT COALESCE(MAX(id), 0) FROM person_change")
+                .map(row -> row.get(0, Number.class).longValue())
+                .one();
+    }
+
+    // o R2DBC nao conhece o @SQLRestriction de Person: toda consulta filtra o soft delete aqui
+    private static Criteria live() {
+        return Criteria.where("deletedAt").isNull();
+    }
+
+    // mesmos filtros de PersonSpecifications.matching
+    static Criteria matching(PersonSearchCriteria criteria) {
+        Criteria where = live();
+        if (criteria.firstName() != null && !criteria.firstName().isBlank()) {
+            // sem clausula ESCAPE: '\' ja e o escape padrao do LIKE no MySQL e no H2
+            where = where.and("firstName").like(PersonSpecifications.escapeLike(criteria.firstName()) + "%");
+        }
+        if (criteria.lastName() != null && !criteria.lastName().isBlank()) {
+            where = where.and("lastName").like(PersonSpecifications.escapeLike(criteria.lastName()) + "%");
+        }
+        if (criteria.gender() != null && !criteria.gender().isBlank()) {
+            where = where.and("gender").is(criteria.gender());
+        }
+        if (criteria.emailDomain() != null && !criteria.emailDomain().isBlank()) {
+            where = where.and("emailDomain").is(PersonSpecifications.normalizeDomain(criteria.emailDomain()));
+        }
+        return where;
+    }
+}
@@ -0,0 +1,121 @@
+package com.giordanni.service;
+
+import com.giordanni.config.PersonBatchProperties;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.BatchRowResult;
+import com.giordanni.index.PersonIndex;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonChangeRepository;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceException;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.TransactionException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+@Service
+@RequiredArgsConstructor
+public class PersonBatchService {
+
+    private final PersonRepository personRepository;
+    private final EntityManager entityManager;
+    private final TransactionTemplate transactionTemplate;
+    private final PersonBatchProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final PersonChangeRepository personChangeRepository;
+    private final PersonIndex personIndex;
+
+    public BatchResult createPeople(List<Person> people){
+        if(people.size() > properties.getMaxRows()){
+            throw new IllegalArgumentException("Batch size must not exceed " + properties.getMaxRows() + " rows.");
+        }
+
+        BatchRowResult[] results = new BatchRowResult[people.size()];
+        List<Integer> accepted = validate(people, results);
+
+        int chunkSize = properties.getChunkSize();
+        for(int from = 0; from < accepted.size(); from += chunkSize){
+            List<Integer> chunk = accepted.subList(from, Math.min(from + chunkSize, accepted.size()));
+            insertChunk(people, chunk, results);
+        }
+
+        BatchResult result = BatchResult.of(Arrays.asList(results));
+        meterRegistry.counter("person.batch.rows", "status", "created").increment(result.created());
+        meterRegistry.counter("person.batch.rows", "status", "failed").increment(result.failed());
+        return result;
+    }
+
+    private List<Integer> validate(List<Person> people, BatchRowResult[] results){
+        Set<String> emails = people.stream()
+                .map(Person::getEmail)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+        // uma unica consulta IN para todo o lote, em vez de um findByEmail por linha
+        Set<String> existingEmails = emails.isEmpty() ? Set.of() : personRepository.findExistingEmails(emails);
+
+        Set<String> seen = new HashSet<>();
+        List<Integer> accepted = new ArrayList<>();
+        for(int i = 0; i < people.size(); i++){
+            Person person = people.get(i);
+            String email = person.getEmail();
+
+            if(email == null || email.isBlank()){
+                results[i] = BatchRowResult.failed(i, email, "Email is required.");
+            } else if(person.getId() != null){
+                results[i] = BatchRowResult.failed(i, email, "Id must not be provided on create.");
+            } else if(existingEmails.contains(email)){
+                results[i] = BatchRowResult.failed(i, email, "Person with email " + email + " already exists.");
+            } else if(!seen.add(email)){
+                results[i] = BatchRowResult.failed(i, email, "Email " + email + " is duplicated in the batch.");
+            } else {
+                person.setVersion(null);
+                accepted.add(i);
+            }
+        }
+        return accepted;
+    }
+
+    private void insertChunk(List<Person> people, List<Integer> chunk, BatchRowResult[] results){
+        List<Person> rows = chunk.stream().map(people::get).toList();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        String outcome = "success";
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // email de pessoa apagada ainda nao purgada: passou na validacao e violaria uk_person_email
+                personRepository.purgeDeletedByEmails(rows.stream().map(Person::getEmail).toList());
+                personRepository.saveAll(rows);
+                entityManager.flush();
+                personChangeRepository.recordCreated(rows.stream().map(Person::getId).toList(), Instant.now());
+                entityManager.clear();
+            });
+            rows.forEach(personIndex::put);
+            for(int index : chunk){
+                Person person = people.get(index);
+                results[index] = BatchRowResult.created(index, person.getEmail(), person.getId());
+            }
+        } catch (DataAccessException | PersistenceException | TransactionException e) {
+            outcome = "failure";
+            for(int index : chunk){
+                Person person = people.get(index);
+                person.setId(null);
+                person.setVersion(null);
+                results[index] = BatchRowResult.failed(index, person.getEmail(), "Chunk insert failed: " + e.getMessage());
+            }
+        } finally {
+            sample.stop(meterRegistry.timer("person.batch.chunk", "outcome", outcome));
+        }
+    }
+}
@@ -1,51 +1,375 @@
 package com.giordanni.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.changes.PersonChangeFeed;
+import com.giordanni.dto.PersonCollectionVersion;
+import com.giordanni.dto.PersonPage;
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.dto.PersonSearchCriteria;
 import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.index.PersonIndex;
+import com.giordanni.loader.PersonIdLoader;
 import com.giordanni.model.Person;
+import com.giordanni.model.PersonChange;
+import com.giordanni.repository.PersonChangeRepository;
 import com.giordanni.repository.PersonRepository;
+import com.giordanni.repository.PersonSpecifications;
+import jakarta.persistence.EntityManager;
 import lombok.RequiredArgsConstructor;
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.io.IOException;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Service
 @RequiredArgsConstructor
 public class PersonService {
 
+    public static final int DEFAULT_PAGE_SIZE = 100;
+    public static final int MAX_PAGE_SIZE = 1000;
+    // apenas colunas com indice que comeca por elas (ou a PK)
+    public static final Set<String> SORTABLE_FIELDS = Set.of("id", "firstName", "lastName", "email");
+    public static final int MAX_DELETE_IDS = 1000;
+    public static final int MAX_GET_IDS = 1000;
+    public static final Set<String> PATCHABLE_FIELDS = Set.of("firstName", "lastName", "address", "gender", "email");
+
     private final PersonRepository personRepository;
+    private final EntityManager entityManager;
+    private final PersonCache personCache;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final PersonChangeRepository personChangeRepository;
+    private final PersonIndex personIndex;
+    private final ObjectProvider<PersonIdLoader> personIdLoader;
+    private final PersonChangeFeed personChangeFeed;
 
+    // um unico INSERT: a unicidade do email fica com a constraint uk_person_email, sem o SELECT antes.
+    // O evento do outbox vai na mesma transacao: ou os dois sao gravados ou nenhum
     public Person createPerson(Person person){
-        Optional<Person> existingPerson = personRepository.findByEmail(person.getEmail());
-
-        if(existingPerson.isPresent()) {
-            throw new IllegalArgumentException("Person with email " + person.getEmail() + " already exists.");
+        // versao informada pelo cliente faria o Spring Data tratar a entidade como existente (merge)
+        person.setVersion(null);
+        try {
+            Person created = transactionTemplate.execute(status -> {
+                Person createdPerson = personRepository.saveAndFlush(person);
+                personChangeRepository.save(PersonChange.of(PersonChange.Type.CREATED, createdPerson));
+                return createdPerson;
+            });
+            personIndex.put(created);
+            return created;
+        } catch (DataIntegrityViolationException e) {
+            if(isDuplicateEmail(e)) {
+                // o email pode ser de uma pessoa apagada que o PersonPurgeJob ainda nao removeu
+                if(personRepository.purgeDeletedByEmail(person.getEmail()) > 0) {
+                    person.setId(null);
+                    return createPerson(person);
+                }
+                throw new IllegalArgumentException("Person with email " + person.getEmail() + " already exists.");
+            }
+            throw e;
         }
-
-        return personRepository.save(person);
     }
 
+    // read-only: o Hibernate nao guarda o snapshot de cada linha para o dirty checking
+    @Transactional(readOnly = true)
     public List<Person> findAllPerson(){
         return personRepository.findAll();
     }
 
+    @Transactional(readOnly = true)
+    public List<?> findAll(PersonProjection projection){
+        return personRepository.findAllProjected(projection);
+    }
+
+    // ETag de /person/all sem COUNT/SUM na tabela: o cursor do relay (memoria) e o MAX da PK do outbox.
+    // O cursor e lido antes: no pior caso o ETag fica mais velho que o corpo, nunca mais novo
+    @Transactional(readOnly = true)
+    public PersonCollectionVersion collectionVersion(){
+        long settled = personChangeFeed.cursor();
+        Long last = personChangeRepository.findLastId();
+        return new PersonCollectionVersion(settled, last == null ? 0L : last);
+    }
+
+    @Transactional(readOnly = true)
+    public PersonPage findPage(Long after, int size){
+        checkPageSize(size);
+
+        long cursor = after == null ? 0L : after;
+        List<Person> content = personRepository.findByIdGreaterThanOrderByIdAsc(cursor, Limit.of(size));
+        Long nextCursor = content.size() == size ? content.get(content.size() - 1).getId() : null;
+
+        return new PersonPage(content, nextCursor);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Person> search(PersonSearchCriteria criteria, Sort sort, int limit){
+        checkSearch(sort, limit);
+
+        // sem Page: evita o SELECT COUNT(*) extra
+        return personRepository.findBy(PersonSpecifications.matching(criteria),
+                query -> query.sortBy(sort).limit(limit).all());
+    }
+
+    @Transactional(readOnly = true)
+    public List<?> search(PersonSearchCriteria criteria, Sort sort, int limit, PersonProjection projection){
+        checkSearch(sort, limit);
+
+        return personRepository.searchProjected(PersonSpecifications.matching(criteria), sort, limit, projection);
+    }
+
+    // regras compartilhadas com o ReactivePersonService
+    static void checkPageSize(int size){
+        if(size < 1 || size > MAX_PAGE_SIZE){
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+    }
+
+    static void checkSearch(Sort sort, int limit){
+        if(limit < 1 || limit > MAX_PAGE_SIZE){
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE + ".");
+        }
+        for(Sort.Order order : sort){
+            if(!SORTABLE_FIELDS.contains(order.getProperty())){
+                throw new IllegalArgumentException("Cannot sort by " + order.getProperty() + ".");
+            }
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAllPerson(Consumer<Person> consumer){
+        try (Stream<Person> persons = personRepository.streamAll()) {
+            persons.forEach(person -> {
+                consumer.accept(person);
+                // desanexa cada linha para o persistence context nao crescer com a tabela
+                entityManager.detach(person);
+            });
+        }
+    }
+
+    // DTOs nao entram no persistence context: nada a desanexar
+    @Transactional(readOnly = true)
+    public void streamAll(PersonProjection projection, Consumer<Object> consumer){
+        try (Stream<?> rows = personRepository.streamAllProjected(projection)) {
+            rows.forEach(consumer);
+        }
+    }
+
     public Person findById(Long id){
-        return personRepository.findById(id)
+        return personCache.get(id, loadById())
                 .orElseThrow(() -> new ResourceNotFoundException("Person with id " + id + " not found."));
     }
 
+    // GET /person?ids=: os ids no cache saem dele, os demais num unico SELECT ... WHERE id IN (...);
+    // ids inexistentes ficam de fora e a ordem e a do pedido
+    public List<Person> findAllById(Collection<Long> ids){
+        if(ids.isEmpty() || ids.size() > MAX_GET_IDS){
+            throw new IllegalArgumentException("Between 1 and " + MAX_GET_IDS + " ids are required.");
+        }
+        return List.copyOf(personCache.getAll(ids, personRepository::findAllById).values());
+    }
+
+    // com person.id-loader.enabled, as faltas do cache que chegam juntas viram uma consulta IN
+    private Function<Long, Optional<Person>> loadById(){
+        PersonIdLoader loader = personIdLoader.getIfAvailable();
+        return loader == null ? personRepository::findById : loader::load;
+    }
+
+    // indice em memoria primeiro: o id encontrado e conferido na entidade (PersonCache); sem id valido, SQL
+    public Optional<Person> findByEmail(String email){
+        return findIndexed(personIndex.idsByEmail(email), person -> person.getEmail().equals(email))
+                .or(() -> indexed(personCache.findByEmail(email, personRepository::findByEmail)));
+    }
+
+    // nomes se repetem: o indice devolve o de menor id
+    public Optional<Person> findByName(String firstName, String lastName){
+        return findIndexed(personIndex.idsByName(firstName, lastName),
+                person -> person.getFirstName().equals(firstName) && person.getLastName().equals(lastName))
+                .or(() -> indexed(Optional.ofNullable(personRepository.findByJPQL(firstName, lastName))));
+    }
+
+    private Optional<Person> findIndexed(long[] ids, Predicate<Person> matches){
+        for(long id : ids){
+            Optional<Person> person = personCache.get(id, loadById());
+            if(person.isEmpty()){
+                personIndex.remove(id);
+            } else if(matches.test(person.get())){
+                return person;
+            } else {
+                // entrada velha (escrita de outra instancia): reindexa com o estado atual
+                personIndex.put(person.get());
+            }
+        }
+        return Optional.empty();
+    }
+
+    // o que o SQL achou entra no indice: a proxima busca nao vai ao banco
+    private Optional<Person> indexed(Optional<Person> person){
+        person.ifPresent(personIndex::put);
+        return person;
+    }
+
+    // leitura e escrita na mesma transacao read-write: com replicas, a versao lida vem do primario
     public Person updatePerson(Person person){
-        Optional<Person> existingPerson = personRepository.findById(person.getId());
+        Person updatedPerson = transactionTemplate.execute(status -> {
+            Optional<Person> existingPerson = personRepository.findById(person.getId());
+
+            if(existingPerson.isEmpty()){
+                throw new ResourceNotFoundException("Person with id " + person.getId() + " does not exist.");
+            }
+
+            // sem versao no corpo o PUT continua "ultima escrita vence"; com versao, o merge valida o lock otimista
+            Long currentVersion = existingPerson.get().getVersion();
+            if(person.getVersion() == null){
+                person.setVersion(currentVersion);
+            } else if(!person.getVersion().equals(currentVersion)){
+                // versao velha: rejeita antes do merge, sem copiar o estado nem tentar o UPDATE
+                throw new ObjectOptimisticLockingFailureException(Person.class, person.getId());
+            }
+
+            purgeDeletedWithNewEmail(existingPerson.get().getEmail(), person.getEmail());
+            Person savedPerson = personRepository.save(person);
+            // flush antes do outbox: o evento leva a versao ja incrementada
+            flushCheckingEmail(savedPerson);
+            personChangeRepository.save(PersonChange.of(PersonChange.Type.UPDATED, savedPerson));
+            return savedPerson;
+        });
+
+        personCache.evict(person.getId());
+        personIndex.put(updatedPerson);
+        return updatedPerson;
+    }
+
+    // JSON merge patch (RFC 7396) aplicado na entidade gerenciada: o dirty checking + @DynamicUpdate
+    // geram um UPDATE so com as colunas alteradas, no mesmo SELECT/transacao
+    public Person patchPerson(Long id, JsonNode patch){
+        if(patch == null || !patch.isObject()){
+            throw new IllegalArgumentException("Patch must be a JSON object.");
+        }
+
+        Person patchedPerson = transactionTemplate.execute(status -> {
+            Person person = personRepository.findById(id)
+                    .orElseThrow(() -> new ResourceNotFoundException("Person with id " + id + " does not exist."));
 
-        if(existingPerson.isEmpty()){
-            throw new ResourceNotFoundException("Person with id " + person.getId() + " does not exist.");
+            JsonNode version = patch.get("version");
+            if(version != null && !version.isNull()){
+                // asLong() transformaria "abc" ou 1.5 em 0/1 e o cliente receberia um 409 enganoso
+                if(!version.isIntegralNumber() || !version.canConvertToLong()){
+                    throw new IllegalArgumentException("Field version must be an integer.");
+                }
+                if(version.asLong() != person.getVersion()){
+                    throw new ObjectOptimisticLockingFailureException(Person.class, id);
+                }
+            }
+
+            JsonNode email = patch.get("email");
+            if(email != null && email.isTextual()){
+                purgeDeletedWithNewEmail(person.getEmail(), email.asText());
+            }
+            applyPatch(person, (ObjectNode) patch);
+            flushCheckingEmail(person);
+            personChangeRepository.save(PersonChange.of(PersonChange.Type.UPDATED, person));
+            return person;
+        });
+
+        personCache.evict(id);
+        personIndex.put(patchedPerson);
+        return patchedPerson;
+    }
+
+    private void applyPatch(Person person, ObjectNode patch){
+        ObjectNode fields = patch.deepCopy();
+        fields.remove(List.of("id", "version"));
+
+        fields.fields().forEachRemaining(field -> {
+            if(!PATCHABLE_FIELDS.contains(field.getKey())){
+                throw new IllegalArgumentException("Field " + field.getKey() + " cannot be patched.");
+            }
+            if(field.getValue().isNull()){
+                throw new IllegalArgumentException("Field " + field.getKey() + " cannot be null.");
+            }
+        });
+
+        try {
+            objectMapper.readerForUpdating(person).readValue(fields);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Invalid patch: " + e.getMessage(), e);
         }
+    }
 
-        return personRepository.save(person);
+    // PUT e PATCH para o email de uma pessoa apagada ainda nao purgada: remove a linha antes do UPDATE,
+    // como o POST faz. Antes de alterar a entidade: o DELETE nativo faria flush do UPDATE pendente
+    private void purgeDeletedWithNewEmail(String currentEmail, String newEmail){
+        if(newEmail != null && !newEmail.equals(currentEmail)){
+            personRepository.purgeDeletedByEmail(newEmail);
+        }
     }
 
+    // PUT e PATCH: email de outra pessoa viola uk_person_email no UPDATE e vira 400, como no POST
+    private void flushCheckingEmail(Person person){
+        try {
+            personRepository.flush();
+        } catch (DataIntegrityViolationException e) {
+            if(isDuplicateEmail(e)) {
+                throw new IllegalArgumentException("Person with email " + person.getEmail() + " already exists.");
+            }
+            throw e;
+        }
+    }
+
+    private static boolean isDuplicateEmail(DataIntegrityViolationException e){
+        for(Throwable cause = e; cause != null; cause = cause.getCause()){
+            if(cause instanceof ConstraintViolationException violation
+                    && violation.getConstraintName() != null
+                    && violation.getConstraintName().toLowerCase(Locale.ROOT).contains(Person.EMAIL_UNIQUE_CONSTRAINT)){
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // soft delete: um UPDATE marcando deleted_at, sem o SELECT + DELETE do deleteById
     public void deletePerson(Long id){
-        personRepository.deleteById(id);
+        deletePeople(List.of(id));
+    }
+
+    // UPDATE ... WHERE id IN (...) e um INSERT ... SELECT dos eventos DELETED, na mesma transacao;
+    // ids inexistentes ou ja apagados sao ignorados. O PersonPurgeJob remove as linhas depois
+    public int deletePeople(Collection<Long> ids){
+        if(ids.isEmpty() || ids.size() > MAX_DELETE_IDS){
+            throw new IllegalArgumentException("Between 1 and " + MAX_DELETE_IDS + " ids are required.");
+        }
+        // em millis: o recordDeleted encontra as linhas marcadas comparando deleted_at
+        Instant deletedAt = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        Integer deleted = transactionTemplate.execute(status -> {
+            int count = personRepository.softDelete(ids, deletedAt);
+            if(count > 0){
+                personChangeRepository.recordDeleted(ids, deletedAt);
+            }
+            return count;
+        });
+        ids.forEach(personCache::evict);
+        ids.forEach(personIndex::remove);
+        return deleted;
     }
 
 }
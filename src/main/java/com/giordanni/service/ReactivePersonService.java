@@ -0,0 +1,94 @@
+package com.giordanni.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.giordanni.changes.PersonChangeFeed;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.PersonCollectionVersion;
+import com.giordanni.dto.PersonPage;
+import com.giordanni.dto.PersonSearchCriteria;
+import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.model.Person;
+import com.giordanni.repository.ReactivePersonRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Perfil reactive: leituras via R2DBC, sem thread presa esperando o banco. As escritas reaproveitam
+ * o {@link PersonService}/{@link PersonBatchService} (JPA) no scheduler boundedElastic, mantendo a
+ * mesma sequence, o lock otimista, a constraint de email e a invalidacao do cache.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactivePersonService {
+
+    private final ReactivePersonRepository personRepository;
+    private final PersonService personService;
+    private final PersonBatchService batchService;
+    private final PersonChangeFeed changeFeed;
+
+    public Mono<Person> findById(Long id){
+        return personRepository.findById(id)
+                .switchIfEmpty(Mono.error(() -> new ResourceNotFoundException("Person with id " + id + " not found.")));
+    }
+
+    public Flux<Person> findAllPerson(){
+        return personRepository.findAll();
+    }
+
+    // cursor lido antes do MAX, como no PersonService
+    public Mono<PersonCollectionVersion> collectionVersion(){
+        return Mono.defer(() -> {
+            long settled = changeFeed.cursor();
+            return personRepository.findLastChangeId().map(last -> new PersonCollectionVersion(settled, last));
+        });
+    }
+
+    public Mono<PersonPage> findPage(Long after, int size){
+        return Mono.fromRunnable(() -> PersonService.checkPageSize(size))
+                .then(personRepository.findByIdGreaterThanOrderByIdAsc(after == null ? 0L : after, size)
+                        .collectList())
+                .map(content -> new PersonPage(content,
+                        content.size() == size ? content.get(content.size() - 1).getId() : null));
+    }
+
+    public Flux<Person> search(PersonSearchCriteria criteria, Sort sort, int limit){
+        return Mono.fromRunnable(() -> PersonService.checkSearch(sort, limit))
+                .thenMany(personRepository.search(criteria, sort, limit));
+    }
+
+    public Mono<Person> createPerson(Person person){
+        return blocking(() -> personService.createPerson(person));
+    }
+
+    public Mono<BatchResult> createPeople(List<Person> people){
+        return blocking(() -> batchService.createPeople(people));
+    }
+
+    public Mono<Person> updatePerson(Person person){
+        return blocking(() -> personService.updatePerson(person));
+    }
+
+    public Mono<Person> patchPerson(Long id, JsonNode patch){
+        return blocking(() -> personService.patchPerson(id, patch));
+    }
+
+    public Mono<Void> deletePerson(Long id){
+        return blocking(() -> {
+            personService.deletePerson(id);
+            return null;
+        }).then();
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call){
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,11 @@
+package com.giordanni.writebehind;
+
+import com.giordanni.model.Person;
+
+record PendingWrite(String ticket, Operation operation, Person person) {
+
+    enum Operation {
+        CREATE,
+        UPDATE
+    }
+}
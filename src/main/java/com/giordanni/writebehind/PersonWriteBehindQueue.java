@@ -0,0 +1,295 @@
+package com.giordanni.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.config.PersonWriteBehindProperties;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.BatchRowResult;
+import com.giordanni.dto.WriteStatus;
+import com.giordanni.exception.WriteQueueFullException;
+import com.giordanni.model.Person;
+import com.giordanni.service.PersonBatchService;
+import com.giordanni.service.PersonService;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind de POST/PUT /person: a escrita e validada, entra numa fila limitada (e no
+ * {@link WriteJournal}, se configurado) e o cliente recebe um ticket; uma unica thread esvazia a fila
+ * em lotes, com os creates pelo {@link PersonBatchService} e os updates numa transacao so.
+ * <p>
+ * Sob carga o lote cresce sozinho: enquanto um lote grava, os proximos pedidos se acumulam na fila.
+ * Fila cheia e backpressure: {@link WriteQueueFullException} em vez de bloquear a requisicao; depois que o
+ * shutdown comeca a fila tambem recusa, para nada ser aceito com 202 depois do ultimo flush.
+ */
+public class PersonWriteBehindQueue implements AutoCloseable {
+
+    private static final Duration POLL_TIMEOUT = Duration.ofMillis(100);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(30);
+
+    private final PersonWriteBehindProperties properties;
+    private final PersonBatchService batchService;
+    private final PersonService personService;
+    private final PersonCache personCache;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final WriteJournal journal;
+    private final BlockingQueue<PendingWrite> queue;
+    private final Cache<String, WriteStatus> statuses;
+    // ReentrantLock e nao synchronized: o fsync do journal nao prende a carrier de uma virtual thread
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile boolean running;
+    // separado de running: antes do start a fila ja aceita (o flusher grava o que acumulou)
+    private boolean closed;
+    private Thread flusher;
+
+    public static PersonWriteBehindQueue create(PersonWriteBehindProperties properties, PersonBatchService batchService,
+                                                PersonService personService, PersonCache personCache,
+                                                TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                                                ObjectMapper objectMapper) throws IOException {
+        WriteJournal journal = properties.getJournal() == null ? null : new WriteJournal(properties.getJournal(), objectMapper);
+        return new PersonWriteBehindQueue(properties, batchService, personService, personCache,
+                transactionTemplate, meterRegistry, journal);
+    }
+
+    PersonWriteBehindQueue(PersonWriteBehindProperties properties, PersonBatchService batchService,
+                           PersonService personService, PersonCache personCache,
+                           TransactionTemplate transactionTemplate, MeterRegistry meterRegistry,
+                           WriteJournal journal) throws IOException {
+        this.properties = properties;
+        this.batchService = batchService;
+        this.personService = personService;
+        this.personCache = personCache;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.journal = journal;
+        this.statuses = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getStatusRetention())
+                .build();
+
+        // o que ficou no journal volta para a fila com o mesmo ticket, mesmo acima da capacidade
+        List<PendingWrite> replayed = journal == null ? List.of() : journal.replay();
+        this.queue = new ArrayBlockingQueue<>(Math.max(properties.getCapacity(), replayed.size()));
+        for (PendingWrite write : replayed) {
+            statuses.put(write.ticket(), WriteStatus.pending(write.ticket()));
+            queue.add(write);
+        }
+
+        Gauge.builder("person.writebehind.queue", queue, BlockingQueue::size)
+                .description("Escritas aceitas com 202 que ainda nao foram gravadas")
+                .register(meterRegistry);
+    }
+
+    public WriteStatus submitCreate(Person person) {
+        if (person.getEmail() == null || person.getEmail().isBlank()) {
+            throw new IllegalArgumentException("Email is required.");
+        }
+        if (person.getId() != null) {
+            throw new IllegalArgumentException("Id must not be provided on create.");
+        }
+        person.setVersion(null);
+        return submit(PendingWrite.Operation.CREATE, person);
+    }
+
+    public WriteStatus submitUpdate(Person person) {
+        if (person.getId() == null) {
+            throw new IllegalArgumentException("Id is required on update.");
+        }
+        return submit(PendingWrite.Operation.UPDATE, person);
+    }
+
+    public Optional<WriteStatus> status(String ticket) {
+        return Optional.ofNullable(statuses.getIfPresent(ticket));
+    }
+
+    public void start() {
+        running = true;
+        flusher = Thread.ofPlatform().name("person-write-behind").daemon().start(this::run);
+    }
+
+    // grava o que ainda esta na fila antes de o contexto fechar o EntityManagerFactory
+    @Override
+    public void close() throws Exception {
+        // com o lock: um submit que ja passou da verificacao termina o add antes, e o flusher ainda o grava
+        lock.lock();
+        try {
+            closed = true;
+        } finally {
+            lock.unlock();
+        }
+        running = false;
+        if (flusher != null) {
+            flusher.join(SHUTDOWN_TIMEOUT);
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private WriteStatus submit(PendingWrite.Operation operation, Person person) {
+        PendingWrite write = new PendingWrite(UUID.randomUUID().toString(), operation, person);
+        WriteStatus status = WriteStatus.pending(write.ticket());
+        // so quem submete adiciona na fila, e sempre com o lock: a vaga conferida aqui nao some antes do add
+        lock.lock();
+        try {
+            if (closed) {
+                meterRegistry.counter("person.writebehind.writes", "status", "rejected").increment();
+                throw new WriteQueueFullException("Write-behind queue is shutting down.");
+            }
+            if (queue.remainingCapacity() == 0) {
+                meterRegistry.counter("person.writebehind.writes", "status", "rejected").increment();
+                throw new WriteQueueFullException("Write-behind queue is full.");
+            }
+            if (journal != null) {
+                journal.append(write);
+            }
+            statuses.put(write.ticket(), status);
+            queue.add(write);
+        } finally {
+            lock.unlock();
+        }
+        return status;
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>(properties.getMaxBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(POLL_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, properties.getMaxBatchSize() - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                // falha do journal ao marcar o lote: os status ja foram gravados e, num restart, o lote
+                // e repetido (um create repetido falha pela constraint de email)
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    void flush(List<PendingWrite> batch) {
+        List<PendingWrite> creates = batch.stream()
+                .filter(write -> write.operation() == PendingWrite.Operation.CREATE)
+                .toList();
+        List<PendingWrite> updates = batch.stream()
+                .filter(write -> write.operation() == PendingWrite.Operation.UPDATE)
+                .toList();
+
+        if (!creates.isEmpty()) {
+            flushCreates(creates);
+        }
+        if (!updates.isEmpty()) {
+            flushUpdates(updates);
+        }
+
+        if (journal != null) {
+            lock.lock();
+            try {
+                journal.complete(batch.stream().map(PendingWrite::ticket).toList());
+                if (queue.isEmpty()) {
+                    journal.truncate();
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void flushCreates(List<PendingWrite> creates) {
+        try {
+            BatchResult result = batchService.createPeople(creates.stream().map(PendingWrite::person).toList());
+            for (BatchRowResult row : result.rows()) {
+                String ticket = creates.get(row.index()).ticket();
+                complete(row.status() == BatchRowResult.Status.CREATED
+                        ? WriteStatus.done(ticket, row.id())
+                        : WriteStatus.failed(ticket, row.error()));
+            }
+        } catch (RuntimeException e) {
+            creates.forEach(write -> complete(WriteStatus.failed(write.ticket(), e.getMessage())));
+        }
+    }
+
+    private void flushUpdates(List<PendingWrite> updates) {
+        Map<String, PendingWrite> supersededBy = new HashMap<>();
+        List<PendingWrite> applied = coalesce(updates, supersededBy);
+
+        // o updatePerson preenche a versao dos PUTs sem versao; a repeticao volta ao valor recebido,
+        // senao levaria a versao lida na tentativa desfeita e perderia o "ultima escrita vence"
+        List<Long> versions = applied.stream().map(write -> write.person().getVersion()).toList();
+        Map<String, WriteStatus> results = new HashMap<>();
+        try {
+            transactionTemplate.executeWithoutResult(status -> applied.forEach(write ->
+                    personService.updatePerson(write.person())));
+            applied.forEach(write -> results.put(write.ticket(), WriteStatus.done(write.ticket(), write.person().getId())));
+        } catch (RuntimeException e) {
+            // uma linha ruim nao derruba o lote: repete uma a uma, cada uma na sua transacao
+            for (int i = 0; i < applied.size(); i++) {
+                PendingWrite write = applied.get(i);
+                write.person().setVersion(versions.get(i));
+                try {
+                    personService.updatePerson(write.person());
+                    results.put(write.ticket(), WriteStatus.done(write.ticket(), write.person().getId()));
+                } catch (RuntimeException rowError) {
+                    results.put(write.ticket(), WriteStatus.failed(write.ticket(), rowError.getMessage()));
+                }
+            }
+        }
+        // o updatePerson invalida antes do commit da transacao externa; invalida de novo depois dele
+        applied.forEach(write -> personCache.evict(write.person().getId()));
+
+        for (PendingWrite write : updates) {
+            String last = write.ticket();
+            while (supersededBy.containsKey(last)) {
+                last = supersededBy.get(last).ticket();
+            }
+            WriteStatus result = results.get(last);
+            complete(new WriteStatus(write.ticket(), result.status(), result.personId(), result.error()));
+        }
+    }
+
+    // PUT sem versao substitui a linha inteira: um PUT sem versao seguido de outro para a mesma pessoa
+    // no mesmo lote nao precisa ir ao banco, e fica com o resultado do ultimo
+    static List<PendingWrite> coalesce(List<PendingWrite> updates, Map<String, PendingWrite> supersededBy) {
+        List<PendingWrite> applied = new ArrayList<>();
+        Map<Long, PendingWrite> lastById = new HashMap<>();
+        for (PendingWrite write : updates) {
+            PendingWrite previous = lastById.put(write.person().getId(), write);
+            if (previous != null && previous.person().getVersion() == null && write.person().getVersion() == null) {
+                applied.remove(previous);
+                supersededBy.put(previous.ticket(), write);
+            }
+            applied.add(write);
+        }
+        return applied;
+    }
+
+    private void complete(WriteStatus status) {
+        statuses.put(status.ticket(), status);
+        meterRegistry.counter("person.writebehind.writes", "status", status.status().name().toLowerCase(Locale.ROOT)).increment();
+    }
+}
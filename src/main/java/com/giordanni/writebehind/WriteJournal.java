@@ -0,0 +1,100 @@
+package com.giordanni.writebehind;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Journal append-only das escritas aceitas pelo {@link PersonWriteBehindQueue}: uma linha JSON por
+ * escrita e uma linha {@code {"done": [...]}} por lote gravado, cada uma com fsync.
+ * Ao subir, o que nao tem "done" volta para a fila; quando a fila esvazia o arquivo e truncado.
+ * <p>
+ * Nao e thread-safe: o {@link PersonWriteBehindQueue} chama tudo sob o mesmo lock.
+ */
+class WriteJournal implements AutoCloseable {
+
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final Path path;
+
+    WriteJournal(Path path, ObjectMapper objectMapper) throws IOException {
+        if (path.getParent() != null) {
+            Files.createDirectories(path.getParent());
+        }
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.channel.position(channel.size());
+    }
+
+    // escritas sem "done", na ordem em que foram aceitas
+    List<PendingWrite> replay() throws IOException {
+        Map<String, PendingWrite> pending = new LinkedHashMap<>();
+        for (String line : Files.readAllLines(path)) {
+            if (line.isBlank()) {
+                continue;
+            }
+            JsonNode node;
+            try {
+                node = objectMapper.readTree(line);
+            } catch (IOException e) {
+                // ultima linha cortada por um crash no meio do write: o cliente nao recebeu o 202
+                continue;
+            }
+            if (node.has("done")) {
+                node.get("done").forEach(ticket -> pending.remove(ticket.asText()));
+            } else {
+                PendingWrite write = objectMapper.treeToValue(node, PendingWrite.class);
+                pending.put(write.ticket(), write);
+            }
+        }
+        return new ArrayList<>(pending.values());
+    }
+
+    void append(PendingWrite write) {
+        write(objectMapper.valueToTree(write));
+    }
+
+    void complete(Collection<String> tickets) {
+        write(objectMapper.createObjectNode().set("done", objectMapper.valueToTree(tickets)));
+    }
+
+    void truncate() {
+        try {
+            channel.truncate(0);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    private void write(JsonNode node) {
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap((objectMapper.writeValueAsString(node) + "\n").getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+-- MySQL: ids de person passam a vir de person_seq (pooled, allocationSize 50) e nao mais de AUTO_INCREMENT.
+-- Sem sequence nativa o Hibernate usa uma tabela de uma linha (next_val) e reserva blocos de 50 a partir dela.
+-- Rodar uma vez antes de subir a versao com person_seq, com a aplicacao parada: a semente fica acima do maior
+-- id existente com folga de um bloco, entao o primeiro bloco reservado nunca colide com linhas antigas.
+CREATE TABLE IF NOT EXISTS person_seq (
+    next_val BIGINT NOT NULL
+) ENGINE = InnoDB;
+
+DELETE FROM person_seq;
+
+INSERT INTO person_seq (next_val)
+SELECT COALESCE(MAX(id), 0) + 51 FROM person;
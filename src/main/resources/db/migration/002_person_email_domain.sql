@@ -0,0 +1,49 @@
+-- MySQL: coluna email_domain e indices compostos do GET /person/search.
+-- email_domain e derivada de email em @PrePersist/@PreUpdate, entao linhas anteriores a coluna ficam nulas
+-- e nao aparecem no filtro por dominio ate serem preenchidas aqui. Mesma regra de Person.emailDomainOf.
+-- Pode rodar de novo, inclusive onde o ddl-auto: update ja criou coluna ou indices: cada passo confere o
+-- information_schema antes (MySQL nao tem ADD COLUMN / CREATE INDEX IF NOT EXISTS).
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND column_name = 'email_domain') = 0,
+              'ALTER TABLE person ADD COLUMN email_domain VARCHAR(100) NULL',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- so toca linhas sem dominio; em tabela grande pode ser repetido com LIMIT ate afetar 0 linhas
+UPDATE person
+SET email_domain = LOWER(SUBSTRING_INDEX(email, '@', -1))
+WHERE email_domain IS NULL AND email LIKE '%@%';
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = 'idx_person_first_name_last_name') = 0,
+              'CREATE INDEX idx_person_first_name_last_name ON person (first_name, last_name)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = 'idx_person_last_name_first_name') = 0,
+              'CREATE INDEX idx_person_last_name_first_name ON person (last_name, first_name)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = 'idx_person_gender_first_name') = 0,
+              'CREATE INDEX idx_person_gender_first_name ON person (gender, first_name)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = 'idx_person_email_domain_email') = 0,
+              'CREATE INDEX idx_person_email_domain_email ON person (email_domain, email)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
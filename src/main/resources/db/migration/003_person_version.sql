@@ -0,0 +1,9 @@
+-- MySQL: coluna do lock otimista (@Version em Person). Linhas antigas comecam na versao 0.
+-- Pode rodar de novo: so altera a tabela se a coluna ainda nao existe (MySQL nao tem ADD COLUMN IF NOT EXISTS).
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND column_name = 'version') = 0,
+              'ALTER TABLE person ADD COLUMN version BIGINT NOT NULL DEFAULT 0',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,15 @@
+-- MySQL: unicidade do email na constraint uk_person_email (o POST nao faz mais SELECT antes do INSERT).
+-- A chave nao sobe com emails repetidos: fica a linha de menor id de cada email e as demais sao apagadas.
+-- Conferir antes o que sera removido:
+--   SELECT p.* FROM person p JOIN person keep ON keep.email = p.email AND keep.id < p.id;
+DELETE p FROM person p
+JOIN person keep ON keep.email = p.email AND keep.id < p.id;
+
+-- pode rodar de novo: so cria a chave se ela ainda nao existe
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = 'uk_person_email') = 0,
+              'ALTER TABLE person ADD CONSTRAINT uk_person_email UNIQUE (email)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
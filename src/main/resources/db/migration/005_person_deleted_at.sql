@@ -0,0 +1,18 @@
+-- MySQL: soft delete. deleted_at nulo = pessoa ativa; o PersonPurgeJob apaga as linhas marcadas ha mais de
+-- person.purge.grace, procurando pelo indice idx_person_deleted_at.
+-- Pode rodar de novo: coluna e indice so sao criados se ainda nao existem.
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.columns
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND column_name = 'deleted_at') = 0,
+              'ALTER TABLE person ADD COLUMN deleted_at DATETIME(6) NULL',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @ddl = IF((SELECT COUNT(*) FROM information_schema.statistics
+               WHERE table_schema = DATABASE() AND table_name = 'person' AND index_name = 'idx_person_deleted_at') = 0,
+              'CREATE INDEX idx_person_deleted_at ON person (deleted_at)',
+              'DO 0');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
@@ -0,0 +1,10 @@
+-- MySQL: outbox de GET /person/changes, gravado na mesma transacao da escrita em person.
+-- AUTO_INCREMENT: o id e o cursor dos consumidores e precisa crescer na ordem dos inserts.
+CREATE TABLE IF NOT EXISTS person_change (
+    id BIGINT NOT NULL AUTO_INCREMENT,
+    person_id BIGINT NOT NULL,
+    type VARCHAR(7) NOT NULL,
+    version BIGINT NULL,
+    occurred_at DATETIME(6) NOT NULL,
+    PRIMARY KEY (id)
+) ENGINE = InnoDB;
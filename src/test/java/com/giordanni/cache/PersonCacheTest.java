@@ -0,0 +1,240 @@
+package com.giordanni.cache;
+
+import com.giordanni.config.PersonCacheProperties;
+import com.giordanni.model.Person;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonCacheTest {
+
+    PersonCacheProperties properties;
+    Person person1;
+
+    @BeforeEach
+    void setUp(){
+        properties = new PersonCacheProperties();
+        person1 = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        person1.setId(1L);
+    }
+
+    @Test
+    void shouldNotCacheMissingPerson(){
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, id -> { loads.incrementAndGet(); return Optional.empty(); });
+        Optional<Person> found = cache.get(1L, id -> { loads.incrementAndGet(); return Optional.empty(); });
+
+        assertTrue(found.isEmpty());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldEvictLeastUsedEntriesWhenFull(){
+        properties.setMaximumSize(1);
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+
+        for (long id = 1; id <= 100; id++) {
+            cache.get(id, key -> Optional.of(person1));
+        }
+
+        // a manutencao do Caffeine roda de forma assincrona
+        await().atMost(Duration.ofSeconds(5))
+                .untilAsserted(() -> assertTrue(cache.stats().evictionCount() > 0));
+    }
+
+    @Test
+    void shouldExpireEntriesAfterTtl() throws InterruptedException {
+        properties.setTtl(Duration.ofMillis(20));
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(1L, id -> { loads.incrementAndGet(); return Optional.of(person1); });
+        Thread.sleep(50);
+        cache.get(1L, id -> { loads.incrementAndGet(); return Optional.of(person1); });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void shouldReadFromSecondTierBeforeLoader(){
+        LocalCacheTier tier = new LocalCacheTier();
+        PersonCache node1 = new PersonCache(properties, tier);
+        PersonCache node2 = new PersonCache(properties, tier);
+        AtomicInteger loads = new AtomicInteger();
+
+        node1.get(1L, id -> { loads.incrementAndGet(); return Optional.of(person1); });
+        Optional<Person> found = node2.get(1L, id -> { loads.incrementAndGet(); return Optional.of(person1); });
+
+        assertEquals(Optional.of(person1), found);
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void shouldInvalidateEveryNodeSharingTheTier(){
+        LocalCacheTier tier = new LocalCacheTier();
+        PersonCache node1 = new PersonCache(properties, tier);
+        PersonCache node2 = new PersonCache(properties, tier);
+        node1.get(1L, id -> Optional.of(person1));
+        node2.get(1L, id -> Optional.of(person1));
+
+        node1.evict(1L);
+
+        assertEquals(0, node1.size());
+        assertEquals(0, node2.size());
+        assertTrue(tier.get(1L).isEmpty());
+    }
+
+    @Test
+    void shouldNotPublishLoadThatRacedWithEviction(){
+        LocalCacheTier tier = new LocalCacheTier();
+        PersonCache cache = new PersonCache(properties, tier);
+
+        // a escrita (evict) acontece enquanto o loader ainda le a versao antiga
+        cache.get(1L, id -> { cache.evict(1L); return Optional.of(person1); });
+        assertTrue(tier.get(1L).isEmpty());
+
+        cache.getAll(List.of(2L), ids -> { cache.evict(2L); return List.of(person(2L)); });
+        assertTrue(tier.get(2L).isEmpty());
+
+        cache.get(3L, id -> Optional.of(person(3L)));
+        assertTrue(tier.get(3L).isPresent());
+    }
+
+    @Test
+    void shouldExpireSecondTierEntries() throws InterruptedException {
+        LocalCacheTier tier = new LocalCacheTier(100, Duration.ofMillis(20));
+        tier.put(1L, person1);
+
+        Thread.sleep(50);
+
+        assertTrue(tier.get(1L).isEmpty());
+    }
+
+    @Test
+    void shouldShareInFlightLoadBetweenConcurrentVirtualThreads() throws Exception {
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Optional<Person>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> cache.get(1L, id -> {
+                    loads.incrementAndGet();
+                    awaitRelease(release);
+                    return Optional.of(person1);
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Optional<Person>> result : results) {
+                assertEquals(Optional.of(person1), result.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(49, cache.stats().hitCount());
+        assertEquals(49, cache.coalescedIdLoads());
+    }
+
+    @Test
+    void shouldShareInFlightEmailQueryBetweenConcurrentVirtualThreads() throws Exception {
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+        AtomicInteger queries = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<Optional<Person>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 50; i++) {
+                results.add(executor.submit(() -> cache.findByEmail(person1.getEmail(), email -> {
+                    queries.incrementAndGet();
+                    awaitRelease(release);
+                    return Optional.of(person1);
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<Optional<Person>> result : results) {
+                assertEquals(Optional.of(person1), result.get(5, TimeUnit.SECONDS));
+            }
+        }
+
+        assertEquals(1, queries.get());
+        assertEquals(49, cache.coalescedEmailLoads());
+        // sem cache por email: a proxima busca consulta de novo
+        cache.findByEmail(person1.getEmail(), email -> { queries.incrementAndGet(); return Optional.of(person1); });
+        assertEquals(2, queries.get());
+    }
+
+    @Test
+    void shouldLoadOnlyMissingIdsInOneCallAndKeepRequestOrder(){
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+        Person person2 = new Person("Emily", "Pereira", "456 Elm St", "F", "emily@gmail.com");
+        person2.setId(2L);
+        cache.get(1L, id -> Optional.of(person1));
+        List<List<Long>> calls = new ArrayList<>();
+
+        Map<Long, Person> found = cache.getAll(List.of(3L, 2L, 1L), ids -> { calls.add(ids); return List.of(person2); });
+
+        assertEquals(List.of(2L, 1L), List.copyOf(found.keySet()));
+        assertEquals(List.of(List.of(3L, 2L)), calls);
+        // 3 nao existe e nao fica no cache; 2 fica
+        assertEquals(2, cache.size());
+        cache.getAll(List.of(1L, 2L), ids -> { calls.add(ids); return List.of(); });
+        assertEquals(1, calls.size());
+    }
+
+    @Test
+    void shouldPropagateBulkLoaderErrorWithoutCachingIt(){
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+
+        assertThrows(IllegalStateException.class,
+                () -> cache.getAll(List.of(1L, 2L), ids -> { throw new IllegalStateException("database down"); }));
+
+        assertEquals(0, cache.size());
+        assertEquals(Optional.of(person1), cache.get(1L, id -> Optional.of(person1)));
+    }
+
+    @Test
+    void shouldPropagateLoaderErrorWithoutCachingIt(){
+        PersonCache cache = new PersonCache(properties, CacheTier.NONE);
+
+        assertThrows(IllegalStateException.class,
+                () -> cache.get(1L, id -> { throw new IllegalStateException("database down"); }));
+        Optional<Person> found = cache.get(1L, id -> Optional.of(person1));
+
+        assertEquals(Optional.of(person1), found);
+    }
+
+    private static Person person(Long id) {
+        Person person = new Person("Name" + id, "Last" + id, "Street " + id, "M", "person" + id + "@gmail.com");
+        person.setId(id);
+        return person;
+    }
+
+    private static void awaitRelease(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.giordanni.cache;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    private static final int KEYS = 8;
+    private static final int CALLERS = 2_000;
+
+    @Test
+    void shouldRunOneLoadPerKeyWhileItIsInFlight() throws Exception {
+        SingleFlight<Integer, String> flight = new SingleFlight<>(Duration.ofSeconds(10));
+        AtomicIntegerArray loads = new AtomicIntegerArray(KEYS);
+        AtomicIntegerArray running = new AtomicIntegerArray(KEYS);
+        CountDownLatch start = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < CALLERS; i++) {
+                int key = i % KEYS;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return flight.execute(key, () -> {
+                        loads.incrementAndGet(key);
+                        // duas cargas da mesma chave nunca rodam ao mesmo tempo
+                        assertEquals(1, running.incrementAndGet(key));
+                        sleep(ThreadLocalRandom.current().nextInt(1, 5));
+                        running.decrementAndGet(key);
+                        return "value-" + key;
+                    });
+                }));
+            }
+            start.countDown();
+
+            for (int i = 0; i < CALLERS; i++) {
+                assertEquals("value-" + (i % KEYS), results.get(i).get(10, TimeUnit.SECONDS));
+            }
+        }
+
+        int totalLoads = 0;
+        for (int key = 0; key < KEYS; key++) {
+            totalLoads += loads.get(key);
+        }
+        // toda chamada ou carregou ou esperou a carga de outra
+        assertEquals(CALLERS, totalLoads + flight.coalesced());
+        assertTrue(totalLoads < CALLERS / 2, "loads: " + totalLoads);
+        assertEquals(0, flight.inFlight());
+    }
+
+    @Test
+    void shouldPropagateLoaderErrorToEveryWaiterAndForgetIt() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofSeconds(5));
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> flight.execute(1L, () -> {
+                    awaitRelease(release);
+                    throw new IllegalStateException("database down");
+                })));
+            }
+            Thread.sleep(100);
+            release.countDown();
+
+            for (Future<String> result : results) {
+                ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+                assertInstanceOf(IllegalStateException.class, error.getCause());
+            }
+        }
+
+        assertEquals("ok", flight.execute(1L, () -> "ok"));
+    }
+
+    @Test
+    void shouldStopWaitingAfterTimeoutWhileLeaderFinishes() throws Exception {
+        SingleFlight<Long, String> flight = new SingleFlight<>(Duration.ofMillis(50));
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<String> leader = executor.submit(() -> flight.execute(1L, () -> {
+                loads.incrementAndGet();
+                started.countDown();
+                awaitRelease(release);
+                return "slow";
+            }));
+            assertTrue(started.await(5, TimeUnit.SECONDS));
+
+            assertThrows(QueryTimeoutException.class, () -> flight.execute(1L, () -> "not called"));
+
+            release.countDown();
+            assertEquals("slow", leader.get(5, TimeUnit.SECONDS));
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(1, flight.coalesced());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitRelease(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
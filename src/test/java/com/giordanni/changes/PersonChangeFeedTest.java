@@ -0,0 +1,166 @@
+package com.giordanni.changes;
+
+import com.giordanni.config.PersonChangesProperties;
+import com.giordanni.dto.PersonChangeEvent;
+import com.giordanni.dto.PersonChangePage;
+import com.giordanni.exception.ChangeCursorExpiredException;
+import com.giordanni.model.PersonChange;
+import com.giordanni.repository.PersonChangeRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Limit;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PersonChangeFeedTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T12:00:00Z");
+
+    @Mock
+    private PersonChangeRepository repository;
+
+    private final PersonChangesProperties properties = new PersonChangesProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    PersonChangeFeed feed;
+
+    @BeforeEach
+    void setUp(){
+        feed = new PersonChangeFeed(repository, properties, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        feed.close();
+    }
+
+    private static PersonChange change(long id, Duration age){
+        return new PersonChange(id, 100L + id, PersonChange.Type.UPDATED, 1L, NOW.minus(age));
+    }
+
+    private void publishThrough(long id){
+        given(repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1000)))
+                .willReturn(List.of(change(id, Duration.ofMinutes(1))));
+        feed.relay();
+    }
+
+    @Test
+    void shouldPublishOnlyChangesOlderThanSettleTest(){
+        given(repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1000))).willReturn(List.of(
+                change(1L, Duration.ofSeconds(5)),
+                change(2L, Duration.ofSeconds(2)),
+                // transacao recente: um id menor ainda pode estar para commitar
+                change(4L, Duration.ofMillis(300))));
+
+        feed.relay();
+
+        assertEquals(2L, feed.cursor());
+        assertEquals(2L, meterRegistry.get("person.changes.cursor").gauge().value());
+    }
+
+    @Test
+    void shouldCountFailedRelayCyclesAndKeepCursorTest(){
+        publishThrough(3L);
+        given(repository.findByIdGreaterThanOrderByIdAsc(3L, Limit.of(1000)))
+                .willThrow(new IllegalStateException("outbox query failed"));
+
+        feed.poll();
+        feed.poll();
+
+        assertEquals(3L, feed.cursor());
+        assertEquals(2, meterRegistry.get("person.changes.relay.failures").counter().count());
+    }
+
+    @Test
+    void shouldReturnOnlyCursorWithoutSinceTest(){
+        publishThrough(7L);
+
+        PersonChangePage page = feed.read(null, 100);
+
+        assertTrue(page.content().isEmpty());
+        assertEquals(7L, page.nextCursor());
+        verify(repository, never()).findEvents(anyLong(), anyLong(), any());
+    }
+
+    @Test
+    void shouldReadEventsUpToPublishedCursorTest(){
+        publishThrough(7L);
+        given(repository.findFirstId()).willReturn(1L);
+        PersonChangeEvent event = new PersonChangeEvent(5L, PersonChange.Type.CREATED, 105L, 0L, NOW, null);
+        given(repository.findEvents(3L, 7L, Limit.of(2))).willReturn(List.of(event));
+
+        PersonChangePage page = feed.read(3L, 2);
+
+        assertEquals(List.of(event), page.content());
+        // pagina incompleta: o cursor vai ate o publicado, pulando ids de transacoes desfeitas
+        assertEquals(7L, page.nextCursor());
+    }
+
+    @Test
+    void shouldContinueFromLastEventWhenPageIsFullTest(){
+        publishThrough(7L);
+        given(repository.findFirstId()).willReturn(1L);
+        given(repository.findEvents(0L, 7L, Limit.of(1))).willReturn(List.of(
+                new PersonChangeEvent(1L, PersonChange.Type.CREATED, 101L, 0L, NOW, null)));
+
+        assertEquals(1L, feed.read(0L, 1).nextCursor());
+    }
+
+    @Test
+    void shouldRejectCursorOlderThanRetainedChangesTest(){
+        given(repository.findFirstId()).willReturn(10L);
+
+        assertThrows(ChangeCursorExpiredException.class, () -> feed.read(5L, 100));
+        assertDoesNotThrow(() -> feed.read(9L, 100));
+        assertThrows(IllegalArgumentException.class, () -> feed.read(9L, 0));
+        assertThrows(IllegalArgumentException.class, () -> feed.read(-1L, 100));
+    }
+
+    @Test
+    void shouldWakeWaitersOnceCursorPassesThemTest() throws Exception {
+        CountDownLatch woken = new CountDownLatch(1);
+        CountDownLatch ahead = new CountDownLatch(1);
+        feed.await(0L, woken::countDown);
+        feed.await(7L, ahead::countDown);
+        assertEquals(2, meterRegistry.get("person.changes.waiters").gauge().value());
+
+        publishThrough(7L);
+
+        assertTrue(woken.await(5, TimeUnit.SECONDS));
+        assertEquals(1, ahead.getCount());
+        assertEquals(1, meterRegistry.get("person.changes.waiters").gauge().value());
+    }
+
+    @Test
+    void shouldNotKeepCancelledWaitersTest(){
+        Runnable cancel = feed.await(0L, () -> fail("cancelled waiter was woken"));
+
+        cancel.run();
+
+        assertEquals(0, meterRegistry.get("person.changes.waiters").gauge().value());
+    }
+
+    @Test
+    void shouldPurgeBeforeRetentionKeepingPublishedCursorTest(){
+        publishThrough(7L);
+
+        feed.purge();
+
+        verify(repository).purge(NOW.minus(properties.getRetention()), 7L);
+    }
+}
@@ -0,0 +1,33 @@
+package com.giordanni.config;
+
+import com.giordanni.cache.CacheTier;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.model.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonMetricsConfigTest {
+
+    @Test
+    void shouldExposePersonCacheStatsAsMeters(){
+        PersonCache cache = new PersonCache(new PersonCacheProperties(), CacheTier.NONE);
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new PersonMetricsConfig().personCacheMetrics(cache).bindTo(registry);
+
+        Person person = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        cache.get(1L, id -> Optional.of(person));
+        cache.get(1L, id -> Optional.of(person));
+        cache.get(1L, id -> Optional.of(person));
+
+        assertEquals(2, registry.get("cache.gets").tags("cache", "person", "result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("cache.gets").tags("cache", "person", "result", "miss").functionCounter().count());
+        assertEquals(1, registry.get("cache.size").tag("cache", "person").gauge().value());
+        assertEquals(0, registry.get("person.singleflight.coalesced").tag("key", "id").functionCounter().count());
+        assertEquals(0, registry.get("person.singleflight.coalesced").tag("key", "email").functionCounter().count());
+    }
+}
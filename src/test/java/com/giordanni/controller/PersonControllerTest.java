@@ -1,33 +1,76 @@
 package com.giordanni.controller;
 
 import static org.hamcrest.CoreMatchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.delete;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
-
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import com.giordanni.changes.PersonChangeFeed;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.BatchRowResult;
+import com.giordanni.dto.PersonChangeEvent;
+import com.giordanni.dto.PersonChangePage;
+import com.giordanni.dto.PersonCollectionVersion;
+import com.giordanni.dto.PersonEmail;
+import com.giordanni.dto.PersonName;
+import com.giordanni.dto.PersonPage;
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.dto.PersonSearchCriteria;
+import com.giordanni.dto.WriteStatus;
+import com.giordanni.exception.ChangeCursorExpiredException;
 import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.exception.WriteQueueFullException;
+import com.giordanni.export.PersonExportFormat;
+import com.giordanni.export.PersonExporter;
 import com.giordanni.model.Person;
+import com.giordanni.model.PersonChange;
+import com.giordanni.service.PersonBatchService;
 import com.giordanni.service.PersonService;
+import com.giordanni.writebehind.PersonWriteBehindQueue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.data.domain.Sort;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 
 @WebMvcTest(PersonController.class) // se colocar entre parentese informo qual controller quero testar e evito de subir todos
 class PersonControllerTest {
@@ -41,6 +84,18 @@ class PersonControllerTest {
     @MockBean
     private PersonService service;
 
+    @MockBean
+    private PersonBatchService batchService;
+
+    @MockBean
+    private PersonWriteBehindQueue writeBehind;
+
+    @MockBean
+    private PersonChangeFeed changeFeed;
+
+    @MockBean
+    private PersonExporter exporter;
+
     Person person1;
     Person person2;
 
@@ -48,6 +103,7 @@ class PersonControllerTest {
     void setUp(){
         person1 = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
         person2 = new Person("Emily", "Pereira", "456 Elm St", "F", "emily@gmail.com");
+        when(service.collectionVersion()).thenReturn(new PersonCollectionVersion(2L, 3L));
     }
 
     @Test
@@ -84,6 +140,31 @@ class PersonControllerTest {
                 .andExpect(jsonPath("$.size()", is(personList.size())));
     }
 
+    @Test
+    void shouldFindAllAsProjectionWithItsOwnETagTest() throws Exception {
+        willReturn(List.of(new PersonName(1L, "Giordanni", "Formiga"), new PersonName(2L, "Emily", "Pereira")))
+                .given(service).findAll(PersonProjection.NAME);
+
+        ResultActions response = mockMvc.perform(get("/person/all").param("fields", "lastName,firstName"));
+
+        response.andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-3-name\""))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[0].firstName", is("Giordanni")))
+                .andExpect(jsonPath("$[0].email").doesNotExist())
+                .andExpect(jsonPath("$[0].address").doesNotExist());
+        verify(service, never()).findAllPerson();
+    }
+
+    @Test
+    void shouldReturnBadRequestForUnsupportedFieldsTest() throws Exception {
+        mockMvc.perform(get("/person/all").param("fields", "address"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/person/search").param("fields", "firstName,email"))
+                .andExpect(status().isBadRequest());
+        verify(service, never()).findAll(any(PersonProjection.class));
+    }
+
     @Test
     void shouldFindByIdPersonControllerTest() throws JsonProcessingException, Exception {
         Long personId = 1L;
@@ -99,6 +180,64 @@ class PersonControllerTest {
                 .andExpect(jsonPath("$.email", is(person1.getEmail())));
     }
 
+    @Test
+    void shouldFindManyByIdsTest() throws Exception {
+        given(service.findAllById(new LinkedHashSet<>(List.of(2L, 1L, 9L)))).willReturn(List.of(person2, person1));
+
+        ResultActions response = mockMvc.perform(get("/person").param("ids", "2,1,9,1"));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.size()", is(2)))
+                .andExpect(jsonPath("$[0].email", is(person2.getEmail())))
+                .andExpect(jsonPath("$[1].email", is(person1.getEmail())));
+    }
+
+    @Test
+    void shouldRejectTooManyIdsOnMultiGetTest() throws Exception {
+        given(service.findAllById(any())).willThrow(new IllegalArgumentException("Between 1 and 1000 ids are required."));
+
+        mockMvc.perform(get("/person").param("ids", "1,2"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldStreamGzipExportFromCursorTest() throws Exception {
+        PersonExporter.Export export = mock(PersonExporter.Export.class);
+        given(exporter.tryStart()).willReturn(export);
+        willAnswer(invocation -> {
+            invocation.<OutputStream>getArgument(4).write("chunk".getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).given(export).write(eq(PersonExportFormat.NDJSON), eq(true), eq(42L), isNull(), any());
+
+        MvcResult asyncResult = mockMvc.perform(get("/person/export")
+                        .param("format", "ndjson").param("gzip", "true").param("after", "42"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andExpect(content().string("chunk"));
+        // a vaga do export volta quando o corpo termina
+        verify(export).close();
+    }
+
+    @Test
+    void shouldReturnServiceUnavailableWhenTooManyExportsRunTest() throws Exception {
+        given(exporter.tryStart()).willReturn(null);
+
+        mockMvc.perform(get("/person/export"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void shouldRejectUnknownExportFormatTest() throws Exception {
+        mockMvc.perform(get("/person/export").param("format", "xml"))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturnEmptyWhenPersonNotFoundByIdTest() throws JsonProcessingException, Exception {
         Long personId = 1L;
@@ -111,6 +250,16 @@ class PersonControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void shouldReturnServiceUnavailableWhenSharedLoadTimesOutTest() throws Exception {
+        when(service.findById(1L)).thenThrow(new QueryTimeoutException("Shared load did not finish within PT5S"));
+
+        ResultActions response = mockMvc.perform(get("/person/{id}", 1L));
+
+        response.andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
     @Test
     void shouldUpdatePersonTest() throws JsonProcessingException, Exception {
 
@@ -136,7 +285,7 @@ class PersonControllerTest {
         Long personId = 1L;
         when(service.findById(personId)).thenThrow(ResourceNotFoundException.class);
         when(service.updatePerson(any(Person.class)))
-                .thenAnswer((invocation) -> invocation.getArgument(1));
+                .thenThrow(ResourceNotFoundException.class);
 
         ResultActions response = mockMvc.perform(put("/person")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -146,6 +295,18 @@ class PersonControllerTest {
                 .andDo(print());
     }
 
+    @Test
+    void shouldReturnBadRequestWhenUpdatedEmailBelongsToAnotherPersonTest() throws Exception {
+        when(service.updatePerson(any(Person.class)))
+                .thenThrow(new IllegalArgumentException("Person with email emily@gmail.com already exists."));
+
+        ResultActions response = mockMvc.perform(put("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(person2)));
+
+        response.andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldDeletePersonTest() throws Exception {
         Long personId = 1L;
@@ -157,4 +318,456 @@ class PersonControllerTest {
         response.andExpect(status().isNoContent())
                 .andDo(print());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldDeletePeopleByIdListTest() throws Exception {
+        given(service.deletePeople(new LinkedHashSet<>(List.of(1L, 2L, 3L)))).willReturn(2);
+
+        ResultActions response = mockMvc.perform(delete("/person").param("ids", "1,2,3,2"));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$.deleted", is(2)))
+                .andDo(print());
+    }
+
+    @Test
+    void shouldRejectBulkDeleteWithInvalidIdsTest() throws Exception {
+        given(service.deletePeople(anyCollection())).willThrow(new IllegalArgumentException("Between 1 and 1000 ids are required."));
+
+        mockMvc.perform(delete("/person").param("ids", "abc"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(delete("/person").param("ids", ""))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldFindPageWithNextCursorTest() throws Exception {
+        person1.setId(1L);
+        person2.setId(2L);
+        when(service.findPage(null, 2))
+                .thenReturn(new PersonPage(List.of(person1, person2), 2L));
+
+        ResultActions response = mockMvc.perform(get("/person/page").param("size", "2"));
+
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.content.size()", is(2)))
+                .andExpect(jsonPath("$.nextCursor", is(2)));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenPageSizeIsInvalidTest() throws Exception {
+        when(service.findPage(null, 0))
+                .thenThrow(IllegalArgumentException.class);
+
+        ResultActions response = mockMvc.perform(get("/person/page").param("size", "0"));
+
+        response.andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldStreamAllPersonAsNdjsonTest() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<Person> consumer = invocation.getArgument(0);
+            consumer.accept(person1);
+            consumer.accept(person2);
+            return null;
+        }).given(service).streamAllPerson(any(Consumer.class));
+
+        MvcResult asyncResult = mockMvc.perform(get("/person/all").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(
+                        objectMapper.writeValueAsString(person1) + "\n"
+                                + objectMapper.writeValueAsString(person2) + "\n"));
+    }
+
+    @Test
+    void shouldStreamProjectionAsNdjsonTest() throws Exception {
+        PersonEmail email = new PersonEmail(1L, person1.getEmail());
+        willAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(1).accept(email);
+            return null;
+        }).given(service).streamAll(eq(PersonProjection.EMAIL), any());
+
+        MvcResult asyncResult = mockMvc.perform(get("/person/all").param("fields", "email").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().string(objectMapper.writeValueAsString(email) + "\n"));
+    }
+
+    @Test
+    void shouldCreatePeopleInBatchTest() throws Exception {
+        when(batchService.createPeople(anyList()))
+                .thenReturn(BatchResult.of(List.of(
+                        BatchRowResult.created(0, person1.getEmail(), 1L),
+                        BatchRowResult.failed(1, person2.getEmail(), "Person with email " + person2.getEmail() + " already exists."))));
+
+        ResultActions response = mockMvc.perform(post("/person/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(person1, person2))));
+
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.created", is(1)))
+                .andExpect(jsonPath("$.failed", is(1)))
+                .andExpect(jsonPath("$.rows[0].status", is("CREATED")))
+                .andExpect(jsonPath("$.rows[1].status", is("FAILED")));
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenBatchIsTooLargeTest() throws Exception {
+        when(batchService.createPeople(anyList()))
+                .thenThrow(IllegalArgumentException.class);
+
+        ResultActions response = mockMvc.perform(post("/person/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(List.of(person1))));
+
+        response.andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
+    @Test
+    void shouldSearchPersonTest() throws Exception {
+        PersonSearchCriteria criteria = new PersonSearchCriteria("Gio", null, "M", "gmail.com");
+        when(service.search(criteria, Sort.by(Sort.Direction.DESC, "lastName"), 5))
+                .thenReturn(List.of(person1));
+
+        ResultActions response = mockMvc.perform(get("/person/search")
+                .param("firstName", "Gio")
+                .param("gender", "M")
+                .param("emailDomain", "gmail.com")
+                .param("sort", "lastName,desc")
+                .param("limit", "5"));
+
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.size()", is(1)))
+                .andExpect(jsonPath("$[0].firstName", is(person1.getFirstName())));
+    }
+
+    @Test
+    void shouldSearchWithProjectionTest() throws Exception {
+        PersonSearchCriteria criteria = new PersonSearchCriteria(null, null, null, "gmail.com");
+        willReturn(List.of(new PersonEmail(1L, person1.getEmail())))
+                .given(service).search(criteria, Sort.by("id"), 10, PersonProjection.EMAIL);
+
+        ResultActions response = mockMvc.perform(get("/person/search")
+                .param("emailDomain", "gmail.com")
+                .param("limit", "10")
+                .param("fields", "id,email"));
+
+        response.andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].email", is(person1.getEmail())))
+                .andExpect(jsonPath("$[0].firstName").doesNotExist());
+    }
+
+    @Test
+    void shouldReturnBadRequestWhenSearchIsInvalidTest() throws Exception {
+        when(service.search(any(PersonSearchCriteria.class), any(Sort.class), anyInt()))
+                .thenThrow(IllegalArgumentException.class);
+
+        ResultActions response = mockMvc.perform(get("/person/search").param("sort", "address"));
+
+        response.andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
+    @Test
+    void shouldPatchPersonTest() throws Exception {
+        Long personId = 1L;
+        person1.setAddress("Novo Endereco");
+        when(service.patchPerson(eq(personId), any(JsonNode.class)))
+                .thenReturn(person1);
+
+        ResultActions response = mockMvc.perform(patch("/person/{id}", personId)
+                .contentType(PersonController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"address\": \"Novo Endereco\"}"));
+
+        response.andExpect(status().isOk())
+                .andDo(print())
+                .andExpect(jsonPath("$.address", is("Novo Endereco")));
+    }
+
+    @Test
+    void shouldReturnConflictWhenPatchVersionIsStaleTest() throws Exception {
+        when(service.patchPerson(eq(1L), any(JsonNode.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Person.class, 1L));
+
+        ResultActions response = mockMvc.perform(patch("/person/{id}", 1L)
+                .contentType(PersonController.MERGE_PATCH_JSON_VALUE)
+                .content("{\"address\": \"X\", \"version\": 0}"));
+
+        response.andExpect(status().isConflict())
+                .andDo(print());
+    }
+
+    @Test
+    void shouldReturnNotFoundOrBadRequestOnInvalidPatchTest() throws Exception {
+        when(service.patchPerson(eq(1L), any(JsonNode.class)))
+                .thenThrow(ResourceNotFoundException.class);
+        when(service.patchPerson(eq(2L), any(JsonNode.class)))
+                .thenThrow(IllegalArgumentException.class);
+
+        mockMvc.perform(patch("/person/{id}", 1L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"address\": \"X\"}"))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(patch("/person/{id}", 2L)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"lastName\": null}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shouldReturnETagAndNotModifiedForSameVersionTest() throws Exception {
+        person1.setVersion(4L);
+        when(service.findById(1L)).thenReturn(person1);
+
+        mockMvc.perform(get("/person/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+
+        mockMvc.perform(get("/person/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""))
+                .andExpect(content().string(""));
+
+        mockMvc.perform(get("/person/{id}", 1L).header(HttpHeaders.IF_NONE_MATCH, "\"3\""))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void shouldNotLoadAllPersonWhenCollectionIsNotModifiedTest() throws Exception {
+        mockMvc.perform(get("/person/all").header(HttpHeaders.IF_NONE_MATCH, "\"2-3\""))
+                .andDo(print())
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        mockMvc.perform(get("/person/all")
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"2-3-ndjson\""))
+                .andExpect(status().isNotModified());
+
+        verify(service, never()).findAllPerson();
+        verify(service, never()).streamAllPerson(any());
+    }
+
+    @Test
+    void shouldGiveEachRepresentationItsOwnETagTest() throws Exception {
+        person1.setVersion(4L);
+        when(service.findById(1L)).thenReturn(person1);
+        when(service.findAllPerson()).thenReturn(List.of(person1));
+
+        mockMvc.perform(get("/person/{id}", 1L).accept(PersonController.JACKSON_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4-smile\""))
+                .andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT));
+        // o ETag do JSON nao valida a copia em Smile
+        mockMvc.perform(get("/person/{id}", 1L).accept(PersonController.JACKSON_SMILE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"4\""))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/person/{id}", 1L).accept(PersonController.JACKSON_SMILE)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"4-smile\""))
+                .andExpect(status().isNotModified());
+
+        mockMvc.perform(get("/person/all").header(HttpHeaders.IF_NONE_MATCH, "\"2-3-ndjson\""))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-3\""));
+        mockMvc.perform(get("/person/all").accept(PersonController.JACKSON_SMILE))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"2-3-smile\""));
+        verify(service, atLeastOnce()).collectionVersion();
+    }
+
+    @Test
+    void shouldUseIfMatchAsExpectedVersionOnUpdateTest() throws Exception {
+        when(service.updatePerson(argThat(person -> person.getVersion() == 3L)))
+                .thenAnswer(invocation -> {
+                    Person updated = invocation.getArgument(0);
+                    updated.setVersion(4L);
+                    return updated;
+                });
+
+        mockMvc.perform(put("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"3\"")
+                        .content(objectMapper.writeValueAsString(person2)))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"4\""));
+    }
+
+    @Test
+    void shouldReturnPreconditionFailedWhenIfMatchIsStaleOrForeignTest() throws Exception {
+        when(service.updatePerson(any(Person.class)))
+                .thenThrow(new ObjectOptimisticLockingFailureException(Person.class, 1L));
+
+        mockMvc.perform(put("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"2\"")
+                        .content(objectMapper.writeValueAsString(person2)))
+                .andExpect(status().isPreconditionFailed());
+        mockMvc.perform(put("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "W/\"2\"")
+                        .content(objectMapper.writeValueAsString(person2)))
+                .andExpect(status().isPreconditionFailed());
+
+        verify(service, times(1)).updatePerson(any(Person.class));
+    }
+
+    @Test
+    void shouldNegotiateSmileForRequestAndResponseBodiesTest() throws Exception {
+        ObjectMapper smileMapper = new SmileMapper();
+        when(service.createPerson(any(Person.class)))
+                .thenAnswer((invocation) -> invocation.getArgument(0));
+        when(service.findAllPerson()).thenReturn(List.of(person1, person2));
+
+        byte[] created = mockMvc.perform(post("/person")
+                        .contentType(PersonController.JACKSON_SMILE)
+                        .accept(PersonController.JACKSON_SMILE)
+                        .content(smileMapper.writeValueAsBytes(person1)))
+                .andExpect(status().isCreated())
+                .andExpect(content().contentType(PersonController.JACKSON_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(person1, smileMapper.readValue(created, Person.class));
+
+        byte[] all = mockMvc.perform(get("/person/all").accept(PersonController.JACKSON_SMILE))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(PersonController.JACKSON_SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+        assertEquals(List.of(person1, person2), List.of(smileMapper.readValue(all, Person[].class)));
+
+        // sem Accept continua JSON
+        mockMvc.perform(get("/person/all"))
+                .andExpect(content().contentType(MediaType.APPLICATION_JSON));
+    }
+
+    @Test
+    void shouldAcceptWritesBehindWhenClientPrefersRespondAsyncTest() throws Exception {
+        when(writeBehind.submitCreate(any(Person.class))).thenReturn(WriteStatus.pending("t-1"));
+        person2.setId(2L);
+        when(writeBehind.submitUpdate(any(Person.class))).thenReturn(WriteStatus.pending("t-2"));
+
+        mockMvc.perform(post("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Prefer", "wait=5, respond-async")
+                        .content(objectMapper.writeValueAsString(person1)))
+                .andExpect(status().isAccepted())
+                .andExpect(header().string(HttpHeaders.LOCATION, "http://localhost/person/writes/t-1"))
+                .andExpect(header().string("Preference-Applied", "respond-async"))
+                .andExpect(jsonPath("$.status", is("PENDING")));
+        mockMvc.perform(put("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_MATCH, "\"4\"")
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(person2)))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.ticket", is("t-2")));
+
+        verify(writeBehind).submitUpdate(argThat(person -> person.getVersion() == 4L));
+        verify(service, never()).createPerson(any(Person.class));
+        verify(service, never()).updatePerson(any(Person.class));
+    }
+
+    @Test
+    void shouldKeepSynchronousContractWithoutPreferTest() throws Exception {
+        when(service.createPerson(any(Person.class)))
+                .thenAnswer((invocation) -> invocation.getArgument(0));
+
+        mockMvc.perform(post("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(person1)))
+                .andExpect(status().isCreated());
+
+        verify(writeBehind, never()).submitCreate(any(Person.class));
+    }
+
+    @Test
+    void shouldShedLoadWhenWriteBehindQueueIsFullTest() throws Exception {
+        when(writeBehind.submitCreate(any(Person.class))).thenThrow(new WriteQueueFullException("Write-behind queue is full."));
+
+        mockMvc.perform(post("/person")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .header("Prefer", "respond-async")
+                        .content(objectMapper.writeValueAsString(person1)))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "1"));
+    }
+
+    @Test
+    void shouldReportWriteBehindStatusByTicketTest() throws Exception {
+        when(writeBehind.status("t-1")).thenReturn(Optional.of(WriteStatus.done("t-1", 7L)));
+        when(writeBehind.status("unknown")).thenReturn(Optional.empty());
+
+        mockMvc.perform(get("/person/writes/{ticket}", "t-1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status", is("DONE")))
+                .andExpect(jsonPath("$.personId", is(7)));
+        mockMvc.perform(get("/person/writes/{ticket}", "unknown"))
+                .andExpect(status().isNotFound());
+    }
+
+    @Test
+    void shouldReturnChangesSinceCursorTest() throws Exception {
+        person1.setId(7L);
+        when(changeFeed.read(3L, 100)).thenReturn(new PersonChangePage(List.of(
+                new PersonChangeEvent(4L, PersonChange.Type.UPDATED, 7L, 2L, Instant.parse("2024-05-01T12:00:00Z"), person1)), 4L));
+
+        MvcResult asyncResult = mockMvc.perform(get("/person/changes").param("since", "3"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].type", is("UPDATED")))
+                .andExpect(jsonPath("$.content[0].person.email", is(person1.getEmail())))
+                .andExpect(jsonPath("$.nextCursor", is(4)));
+        verify(changeFeed, never()).await(anyLong(), any());
+    }
+
+    @Test
+    void shouldLongPollUntilRelayPublishesTest() throws Exception {
+        when(changeFeed.maxWait()).thenReturn(Duration.ofSeconds(30));
+        when(changeFeed.read(5L, 100))
+                .thenReturn(new PersonChangePage(List.of(), 5L))
+                .thenReturn(new PersonChangePage(List.of(
+                        new PersonChangeEvent(6L, PersonChange.Type.DELETED, 9L, 1L, Instant.parse("2024-05-01T12:00:00Z"), null)), 6L));
+        given(changeFeed.await(eq(5L), any())).willAnswer(invocation -> {
+            // relay publica logo em seguida
+            invocation.<Runnable>getArgument(1).run();
+            return (Runnable) () -> { };
+        });
+
+        MvcResult asyncResult = mockMvc.perform(get("/person/changes").param("since", "5").param("wait", "20"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[0].type", is("DELETED")))
+                .andExpect(jsonPath("$.nextCursor", is(6)));
+    }
+
+    @Test
+    void shouldRejectExpiredOrInvalidChangeCursorTest() throws Exception {
+        when(changeFeed.read(1L, 100)).thenThrow(new ChangeCursorExpiredException("Changes after cursor 1 were purged."));
+        when(changeFeed.read(1L, 0)).thenThrow(new IllegalArgumentException("Limit must be between 1 and 1000."));
+
+        MvcResult expired = mockMvc.perform(get("/person/changes").param("since", "1")).andReturn();
+        mockMvc.perform(asyncDispatch(expired)).andExpect(status().isGone());
+
+        MvcResult invalid = mockMvc.perform(get("/person/changes").param("since", "1").param("limit", "0")).andReturn();
+        mockMvc.perform(asyncDispatch(invalid)).andExpect(status().isBadRequest());
+    }
+}
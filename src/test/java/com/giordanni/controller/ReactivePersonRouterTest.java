@@ -0,0 +1,267 @@
+package com.giordanni.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// JDBC (escritas + schema do Hibernate) e R2DBC (leituras) apontam para o mesmo banco H2 em memoria
+@ActiveProfiles({"test", "reactive"})
+@AutoConfigureWebTestClient
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "spring.datasource.url=jdbc:h2:mem:reactive;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.url=r2dbc:h2:mem:///reactive;DB_CLOSE_DELAY=-1",
+        "spring.r2dbc.username=sa",
+        "spring.r2dbc.password="
+})
+class ReactivePersonRouterTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @Autowired
+    private PersonRepository repository;
+
+    Person person1;
+    Person person2;
+
+    @BeforeEach
+    void setUp(){
+        person1 = repository.save(new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com"));
+        person2 = repository.save(new Person("Emily", "Pereira", "456 Elm St", "F", "emily@outlook.com"));
+    }
+
+    @AfterEach
+    void cleanUp(){
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldFindPersonByIdOrReturnNotFound(){
+        webTestClient.get().uri("/person/{id}", person1.getId())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.firstName").isEqualTo("Giordanni")
+                .jsonPath("$.version").isEqualTo(0)
+                .jsonPath("$.emailDomain").doesNotExist();
+
+        webTestClient.get().uri("/person/{id}", person2.getId() + 1000)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldListAllAsJsonArray(){
+        webTestClient.get().uri("/person/all")
+                .accept(MediaType.APPLICATION_JSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[*].firstName").value(contains("Giordanni", "Emily"));
+    }
+
+    @Test
+    void shouldStreamAllAsNdjsonOnDemand(){
+        Flux<Person> body = webTestClient.get().uri("/person/all")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Person.class)
+                .getResponseBody();
+
+        // pede uma linha por vez: o servidor so le o proximo registro quando ha demanda
+        StepVerifier.create(body, 1)
+                .expectNextMatches(person -> person.getId().equals(person1.getId()))
+                .thenRequest(1)
+                .expectNextMatches(person -> person.getId().equals(person2.getId()))
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldPageAndSearchWithSameRulesAsMvc(){
+        webTestClient.get().uri("/person/page?size=1")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.content[0].id").isEqualTo(person1.getId())
+                .jsonPath("$.nextCursor").isEqualTo(person1.getId());
+
+        webTestClient.get().uri("/person/page?size=0")
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri("/person/search?emailDomain=@Outlook.com&gender=F")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[*].firstName").value(contains("Emily"));
+
+        webTestClient.get().uri("/person/search?firstName=Gi&sort=email,desc")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[*].firstName").value(contains("Giordanni"));
+
+        webTestClient.get().uri("/person/search?sort=address")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void shouldWriteThroughBlockingServicesWithSameStatuses(){
+        webTestClient.post().uri("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Person("Vilma", "Cleide", "Rua das Flores", "F", "vilma@gmail.com"))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectBody()
+                .jsonPath("$.id").isNotEmpty();
+
+        webTestClient.post().uri("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(new Person("Outra", "Vilma", "Rua B", "F", "vilma@gmail.com"))
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.post().uri("/person/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(List.of(new Person("Ana", "Souza", "Rua C", "F", "ana@gmail.com")))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.created").isEqualTo(1);
+
+        webTestClient.patch().uri("/person/{id}", person1.getId())
+                .contentType(MediaType.valueOf(PersonController.MERGE_PATCH_JSON_VALUE))
+                .bodyValue("{\"address\": \"Novo Endereco\", \"version\": 0}")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.address").isEqualTo("Novo Endereco");
+
+        webTestClient.patch().uri("/person/{id}", person1.getId())
+                .contentType(MediaType.valueOf(PersonController.MERGE_PATCH_JSON_VALUE))
+                .bodyValue("{\"address\": \"Outro\", \"version\": 0}")
+                .exchange()
+                .expectStatus().isEqualTo(409);
+
+        webTestClient.delete().uri("/person/{id}", person2.getId())
+                .exchange()
+                .expectStatus().isNoContent();
+
+        webTestClient.get().uri("/person/{id}", person2.getId())
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldRejectUpdateWithEmailOfAnotherPersonWithBadRequest(){
+        Person taken = new Person("Giordanni", "Formiga", "123 Main St", "M", person2.getEmail());
+        taken.setId(person1.getId());
+
+        // como no MVC: 400, e nao 404 do catch-all
+        webTestClient.put().uri("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(taken)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        Person missing = new Person("Ninguem", "Aqui", "Rua X", "M", "ninguem@gmail.com");
+        missing.setId(person2.getId() + 1000);
+        webTestClient.put().uri("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(missing)
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void shouldAnswerConditionalRequestsLikeMvc(){
+        webTestClient.get().uri("/person/{id}", person1.getId())
+                .header(HttpHeaders.IF_NONE_MATCH, "\"" + person1.getVersion() + "\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+
+        String allETag = webTestClient.get().uri("/person/all")
+                .exchange()
+                .expectStatus().isOk()
+                .returnResult(Person.class)
+                .getResponseHeaders().getETag();
+        webTestClient.get().uri("/person/all")
+                .header(HttpHeaders.IF_NONE_MATCH, allETag)
+                .exchange()
+                .expectStatus().isNotModified();
+
+        Person stale = new Person("Giordanni", "Alves", "123 Main St", "M", "giordanniformiga@gmail.com");
+        stale.setId(person1.getId());
+        webTestClient.put().uri("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"" + (person1.getVersion() + 1) + "\"")
+                .bodyValue(stale)
+                .exchange()
+                .expectStatus().isEqualTo(412);
+        webTestClient.put().uri("/person")
+                .contentType(MediaType.APPLICATION_JSON)
+                .header(HttpHeaders.IF_MATCH, "\"" + person1.getVersion() + "\"")
+                .bodyValue(stale)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"" + (person1.getVersion() + 1) + "\"");
+
+        // a escrita muda o agregado da tabela
+        webTestClient.get().uri("/person/all")
+                .header(HttpHeaders.IF_NONE_MATCH, allETag)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    void shouldNegotiateSmileLikeMvc() throws Exception {
+        ObjectMapper smileMapper = new SmileMapper();
+
+        byte[] found = webTestClient.get().uri("/person/{id}", person1.getId())
+                .accept(PersonController.JACKSON_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(PersonController.JACKSON_SMILE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals(person1.getEmail(), smileMapper.readValue(found, Person.class).getEmail());
+
+        byte[] all = webTestClient.get().uri("/person/all")
+                .accept(PersonController.JACKSON_SMILE)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentType(PersonController.JACKSON_SMILE)
+                .expectBody(byte[].class).returnResult().getResponseBody();
+        assertEquals(2, smileMapper.readValue(all, Person[].class).length);
+
+        webTestClient.post().uri("/person")
+                .contentType(PersonController.JACKSON_SMILE)
+                .bodyValue(smileMapper.writeValueAsBytes(new Person("Vilma", "Cleide", "Rua das Flores", "F", "vilma@gmail.com")))
+                .exchange()
+                .expectStatus().isCreated()
+                .expectHeader().contentType(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .jsonPath("$.email").isEqualTo("vilma@gmail.com");
+    }
+}
@@ -0,0 +1,275 @@
+package com.giordanni.datasource;
+
+import com.giordanni.config.PersonReplicaProperties;
+import org.h2.jdbcx.JdbcDataSource;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.FutureTask;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReplicaRoutingDataSourceTest {
+
+    PersonReplicaProperties properties;
+    MutableClock clock;
+    DataSource primary;
+    DataSource replica;
+
+    @BeforeEach
+    void setUp(){
+        properties = new PersonReplicaProperties();
+        properties.setStickyWindow(Duration.ofSeconds(2));
+        properties.setMaxLag(Duration.ofSeconds(5));
+        clock = new MutableClock();
+        primary = database("primary");
+        replica = database("replica");
+    }
+
+    // cada banco H2 guarda o proprio nome, para o teste saber de onde veio a conexao
+    private static DataSource database(String name){
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE node (name VARCHAR(20))");
+        jdbc.update("INSERT INTO node VALUES (?)", name);
+        jdbc.execute("CREATE TABLE replication_lag (seconds DOUBLE)");
+        jdbc.update("INSERT INTO replication_lag VALUES (0)");
+        return dataSource;
+    }
+
+    private static String nodeOf(DataSource dataSource) throws SQLException {
+        try (Connection connection = dataSource.getConnection()) {
+            return nodeOf(connection);
+        }
+    }
+
+    private static String nodeOf(Connection connection){
+        return new JdbcTemplate(new SingleConnectionDataSource(connection, true))
+                .queryForObject("SELECT name FROM node", String.class);
+    }
+
+    private static FilterChain readsFrom(String node, DataSource dataSource){
+        return (request, response) -> {
+            try {
+                assertEquals(node, nodeOf(dataSource));
+            } catch (SQLException e) {
+                throw new ServletException(e);
+            }
+        };
+    }
+
+    @AfterEach
+    void unbindCaller(){
+        LastWrite.unbind();
+    }
+
+    private ReplicaRoutingDataSource router(DataSource... replicas){
+        List<ReplicaNode> nodes = IntStream.range(0, replicas.length)
+                .mapToObj(i -> new ReplicaNode("replica-" + i, replicas[i]))
+                .toList();
+        return new ReplicaRoutingDataSource(primary, nodes, properties, clock);
+    }
+
+    @Test
+    void shouldReadFromReplicaWhenThereWasNoRecentWrite() throws SQLException {
+        ReplicaRoutingDataSource router = router(replica);
+
+        assertEquals("replica", nodeOf(router));
+    }
+
+    @Test
+    void shouldStickToPrimaryRightAfterWrite() throws SQLException {
+        ReplicaRoutingDataSource router = router(replica);
+        LastWrite.bind(new LastWrite(LastWrite.NONE));
+
+        router.markWrite();
+        assertEquals("primary", nodeOf(router));
+
+        clock.advance(Duration.ofSeconds(3));
+        assertEquals("replica", nodeOf(router));
+    }
+
+    @Test
+    void shouldNotPinOtherClientsToPrimaryAfterWrite() throws Exception {
+        ReplicaRoutingDataSource router = router(replica);
+        LastWrite clientA = new LastWrite(LastWrite.NONE);
+        LastWrite clientB = new LastWrite(LastWrite.NONE);
+
+        LastWrite.bind(clientA);
+        router.markWrite();
+        assertEquals("primary", nodeOf(router));
+
+        // cliente B, em outra thread, logo depois da escrita de A
+        LastWrite.bind(clientB);
+        assertEquals("replica", nodeOf(router));
+        FutureTask<String> otherThread = new FutureTask<>(() -> nodeOf(router));
+        Thread.ofVirtual().start(otherThread).join();
+        assertEquals("replica", otherThread.get());
+
+        // A volta numa requisicao nova (cookie) e continua no primario
+        LastWrite.bind(new LastWrite(clientA.millis()));
+        assertEquals("primary", nodeOf(router));
+    }
+
+    @Test
+    void shouldCarryLastWriteBetweenRequestsInCookie() throws Exception {
+        ReplicaRoutingDataSource router = router(replica);
+        ReadYourWritesFilter filter = new ReadYourWritesFilter(router);
+
+        MockHttpServletResponse write = new MockHttpServletResponse();
+        filter.doFilter(new MockHttpServletRequest("PUT", "/person"), write, (request, response) -> {
+            router.markWrite();
+            response.getWriter().write("{}");
+        });
+        Cookie cookie = write.getCookie(ReadYourWritesFilter.COOKIE);
+        assertNotNull(cookie);
+        assertEquals(clock.millis(), Long.parseLong(cookie.getValue()));
+        assertNull(LastWrite.current());
+
+        // mesmo cliente: primario; sem cookie (outro cliente): replica; sem escrita: nenhum Set-Cookie
+        MockHttpServletRequest sameClient = new MockHttpServletRequest("GET", "/person/1");
+        sameClient.setCookies(cookie);
+        MockHttpServletResponse read = new MockHttpServletResponse();
+        filter.doFilter(sameClient, read, readsFrom("primary", router));
+        filter.doFilter(new MockHttpServletRequest("GET", "/person/1"), new MockHttpServletResponse(),
+                readsFrom("replica", router));
+        assertNull(read.getCookie(ReadYourWritesFilter.COOKIE));
+    }
+
+    @Test
+    void shouldSkipReplicaThatLagsTooMuch() throws SQLException {
+        properties.setLagQuery("SELECT seconds FROM replication_lag");
+        ReplicaRoutingDataSource router = router(replica);
+
+        new JdbcTemplate(replica).update("UPDATE replication_lag SET seconds = 10");
+        router.checkHealth();
+        assertEquals("primary", nodeOf(router));
+
+        new JdbcTemplate(replica).update("UPDATE replication_lag SET seconds = 1");
+        router.checkHealth();
+        assertEquals("replica", nodeOf(router));
+    }
+
+    @Test
+    void shouldFailOverToNextReplicaAndBackAfterHealthCheck() throws SQLException {
+        FlakyDataSource flaky = new FlakyDataSource(replica);
+        ReplicaRoutingDataSource router = router(flaky, database("replica-b"));
+
+        flaky.down = true;
+        assertEquals("replica-b", nodeOf(router));
+        assertEquals("replica-b", nodeOf(router));
+        assertFalse(router.getReplicas().get(0).isHealthy());
+
+        flaky.down = false;
+        router.checkHealth();
+        assertTrue(router.getReplicas().get(0).isHealthy());
+        assertEquals("replica", nodeOf(router));
+    }
+
+    @Test
+    void shouldPinLongReadToOneSourceWhileRotationMovesOn() throws SQLException {
+        DataSource other = database("other");
+        ReplicaRoutingDataSource router = router(replica, other);
+
+        DataSource pinned = router.pin();
+        String node = nodeOf(pinned);
+
+        // o rodizio segue para as outras leituras, a fonte fixada nao muda
+        assertNotEquals(node, nodeOf(router));
+        assertEquals(node, nodeOf(pinned));
+
+        LastWrite.bind(new LastWrite(LastWrite.NONE));
+        router.markWrite();
+        assertSame(primary, router.pin());
+    }
+
+    @Test
+    void shouldFallBackToPrimaryWhenNoReplicaIsAvailable() throws SQLException {
+        FlakyDataSource flaky = new FlakyDataSource(replica);
+        flaky.down = true;
+        ReplicaRoutingDataSource router = router(flaky);
+
+        assertEquals("primary", nodeOf(router));
+    }
+
+    @Test
+    void shouldRouteOnlyReadOnlyConnectionsThroughLazyProxy() throws SQLException {
+        ReplicaRoutingDataSource router = router(replica);
+        LastWrite.bind(new LastWrite(LastWrite.NONE));
+        LazyConnectionDataSourceProxy dataSource = new LazyConnectionDataSourceProxy(new WriteTrackingDataSource(primary, router));
+        dataSource.setReadOnlyDataSource(router);
+
+        // conexao sem read-only: primario, e a escrita fica registrada no roteador
+        assertEquals("primary", nodeOf(dataSource));
+        assertEquals("primary", nodeOf(router));
+
+        clock.advance(Duration.ofSeconds(3));
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setReadOnly(true);
+            assertEquals("replica", nodeOf(connection));
+        }
+    }
+
+    static class MutableClock extends Clock {
+
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration){
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneOffset getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+
+    static class FlakyDataSource extends DelegatingDataSource {
+
+        volatile boolean down;
+
+        FlakyDataSource(DataSource target){
+            super(target);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            if (down) {
+                throw new SQLException("replica is down");
+            }
+            return super.getConnection();
+        }
+    }
+}
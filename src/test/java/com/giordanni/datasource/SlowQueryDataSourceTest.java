@@ -0,0 +1,81 @@
+package com.giordanni.datasource;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.boot.test.system.CapturedOutput;
+import org.springframework.boot.test.system.OutputCaptureExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Duration;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(OutputCaptureExtension.class)
+class SlowQueryDataSourceTest {
+
+    MeterRegistry meterRegistry;
+    JdbcDataSource database;
+
+    @BeforeEach
+    void setUp(){
+        meterRegistry = new SimpleMeterRegistry();
+        database = new JdbcDataSource();
+        database.setURL("jdbc:h2:mem:slow-query-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(database).execute("CREATE TABLE person (id BIGINT PRIMARY KEY, email VARCHAR(100))");
+    }
+
+    private JdbcTemplate jdbc(Duration threshold, String callerPackage){
+        return new JdbcTemplate(new SlowQueryDataSource(database, threshold, callerPackage, () -> meterRegistry));
+    }
+
+    @Test
+    void shouldRecordSlowQueryWithSqlAndCaller(CapturedOutput output){
+        JdbcTemplate jdbc = jdbc(Duration.ZERO, "com.giordanni.datasource");
+
+        jdbc.queryForObject("SELECT COUNT(*) FROM person WHERE id = ?", Long.class, 1L);
+
+        assertEquals(1, meterRegistry.get("person.db.slow.queries")
+                .tag("caller", "SlowQueryDataSourceTest.shouldRecordSlowQueryWithSqlAndCaller")
+                .timer().count());
+        assertTrue(output.getOut().contains("SlowQueryDataSourceTest.shouldRecordSlowQueryWithSqlAndCaller: SELECT COUNT(*) FROM person WHERE id = ?"));
+    }
+
+    @Test
+    void shouldUseStatementSqlAndUnknownCallerOutsideCallerPackage(CapturedOutput output){
+        JdbcTemplate jdbc = jdbc(Duration.ZERO, "com.giordanni.service");
+
+        jdbc.execute("DELETE FROM person");
+
+        assertEquals(1, meterRegistry.get("person.db.slow.queries")
+                .tag("caller", SlowQueryDataSource.UNKNOWN_CALLER)
+                .timer().count());
+        assertTrue(output.getOut().contains("in unknown: DELETE FROM person"));
+    }
+
+    @Test
+    void shouldIgnoreQueriesUnderThreshold(){
+        JdbcTemplate jdbc = jdbc(Duration.ofHours(1), "com.giordanni.datasource");
+
+        jdbc.update("INSERT INTO person VALUES (?, ?)", 1L, "giordanniformiga@gmail.com");
+
+        assertEquals(1L, jdbc.queryForObject("SELECT COUNT(*) FROM person", Long.class));
+        assertNull(meterRegistry.find("person.db.slow.queries").timer());
+    }
+
+    @Test
+    void shouldClosePoolItWraps() throws Exception {
+        HikariDataSource pool = new HikariDataSource();
+        pool.setDataSource(database);
+        SlowQueryDataSource dataSource = new SlowQueryDataSource(pool, Duration.ZERO, "com.giordanni.service", () -> meterRegistry);
+
+        dataSource.close();
+
+        assertTrue(pool.isClosed());
+    }
+}
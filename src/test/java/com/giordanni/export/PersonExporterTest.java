@@ -0,0 +1,154 @@
+package com.giordanni.export;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.config.PersonExportProperties;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// commits reais: as faixas sao lidas por outras threads, com outras conexoes
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class PersonExporterTest {
+
+    private static final int PEOPLE = 20;
+
+    @Autowired
+    private PersonRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private PersonExporter exporter;
+    private List<Long> ids;
+
+    @BeforeEach
+    void setUp(){
+        PersonExportProperties properties = new PersonExportProperties();
+        properties.setParallelism(3);
+        properties.setRangeSize(2);
+        properties.setMaxConcurrent(1);
+        exporter = new PersonExporter(() -> dataSource, objectMapper.getFactory(), properties, new SimpleMeterRegistry());
+
+        List<Person> people = new ArrayList<>();
+        for (int i = 0; i < PEOPLE; i++) {
+            people.add(new Person("Name" + i, "Last" + i, "Street " + i + ", apto \"" + i + "\"", "M", "export" + i + "@gmail.com"));
+        }
+        ids = repository.saveAll(people).stream().map(Person::getId).sorted().toList();
+    }
+
+    @AfterEach
+    void cleanUp(){
+        exporter.close();
+        jdbcTemplate.update("DELETE FROM person");
+    }
+
+    @Test
+    void shouldExportCsvInIdOrderWithoutDeletedRows() throws IOException {
+        jdbcTemplate.update("UPDATE person SET deleted_at = CURRENT_TIMESTAMP WHERE id = ?", ids.get(5));
+
+        String[] lines = export(PersonExportFormat.CSV, false, 0, null).split("\n");
+
+        assertEquals("id,firstName,lastName,address,gender,email,version", lines[0]);
+        assertEquals(PEOPLE, lines.length);
+        assertEquals(ids.get(0) + ",Name0,Last0,\"Street 0, apto \"\"0\"\"\",M,export0@gmail.com,0", lines[1]);
+        List<Long> exported = new ArrayList<>();
+        for (int i = 1; i < lines.length; i++) {
+            exported.add(Long.parseLong(lines[i].substring(0, lines[i].indexOf(','))));
+        }
+        List<Long> expected = new ArrayList<>(ids);
+        expected.remove(5);
+        assertEquals(expected, exported);
+    }
+
+    @Test
+    void shouldResumeGzipNdjsonExportFromCursor() throws IOException {
+        long cursor = ids.get(6);
+
+        String ndjson = export(PersonExportFormat.NDJSON, true, cursor, ids.get(15));
+
+        List<Long> exported = new ArrayList<>();
+        for (String line : ndjson.split("\n")) {
+            JsonNode row = objectMapper.readTree(line);
+            exported.add(row.get("id").asLong());
+            assertTrue(row.get("email").asText().startsWith("export"));
+        }
+        assertEquals(ids.subList(7, 16), exported);
+    }
+
+    @Test
+    void shouldNotRepeatCsvHeaderWhenResumingFromCursor() throws IOException {
+        String[] lines = export(PersonExportFormat.CSV, true, ids.get(17), null).split("\n");
+
+        assertEquals(2, lines.length);
+        assertTrue(lines[0].startsWith(ids.get(18) + ",Name18,"));
+    }
+
+    @Test
+    void shouldRejectExportAboveMaxConcurrentUntilRunningOneCloses(){
+        PersonExporter.Export running = exporter.tryStart();
+        assertNotNull(running);
+
+        assertNull(exporter.tryStart());
+
+        running.close();
+        running.close();
+        PersonExporter.Export next = exporter.tryStart();
+        assertNotNull(next);
+        assertNull(exporter.tryStart());
+        next.close();
+    }
+
+    @Test
+    void shouldWriteValidGzipWhenNothingMatches() throws IOException {
+        assertEquals("", export(PersonExportFormat.NDJSON, true, ids.get(PEOPLE - 1), null));
+    }
+
+    @Test
+    void shouldQuoteCsvFieldsOnlyWhenNeeded(){
+        assertEquals("Rua A", PersonExporter.csvField("Rua A"));
+        assertEquals("\"Rua A, 10\"", PersonExporter.csvField("Rua A, 10"));
+        assertEquals("\"linha\nnova\"", PersonExporter.csvField("linha\nnova"));
+        assertEquals("", PersonExporter.csvField(null));
+    }
+
+    private String export(PersonExportFormat format, boolean gzip, long after, Long until) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PersonExporter.Export export = exporter.tryStart()) {
+            export.write(format, gzip, after, until, out);
+        }
+        byte[] body = out.toByteArray();
+        if (gzip) {
+            // um membro gzip por faixa: o GZIPInputStream le todos em sequencia
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+                body = in.readAllBytes();
+            }
+        }
+        return new String(body, StandardCharsets.UTF_8);
+    }
+}
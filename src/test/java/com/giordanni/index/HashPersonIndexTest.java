@@ -0,0 +1,107 @@
+package com.giordanni.index;
+
+import com.giordanni.config.PersonIndexProperties;
+import com.giordanni.dto.PersonKeys;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HashPersonIndexTest {
+
+    @Mock
+    private PersonRepository repository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final PersonIndexProperties properties = new PersonIndexProperties();
+
+    Person person1;
+    Person person2;
+
+    @BeforeEach
+    void setUp(){
+        person1 = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        person1.setId(1L);
+        person2 = new Person("Giordanni", "Formiga", "456 Elm St", "M", "giordanni@yahoo.com");
+        person2.setId(2L);
+    }
+
+    private HashPersonIndex index(){
+        return new HashPersonIndex(repository, transactionTemplate, properties);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldLoadKeysOnStart(){
+        willAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).given(transactionTemplate).executeWithoutResult(any(Consumer.class));
+        given(repository.streamKeys()).willReturn(Stream.of(
+                new PersonKeys(1L, person1.getEmail(), "Giordanni", "Formiga"),
+                new PersonKeys(2L, person2.getEmail(), "Giordanni", "Formiga")));
+        HashPersonIndex index = index();
+
+        index.start();
+
+        assertEquals(2, index.size());
+        assertArrayEquals(new long[]{2L}, index.idsByEmail(person2.getEmail()));
+        assertArrayEquals(new long[]{1L, 2L}, index.idsByName("Giordanni", "Formiga"));
+        assertTrue(index.memoryBytes() > 0);
+    }
+
+    @Test
+    void shouldReplaceOldKeysOnPutAndDropThemOnRemove(){
+        HashPersonIndex index = index();
+        index.put(person1);
+        index.put(person2);
+
+        person1.setEmail("novo@gmail.com");
+        person1.setLastName("Silva");
+        index.put(person1);
+
+        assertArrayEquals(new long[0], index.idsByEmail("giordanniformiga@gmail.com"));
+        assertArrayEquals(new long[]{1L}, index.idsByEmail("novo@gmail.com"));
+        assertArrayEquals(new long[]{2L}, index.idsByName("Giordanni", "Formiga"));
+        assertEquals(2, index.size());
+
+        index.remove(2L);
+
+        assertArrayEquals(new long[0], index.idsByName("Giordanni", "Formiga"));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void shouldNotMixNameBoundaries(){
+        assertNotEquals(HashPersonIndex.nameKey("ab", "c"), HashPersonIndex.nameKey("a", "bc"));
+        assertNotEquals(HashPersonIndex.nameKey("a", null), HashPersonIndex.nameKey("a", ""));
+    }
+
+    @Test
+    void shouldStopGrowingAtMaxEntries(){
+        properties.setMaxEntries(1);
+        HashPersonIndex index = index();
+
+        index.put(person1);
+        index.put(person2);
+        index.put(person1);
+
+        assertEquals(1, index.size());
+        assertArrayEquals(new long[]{1L}, index.idsByName("Giordanni", "Formiga"));
+        assertArrayEquals(new long[0], index.idsByEmail(person2.getEmail()));
+    }
+}
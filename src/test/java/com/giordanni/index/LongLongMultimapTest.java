@@ -0,0 +1,63 @@
+package com.giordanni.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LongLongMultimapTest {
+
+    @Test
+    void shouldKeepEveryValueOfARepeatedKeyInOrder(){
+        LongLongMultimap map = new LongLongMultimap();
+
+        map.put(7L, 30L);
+        map.put(7L, 10L);
+        map.put(8L, 20L);
+
+        assertArrayEquals(new long[]{10L, 30L}, map.getAll(7L));
+        assertEquals(20L, map.get(8L));
+        assertArrayEquals(new long[0], map.getAll(9L));
+        assertEquals(0L, map.get(9L));
+        assertEquals(3, map.size());
+    }
+
+    @Test
+    void shouldRemoveOnlyTheGivenPair(){
+        LongLongMultimap map = new LongLongMultimap();
+        map.put(7L, 10L);
+        map.put(7L, 30L);
+
+        assertTrue(map.remove(7L, 10L));
+        assertFalse(map.remove(7L, 10L));
+
+        assertArrayEquals(new long[]{30L}, map.getAll(7L));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    void shouldGrowAndStayConsistentAfterManyRemovals(){
+        LongLongMultimap map = new LongLongMultimap();
+        Map<Long, Long> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (long id = 1; id <= 10_000; id++) {
+            map.put(id, id * 3);
+            expected.put(id, id * 3);
+        }
+        for (int i = 0; i < 5_000; i++) {
+            long id = 1 + random.nextInt(10_000);
+            if (expected.remove(id) != null) {
+                assertTrue(map.remove(id, id * 3));
+            }
+        }
+
+        assertEquals(expected.size(), map.size());
+        for (long id = 1; id <= 10_000; id++) {
+            assertEquals(expected.getOrDefault(id, 0L), map.get(id));
+        }
+        assertTrue(map.memoryBytes() >= 16L * 10_000);
+    }
+}
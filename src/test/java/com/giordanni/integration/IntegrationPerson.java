@@ -24,6 +24,46 @@ public class IntegrationPerson extends AbstractIntegrationTest{
                 .body("firstName", hasItems("Giordanni", "Emily"));
     }
 
+    @Test
+    @Sql(scripts = "/sql/seed_person.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void shouldPageByIdCursor() {
+        given()
+                .accept(ContentType.JSON)
+                .queryParam("size", 1)
+                .when()
+                .get("/page")
+                .then()
+                .statusCode(200)
+                .body("content.id", contains(1))
+                .body("nextCursor", equalTo(1));
+
+        given()
+                .accept(ContentType.JSON)
+                .queryParam("after", 1)
+                .queryParam("size", 1)
+                .when()
+                .get("/page")
+                .then()
+                .statusCode(200)
+                .body("content.id", contains(2));
+    }
+
+    @Test
+    @Sql(scripts = "/sql/seed_person.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void shouldSearchByGenderAndEmailDomain() {
+        given()
+                .accept(ContentType.JSON)
+                .queryParam("gender", "F")
+                .queryParam("emailDomain", "gmail.com")
+                .when()
+                .get("/search")
+                .then()
+                .statusCode(200)
+                .body("firstName", contains("Emily"));
+    }
+
     @Test
     @Sql(scripts = "/sql/seed_person.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
     @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
@@ -119,6 +159,30 @@ public class IntegrationPerson extends AbstractIntegrationTest{
     }
 
 
+    @Test
+    @Sql(scripts = "/sql/seed_person.sql",    executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void shouldPatchOnlyAddress() {
+
+        given().contentType("application/merge-patch+json")
+                .body("""
+                    { "address": "Endereço Parcial" }
+                """)
+                .when().patch("/{id}", 1)
+                .then().statusCode(HttpStatus.OK.value())
+                .body("address", equalTo("Endereço Parcial"))
+                .body("firstName", equalTo("Giordanni"))
+                .body("version", equalTo(1));
+
+        given().contentType("application/merge-patch+json")
+                .body("""
+                    { "address": "Outro", "version": 0 }
+                """)
+                .when().patch("/{id}", 1)
+                .then().statusCode(HttpStatus.CONFLICT.value());
+    }
+
+
     @Test
     @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
     @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
@@ -159,4 +223,22 @@ public class IntegrationPerson extends AbstractIntegrationTest{
 
 
 
+
+    @Test
+    @Sql(scripts = "/sql/seed_person.sql",    executionPhase = Sql.ExecutionPhase.BEFORE_TEST_METHOD)
+    @Sql(scripts = "/sql/cleanup_person.sql", executionPhase = Sql.ExecutionPhase.AFTER_TEST_METHOD)
+    void shouldExposeRequestQueryAndPoolMetrics() {
+        given().when().get("/{id}", 1).then().statusCode(200);
+
+        given().basePath("/actuator")
+                .when()
+                .get("/prometheus")
+                .then()
+                .statusCode(200)
+                .body(containsString("http_server_requests_seconds_bucket"))
+                .body(containsString("uri=\"/person/{id}\""))
+                .body(containsString("spring_data_repository_invocations_seconds"))
+                .body(containsString("hikaricp_connections_pending"))
+                .body(containsString("cache_gets_total{application=\"TestWithSpringBoot\",cache=\"person\""));
+    }
 }
@@ -0,0 +1,136 @@
+package com.giordanni.loader;
+
+import com.giordanni.config.PersonIdLoaderProperties;
+import com.giordanni.model.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonIdLoaderTest {
+
+    PersonIdLoaderProperties properties;
+    MeterRegistry registry;
+    List<List<Long>> queries;
+    PersonIdLoader loader;
+
+    @BeforeEach
+    void setUp(){
+        properties = new PersonIdLoaderProperties();
+        properties.setMaxWait(Duration.ofMillis(200));
+        properties.setMaxBatchSize(10);
+        registry = new SimpleMeterRegistry();
+        queries = new CopyOnWriteArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (loader != null) {
+            loader.close();
+        }
+    }
+
+    private void start(boolean failing){
+        loader = new PersonIdLoader(properties, ids -> {
+            queries.add(ids);
+            if (failing) {
+                throw new IllegalStateException("database down");
+            }
+            // id par existe, impar nao
+            return ids.stream().filter(id -> id % 2 == 0).map(PersonIdLoaderTest::person).toList();
+        }, registry);
+        loader.start();
+    }
+
+    @Test
+    void shouldGroupConcurrentLoadsIntoBatchesOfAtMostMaxSize() throws Exception {
+        start(false);
+
+        List<Future<Optional<Person>>> results = loadConcurrently(25);
+
+        for (int i = 0; i < 25; i++) {
+            Optional<Person> found = results.get(i).get(5, TimeUnit.SECONDS);
+            assertEquals(i % 2 == 0, found.isPresent());
+            found.ifPresent(person -> assertNotNull(person.getEmail()));
+        }
+        assertTrue(queries.size() <= 5, "queries: " + queries);
+        assertTrue(queries.stream().allMatch(ids -> ids.size() <= properties.getMaxBatchSize()));
+        assertEquals(25, queries.stream().mapToInt(List::size).sum());
+        assertEquals(25, registry.get("person.idloader.batch.size").summary().totalAmount());
+    }
+
+    @Test
+    void shouldPropagateQueryErrorToEveryCallerOfTheBatch() throws Exception {
+        start(true);
+
+        for (Future<Optional<Person>> result : loadConcurrently(5)) {
+            ExecutionException error = assertThrows(ExecutionException.class, () -> result.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, error.getCause());
+        }
+    }
+
+    @Test
+    void shouldStopWaitingForSlowBatchAfterTimeout() throws Exception {
+        properties.setMaxWait(Duration.ofMillis(1));
+        properties.setTimeout(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        loader = new PersonIdLoader(properties, ids -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return List.of();
+        }, registry);
+        loader.start();
+
+        assertThrows(QueryTimeoutException.class, () -> loader.load(2L));
+        release.countDown();
+    }
+
+    @Test
+    void shouldQueryDirectlyWhenNotStarted(){
+        loader = new PersonIdLoader(properties, ids -> { queries.add(ids); return List.of(person(2L)); }, registry);
+
+        assertEquals(2L, loader.load(2L).orElseThrow().getId());
+        assertEquals(List.of(List.of(2L)), queries);
+    }
+
+    private List<Future<Optional<Person>>> loadConcurrently(int count) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Optional<Person>>> results = new ArrayList<>();
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        for (long id = 0; id < count; id++) {
+            long key = id;
+            results.add(executor.submit(() -> {
+                start.await();
+                return loader.load(key);
+            }));
+        }
+        start.countDown();
+        executor.shutdown();
+        return results;
+    }
+
+    private static Person person(Long id){
+        Person person = new Person("Name" + id, "Last" + id, "Street " + id, "M", "person" + id + "@gmail.com");
+        person.setId(id);
+        return person;
+    }
+}
@@ -0,0 +1,82 @@
+package com.giordanni.purge;
+
+import com.giordanni.config.PersonPurgeProperties;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PersonPurgeJobTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T03:00:00Z");
+
+    @Mock
+    private PersonRepository repository;
+
+    private final PersonPurgeProperties properties = new PersonPurgeProperties();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @BeforeEach
+    void setUp(){
+        properties.setBatchSize(2);
+        properties.setPause(Duration.ZERO);
+    }
+
+    private PersonPurgeJob job(){
+        return new PersonPurgeJob(repository, properties, meterRegistry, Clock.fixed(NOW, ZoneOffset.UTC));
+    }
+
+    @Test
+    void shouldPurgeInBatchesUntilAShortBatch() throws Exception {
+        Instant cutoff = NOW.minus(properties.getGrace());
+        given(repository.findDeletedIdsBefore(cutoff, 2)).willReturn(List.of(1L, 2L), List.of(3L));
+        given(repository.purgeDeleted(List.of(1L, 2L))).willReturn(2);
+        given(repository.purgeDeleted(List.of(3L))).willReturn(1);
+
+        long purged = job().purge();
+
+        assertEquals(3, purged);
+        assertEquals(3, meterRegistry.get("person.purge.rows").counter().count());
+        verify(repository, times(2)).findDeletedIdsBefore(cutoff, 2);
+    }
+
+    @Test
+    void shouldStopWhenMaxDurationIsReached() throws Exception {
+        properties.setMaxDuration(Duration.ZERO);
+        given(repository.findDeletedIdsBefore(any(Instant.class), eq(2))).willReturn(List.of(1L, 2L));
+        given(repository.purgeDeleted(List.of(1L, 2L))).willReturn(2);
+
+        long purged = job().purge();
+
+        assertEquals(2, purged);
+        verify(repository, times(1)).findDeletedIdsBefore(any(Instant.class), eq(2));
+    }
+
+    @Test
+    void shouldNotDeleteWhenNothingIsTombstoned() throws Exception {
+        given(repository.findDeletedIdsBefore(any(Instant.class), eq(2))).willReturn(List.of());
+
+        assertEquals(0, job().purge());
+        verify(repository, never()).purgeDeleted(anyCollection());
+    }
+
+    @Test
+    void shouldRejectInvalidCron(){
+        properties.setCron("every night");
+
+        assertThrows(IllegalArgumentException.class, this::job);
+    }
+}
@@ -0,0 +1,93 @@
+package com.giordanni.ratelimit;
+
+import com.giordanni.config.PersonRateLimitProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimitTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final AtomicBoolean poolCongested = new AtomicBoolean();
+    private final PersonRateLimitProperties.Concurrency properties = new PersonRateLimitProperties.Concurrency();
+
+    private AdaptiveConcurrencyLimit limit(int initialLimit){
+        properties.setInitialLimit(initialLimit);
+        properties.setMinLimit(2);
+        return new AdaptiveConcurrencyLimit(properties, poolCongested::get, now::get);
+    }
+
+    private List<AdaptiveConcurrencyLimit.Permit> acquire(AdaptiveConcurrencyLimit limit, int count){
+        List<AdaptiveConcurrencyLimit.Permit> permits = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            permits.add(limit.tryAcquire(false));
+        }
+        return permits;
+    }
+
+    @Test
+    void shouldRejectAboveLimitAndLeaveRoomForCheapRequests(){
+        AdaptiveConcurrencyLimit limit = limit(4);
+
+        assertNotNull(limit.tryAcquire(true));
+        assertNotNull(limit.tryAcquire(true));
+        assertNull(limit.tryAcquire(true));
+        assertNotNull(limit.tryAcquire(false));
+        assertNotNull(limit.tryAcquire(false));
+        assertNull(limit.tryAcquire(false));
+        assertEquals(4, limit.inFlight());
+    }
+
+    @Test
+    void shouldGrowWhileSaturatedAndFast(){
+        AdaptiveConcurrencyLimit limit = limit(4);
+
+        for (int round = 0; round < 3; round++) {
+            acquire(limit, limit.limit()).forEach(AdaptiveConcurrencyLimit.Permit::release);
+        }
+
+        assertTrue(limit.limit() > 4);
+        assertEquals(0, limit.inFlight());
+    }
+
+    @Test
+    void shouldShrinkOnSlowResponse(){
+        AdaptiveConcurrencyLimit limit = limit(10);
+        AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire(false);
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        permit.release();
+
+        assertEquals(9, limit.limit());
+    }
+
+    @Test
+    void shouldShrinkWhenPoolIsCongestedButNotBelowMinimum(){
+        AdaptiveConcurrencyLimit limit = limit(3);
+        poolCongested.set(true);
+
+        for (int i = 0; i < 20; i++) {
+            limit.tryAcquire(false).release();
+        }
+
+        assertEquals(2, limit.limit());
+    }
+
+    @Test
+    void shouldReleasePermitOnlyOnce(){
+        AdaptiveConcurrencyLimit limit = limit(4);
+        AdaptiveConcurrencyLimit.Permit permit = limit.tryAcquire(false);
+        limit.tryAcquire(false);
+
+        permit.release();
+        permit.release();
+
+        assertEquals(1, limit.inFlight());
+    }
+}
@@ -0,0 +1,124 @@
+package com.giordanni.ratelimit;
+
+import com.giordanni.config.PersonRateLimitProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PersonRateLimitFilterTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PersonRateLimitProperties properties = new PersonRateLimitProperties();
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+    private PersonRateLimitFilter filter;
+
+    @BeforeEach
+    void setUp(){
+        properties.setCheap(new PersonRateLimitProperties.Budget(3, 1));
+        properties.setExpensive(new PersonRateLimitProperties.Budget(1, 0.5));
+        properties.getConcurrency().setInitialLimit(8);
+        concurrencyLimit = new AdaptiveConcurrencyLimit(properties.getConcurrency(), () -> false, now::get);
+        filter = new PersonRateLimitFilter(properties, concurrencyLimit, meterRegistry, now::get);
+    }
+
+    private MockHttpServletResponse call(String method, String uri, String apiKey) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest(method, uri);
+        if (apiKey != null) {
+            request.addHeader("X-API-Key", apiKey);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+
+    @Test
+    void shouldRejectWith429WhenClientBudgetIsExhausted() throws Exception {
+        for (int i = 0; i < 3; i++) {
+            assertEquals(200, call("GET", "/person/1", "client-a").getStatus());
+        }
+
+        MockHttpServletResponse rejected = call("GET", "/person/1", "client-a");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("person.ratelimit.rejected")
+                .tag("reason", "rate").tag("tier", "cheap").counter().count());
+    }
+
+    @Test
+    void shouldKeepSeparateBudgetsPerClientAndTier() throws Exception {
+        assertEquals(200, call("GET", "/person/all", "client-a").getStatus());
+
+        MockHttpServletResponse rejected = call("GET", "/person/search", "client-a");
+
+        assertEquals(429, rejected.getStatus());
+        assertEquals("2", rejected.getHeader("Retry-After"));
+        assertEquals(200, call("GET", "/person/all", "client-b").getStatus());
+        assertEquals(200, call("GET", "/person/1", "client-a").getStatus());
+    }
+
+    @Test
+    void shouldRefillBudgetOverTime() throws Exception {
+        call("DELETE", "/person", "client-a");
+        assertEquals(429, call("DELETE", "/person", "client-a").getStatus());
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(2));
+
+        assertEquals(200, call("DELETE", "/person", "client-a").getStatus());
+    }
+
+    @Test
+    void shouldRejectWith503WhenConcurrencyLimitIsTaken() throws Exception {
+        for (int i = 0; i < 8; i++) {
+            assertNotNull(concurrencyLimit.tryAcquire(false));
+        }
+
+        MockHttpServletResponse rejected = call("GET", "/person/1", null);
+
+        assertEquals(503, rejected.getStatus());
+        assertEquals("1", rejected.getHeader("Retry-After"));
+        assertEquals(1, meterRegistry.get("person.ratelimit.rejected")
+                .tag("reason", "concurrency").tag("tier", "cheap").counter().count());
+        assertEquals(200, call("GET", "/person/changes", null).getStatus());
+    }
+
+    @Test
+    void shouldReleasePermitWhenRequestEnds() throws Exception {
+        call("GET", "/person/1", null);
+
+        assertEquals(0, concurrencyLimit.inFlight());
+        assertEquals(8.0, meterRegistry.get("person.concurrency.limit").gauge().value());
+    }
+
+    @Test
+    void shouldNotShrinkLimitWhenStreamingResponseTakesLong() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/person/export");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) -> req.startAsync());
+        assertEquals(1, concurrencyLimit.inFlight());
+
+        // download de um minuto: muito acima do target-latency
+        now.addAndGet(TimeUnit.MINUTES.toNanos(1));
+        request.getAsyncContext().complete();
+
+        assertEquals(0, concurrencyLimit.inFlight());
+        assertEquals(8, concurrencyLimit.limit());
+    }
+
+    @Test
+    void shouldIgnorePathsOutsidePerson() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            assertEquals(200, call("GET", "/actuator/health", null).getStatus());
+        }
+        assertNull(meterRegistry.find("person.ratelimit.rejected").counter());
+    }
+}
@@ -0,0 +1,115 @@
+package com.giordanni.repository;
+
+import com.giordanni.dto.PersonChangeEvent;
+import com.giordanni.model.Person;
+import com.giordanni.model.PersonChange;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test") // carrega application-test.yml
+@DataJpaTest
+class PersonChangeRepositoryTest {
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private PersonChangeRepository personChangeRepository;
+
+    Person person1;
+    Person person2;
+
+    @BeforeEach
+    void setUp(){
+        person1 = personRepository.save(new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com"));
+        person2 = personRepository.save(new Person("Emily", "Pereira", "456 Elm St", "F", "emily@gmail.com"));
+        personRepository.flush();
+    }
+
+    @Test
+    void shouldRecordCreatedChangesWithInsertSelect(){
+        Instant now = Instant.now();
+
+        int inserted = personChangeRepository.recordCreated(List.of(person1.getId(), person2.getId()), now);
+
+        List<PersonChange> changes = personChangeRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(10));
+        assertEquals(2, inserted);
+        assertEquals(List.of(person1.getId(), person2.getId()), changes.stream().map(PersonChange::getPersonId).toList());
+        assertTrue(changes.stream().allMatch(change -> change.getType() == PersonChange.Type.CREATED));
+        assertTrue(changes.get(0).getId() < changes.get(1).getId());
+    }
+
+    @Test
+    void shouldReturnLastChangeIdForCollectionETag(){
+        assertNull(personChangeRepository.findLastId());
+
+        personChangeRepository.recordCreated(List.of(person1.getId()), Instant.now());
+        Long afterCreate = personChangeRepository.findLastId();
+        personChangeRepository.save(PersonChange.of(PersonChange.Type.UPDATED, person1));
+
+        assertNotNull(afterCreate);
+        assertTrue(personChangeRepository.findLastId() > afterCreate);
+    }
+
+    @Test
+    void shouldRecordDeletedChangesOnlyForRowsOfThatSoftDelete(){
+        Instant earlier = Instant.parse("2024-01-01T03:00:00Z");
+        Instant deletedAt = earlier.plusSeconds(1);
+        personRepository.softDelete(List.of(person2.getId()), earlier);
+        personRepository.softDelete(List.of(person1.getId()), deletedAt);
+
+        int inserted = personChangeRepository.recordDeleted(List.of(person1.getId(), person2.getId()), deletedAt);
+
+        List<PersonChangeEvent> events = personChangeRepository.findEvents(0L, Long.MAX_VALUE, Limit.of(10));
+        assertEquals(1, inserted);
+        assertEquals(1, events.size());
+        assertEquals(PersonChange.Type.DELETED, events.get(0).type());
+        assertEquals(person1.getId(), events.get(0).personId());
+        assertEquals(1L, events.get(0).version());
+        assertEquals(deletedAt, events.get(0).occurredAt());
+        // a pessoa apagada nao aparece no join
+        assertNull(events.get(0).person());
+    }
+
+    @Test
+    void shouldJoinCurrentPersonAndKeepDeletedAsNull(){
+        PersonChange created = personChangeRepository.save(PersonChange.of(PersonChange.Type.CREATED, person1));
+        PersonChange deleted = personChangeRepository.save(PersonChange.of(PersonChange.Type.DELETED, person2));
+        personRepository.delete(person2);
+        personRepository.flush();
+
+        List<PersonChangeEvent> events = personChangeRepository.findEvents(0L, deleted.getId(), Limit.of(10));
+
+        assertEquals(List.of(created.getId(), deleted.getId()), events.stream().map(PersonChangeEvent::id).toList());
+        assertEquals(person1.getEmail(), events.get(0).person().getEmail());
+        assertNull(events.get(1).person());
+        // o cursor publicado limita a leitura
+        assertEquals(1, personChangeRepository.findEvents(0L, created.getId(), Limit.of(10)).size());
+    }
+
+    @Test
+    void shouldPurgeOldChangesButKeepPublishedCursorRow(){
+        Instant old = Instant.now().minus(Duration.ofDays(30));
+        PersonChange first = personChangeRepository.save(new PersonChange(null, person1.getId(), PersonChange.Type.CREATED, 0L, old));
+        PersonChange second = personChangeRepository.save(new PersonChange(null, person2.getId(), PersonChange.Type.CREATED, 0L, old));
+        PersonChange recent = personChangeRepository.save(PersonChange.of(PersonChange.Type.UPDATED, person1));
+
+        int purged = personChangeRepository.purge(Instant.now().minus(Duration.ofDays(7)), second.getId());
+
+        assertEquals(1, purged);
+        assertEquals(second.getId(), personChangeRepository.findFirstId());
+        assertFalse(personChangeRepository.existsById(first.getId()));
+        assertTrue(personChangeRepository.existsById(recent.getId()));
+        assertEquals(second.getId(), personChangeRepository.findLastIdOccurredBefore(Instant.now().minus(Duration.ofDays(1))));
+    }
+}
@@ -0,0 +1,133 @@
+package com.giordanni.repository;
+
+import com.giordanni.cache.CacheTier;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.config.HibernateCacheConfig;
+import com.giordanni.config.HibernateCacheProperties;
+import com.giordanni.config.PersonCacheConfig;
+import com.giordanni.config.PersonCacheProperties;
+import com.giordanni.model.Person;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.HibernateMetrics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@ActiveProfiles("test") // carrega application-test.yml
+@DataJpaTest
+@Import({HibernateCacheConfig.class, PersonCacheConfig.class, PersonCache.class})
+@EnableConfigurationProperties({HibernateCacheProperties.class, PersonCacheProperties.class})
+@TestPropertySource(properties = {"person.hibernate-cache.enabled=true", "person.cache.second-tier=local"})
+// sem a transacao do teste: o cache de consultas so passa a valer depois do commit de quem escreveu
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class PersonRepositoryCacheTest {
+
+    @Autowired
+    private PersonRepository personRepository;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheTier cacheTier;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    Statistics statistics;
+    Person person1;
+
+    @BeforeEach
+    void setUp(){
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        person1 = personRepository.save(new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com"));
+        statistics.clear();
+    }
+
+    @AfterEach
+    void tearDown(){
+        personRepository.deleteAll();
+    }
+
+    @Test
+    void shouldServeRepeatedLookupsFromQueryCache(){
+        for (int i = 0; i < 2; i++) {
+            assertTrue(personRepository.findByEmail(person1.getEmail()).isPresent());
+            assertNotNull(personRepository.findByJPQL("Giordanni", "Formiga"));
+            assertNotNull(personRepository.findByJPQLNamedParams("Giordanni", "Formiga"));
+            assertNotNull(personRepository.findByNativeSQL("Giordanni", "Formiga"));
+        }
+
+        // findByJPQL e findByJPQLNamedParams geram o mesmo SQL e dividem a entrada no cache
+        assertEquals(3, statistics.getQueryCacheMissCount());
+        assertEquals(5, statistics.getQueryCacheHitCount());
+        assertEquals(3, statistics.getPrepareStatementCount());
+
+        // por id a entidade vem da regiao "person", gravada no insert
+        assertTrue(personRepository.findById(person1.getId()).isPresent());
+        assertEquals(1, statistics.getDomainDataRegionStatistics(Person.CACHE_REGION).getHitCount());
+        assertEquals(3, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    void shouldInvalidateCachedLookupsWhenPersonIsWritten(){
+        assertNotNull(personRepository.findByNativeSQL("Giordanni", "Formiga"));
+        assertNotNull(personRepository.findByJPQL("Giordanni", "Formiga"));
+        assertEquals("Formiga", personRepository.findByEmail(person1.getEmail()).orElseThrow().getLastName());
+
+        Person stored = personRepository.findById(person1.getId()).orElseThrow();
+        stored.setLastName("Alves");
+        personRepository.save(stored);
+
+        assertNull(personRepository.findByNativeSQL("Giordanni", "Formiga"));
+        assertNull(personRepository.findByJPQL("Giordanni", "Formiga"));
+        assertEquals("Alves", personRepository.findByEmail(person1.getEmail()).orElseThrow().getLastName());
+        assertEquals(0, statistics.getQueryCacheHitCount());
+    }
+
+    @Test
+    void shouldDropCachedPersonAndQueriesWhenAnotherNodeInvalidates(){
+        assertEquals("Formiga", personRepository.findById(person1.getId()).orElseThrow().getLastName());
+        assertNotNull(personRepository.findByJPQL("Giordanni", "Formiga"));
+
+        // escrita de outro no: nao passa pelo Hibernate desta instancia, so pela invalidacao do tier
+        jdbcTemplate.update("UPDATE person SET last_name = 'Alves', version = version + 1 WHERE id = ?", person1.getId());
+        assertEquals("Formiga", personRepository.findById(person1.getId()).orElseThrow().getLastName());
+        cacheTier.invalidate(person1.getId());
+
+        assertEquals("Alves", personRepository.findById(person1.getId()).orElseThrow().getLastName());
+        assertNull(personRepository.findByJPQL("Giordanni", "Formiga"));
+    }
+
+    @Test
+    void shouldExposeCacheStatisticsAsMeters(){
+        MeterRegistry registry = new SimpleMeterRegistry();
+        new HibernateMetrics(entityManagerFactory.unwrap(SessionFactory.class), "entityManagerFactory", Tags.empty())
+                .bindTo(registry);
+
+        personRepository.findByEmail(person1.getEmail());
+        personRepository.findByEmail(person1.getEmail());
+        personRepository.findById(person1.getId());
+
+        assertEquals(1, registry.get("hibernate.cache.query.requests").tag("result", "hit").functionCounter().count());
+        assertEquals(1, registry.get("hibernate.cache.query.requests").tag("result", "miss").functionCounter().count());
+        assertTrue(registry.get("hibernate.second.level.cache.requests").tags("region", Person.CACHE_REGION, "result", "hit")
+                .functionCounter().count() >= 1);
+    }
+}
@@ -1,14 +1,24 @@
 package com.giordanni.repository;
 
+import com.giordanni.dto.PersonEmail;
+import com.giordanni.dto.PersonKeys;
+import com.giordanni.dto.PersonName;
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.dto.PersonSearchCriteria;
 import com.giordanni.model.Person;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.ActiveProfiles;
 
+import java.time.Instant;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -137,4 +147,204 @@ class PersonRepositoryTest {
         assertEquals(person2.getFirstName(), findPerson.getFirstName());
         assertEquals(person2.getLastName(), findPerson.getLastName());
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldReturnPersonsAfterCursorInIdOrder(){
+        Person saved1 = personRepository.save(person1);
+        Person saved2 = personRepository.save(person2);
+
+        List<Person> firstPage = personRepository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(1));
+        List<Person> secondPage = personRepository.findByIdGreaterThanOrderByIdAsc(saved1.getId(), Limit.of(1));
+
+        assertEquals(List.of(saved1), firstPage);
+        assertEquals(List.of(saved2), secondPage);
+    }
+
+    @Test
+    void shouldStreamAllPersonsOrderedById(){
+        personRepository.save(person1);
+        personRepository.save(person2);
+
+        try (Stream<Person> persons = personRepository.streamAll()) {
+            List<String> emails = persons.map(Person::getEmail).toList();
+
+            assertEquals(List.of(person1.getEmail(), person2.getEmail()), emails);
+        }
+    }
+
+    @Test
+    void shouldReturnOnlyEmailsThatAlreadyExist(){
+        personRepository.save(person1);
+
+        Set<String> existing = personRepository.findExistingEmails(Set.of(person1.getEmail(), person2.getEmail()));
+
+        assertEquals(Set.of(person1.getEmail()), existing);
+    }
+
+    @Test
+    void shouldDeriveEmailDomainOnSave(){
+        person1.setEmail("Giordanni@GMAIL.com");
+
+        Person savedPerson = personRepository.saveAndFlush(person1);
+
+        assertEquals("gmail.com", savedPerson.getEmailDomain());
+    }
+
+    @Test
+    void shouldSearchByNamePrefixGenderAndEmailDomain(){
+        Person person3 = new Person("Giovana", "Pereira", "789 Oak St", "F", "giovana@outlook.com");
+        personRepository.saveAll(List.of(person1, person2, person3));
+
+        List<Person> byFirstName = search(new PersonSearchCriteria("Gio", null, null, null));
+        List<Person> byLastName = search(new PersonSearchCriteria(null, "Pere", null, null));
+        List<Person> byGenderAndPrefix = search(new PersonSearchCriteria("Gio", null, "F", null));
+        List<Person> byDomain = search(new PersonSearchCriteria(null, null, null, "@GMAIL.com"));
+
+        assertEquals(List.of(person1.getEmail(), person3.getEmail()), byFirstName.stream().map(Person::getEmail).toList());
+        assertEquals(List.of(person2.getEmail(), person3.getEmail()), byLastName.stream().map(Person::getEmail).toList());
+        assertEquals(List.of(person3), byGenderAndPrefix);
+        assertEquals(List.of(person2.getEmail(), person1.getEmail()), byDomain.stream().map(Person::getEmail).toList());
+    }
+
+    @Test
+    void shouldTreatLikeWildcardsInPrefixAsLiterals(){
+        personRepository.save(person1);
+
+        List<Person> found = search(new PersonSearchCriteria("%", null, null, null));
+
+        assertTrue(found.isEmpty());
+    }
+
+    @Test
+    void shouldSortAndLimitSearch(){
+        personRepository.saveAll(List.of(person1, person2));
+
+        List<Person> found = personRepository.findBy(
+                PersonSpecifications.matching(new PersonSearchCriteria(null, null, null, null)),
+                query -> query.sortBy(Sort.by("firstName")).limit(1).all());
+
+        assertEquals(List.of(person2), found);
+    }
+
+    private List<Person> search(PersonSearchCriteria criteria){
+        return personRepository.findBy(PersonSpecifications.matching(criteria),
+                query -> query.sortBy(Sort.by("email")).all());
+    }
+
+    @Test
+    void shouldIncrementVersionOnUpdate(){
+        Person savedPerson = personRepository.saveAndFlush(person1);
+        assertEquals(0L, savedPerson.getVersion());
+
+        savedPerson.setAddress("Updated Address");
+        Person updatedPerson = personRepository.saveAndFlush(savedPerson);
+
+        assertEquals(1L, updatedPerson.getVersion());
+    }
+
+    @Test
+    void shouldHideSoftDeletedPersonFromAllQueries(){
+        Person deleted = personRepository.saveAndFlush(person1);
+        Person kept = personRepository.saveAndFlush(person2);
+
+        int count = personRepository.softDelete(List.of(deleted.getId(), kept.getId() + 1000), Instant.now());
+
+        assertEquals(1, count);
+        assertTrue(personRepository.findById(deleted.getId()).isEmpty());
+        assertTrue(personRepository.findByEmail(person1.getEmail()).isEmpty());
+        assertNull(personRepository.findByNativeSQL(person1.getFirstName(), person1.getLastName()));
+        assertEquals(List.of(kept), personRepository.findAll());
+        assertEquals(1L, personRepository.count());
+        // segundo DELETE da mesma pessoa nao muda nada
+        assertEquals(0, personRepository.softDelete(List.of(deleted.getId()), Instant.now()));
+    }
+
+    @Test
+    void shouldPurgeOnlyRowsDeletedBeforeCutoff(){
+        Person deleted = personRepository.saveAndFlush(person1);
+        Person kept = personRepository.saveAndFlush(person2);
+        Instant deletedAt = Instant.parse("2024-01-01T03:00:00Z");
+        personRepository.softDelete(List.of(deleted.getId()), deletedAt);
+
+        assertEquals(List.of(), personRepository.findDeletedIdsBefore(deletedAt, 10));
+        List<Long> ids = personRepository.findDeletedIdsBefore(deletedAt.plusSeconds(1), 10);
+
+        assertEquals(List.of(deleted.getId()), ids);
+        assertEquals(1, personRepository.purgeDeleted(List.of(deleted.getId(), kept.getId())));
+        assertEquals(List.of(), personRepository.findDeletedIdsBefore(deletedAt.plusSeconds(1), 10));
+        assertTrue(personRepository.findById(kept.getId()).isPresent());
+    }
+
+    @Test
+    void shouldFreeEmailOfSoftDeletedPerson(){
+        Person deleted = personRepository.saveAndFlush(person1);
+        personRepository.softDelete(List.of(deleted.getId()), Instant.now());
+
+        assertEquals(1, personRepository.purgeDeletedByEmail(person1.getEmail()));
+
+        Person recreated = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        assertNotNull(personRepository.saveAndFlush(recreated).getId());
+    }
+
+    @Test
+    void shouldFreeEmailsOfSoftDeletedPeopleOnlyForBatch(){
+        Person deleted = personRepository.saveAndFlush(person1);
+        Person kept = personRepository.saveAndFlush(person2);
+        personRepository.softDelete(List.of(deleted.getId()), Instant.now());
+
+        // a validacao do lote nao ve a apagada, mas a uk_person_email ainda ve
+        assertEquals(Set.of(), personRepository.findExistingEmails(Set.of(person1.getEmail())));
+        assertEquals(1, personRepository.purgeDeletedByEmails(List.of(person1.getEmail(), person2.getEmail())));
+        assertTrue(personRepository.findById(kept.getId()).isPresent());
+
+        Person recreated = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        assertNotNull(personRepository.saveAndFlush(recreated).getId());
+    }
+
+    @Test
+    void shouldFindAllAsProjectionOrderedByIdWithoutDeletedRows(){
+        Person first = personRepository.saveAndFlush(person1);
+        Person second = personRepository.saveAndFlush(person2);
+        Person deleted = personRepository.saveAndFlush(new Person("Vilma", "Cleide", "Rua das Flores", "F", "vilma@gmail.com"));
+        personRepository.softDelete(List.of(deleted.getId()), Instant.now());
+
+        List<?> names = personRepository.findAllProjected(PersonProjection.NAME);
+
+        assertEquals(List.of(
+                new PersonName(first.getId(), "Giordanni", "Formiga"),
+                new PersonName(second.getId(), "Emily", "Pereira")), names);
+    }
+
+    @Test
+    void shouldStreamProjection(){
+        Person saved = personRepository.saveAndFlush(person1);
+
+        try (Stream<?> emails = personRepository.streamAllProjected(PersonProjection.EMAIL)) {
+            assertEquals(List.of(new PersonEmail(saved.getId(), person1.getEmail())), emails.toList());
+        }
+    }
+
+    @Test
+    void shouldSearchAsProjectionWithSortAndLimit(){
+        personRepository.saveAndFlush(person1);
+        Person emily = personRepository.saveAndFlush(person2);
+        personRepository.saveAndFlush(new Person("Vilma", "Cleide", "Rua das Flores", "F", "vilma@yahoo.com"));
+
+        List<?> emails = personRepository.searchProjected(
+                PersonSpecifications.matching(new PersonSearchCriteria(null, null, null, "gmail.com")),
+                Sort.by(Sort.Direction.DESC, "lastName"), 1, PersonProjection.EMAIL);
+
+        assertEquals(List.of(new PersonEmail(emily.getId(), person2.getEmail())), emails);
+    }
+
+    @Test
+    void shouldStreamLookupKeysWithoutDeletedRows(){
+        Person saved = personRepository.saveAndFlush(person1);
+        Person deleted = personRepository.saveAndFlush(person2);
+        personRepository.softDelete(List.of(deleted.getId()), Instant.now());
+
+        try (Stream<PersonKeys> keys = personRepository.streamKeys()) {
+            assertEquals(List.of(new PersonKeys(saved.getId(), person1.getEmail(), "Giordanni", "Formiga")), keys.toList());
+        }
+    }
+}
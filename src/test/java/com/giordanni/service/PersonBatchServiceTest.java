@@ -0,0 +1,172 @@
+package com.giordanni.service;
+
+import com.giordanni.config.PersonBatchProperties;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.BatchRowResult;
+import com.giordanni.index.PersonIndex;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonChangeRepository;
+import com.giordanni.repository.PersonRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PersonBatchServiceTest {
+
+    @InjectMocks
+    private PersonBatchService batchService;
+
+    @Mock
+    private PersonRepository repository;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private PersonBatchProperties properties = new PersonBatchProperties();
+
+    @Spy
+    private MeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Mock
+    private PersonChangeRepository personChangeRepository;
+
+    @Mock
+    private PersonIndex personIndex;
+
+    Person person1;
+    Person person2;
+    Person person3;
+
+    @BeforeEach
+    void setUp(){
+        person1 = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        person2 = new Person("Emily", "Pereira", "456 Elm St", "F", "emily@gmail.com");
+        person3 = new Person("Vilma", "Cleide", "Rua das Flores", "F", "vilma@gmail.com");
+        properties.setChunkSize(2);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline(){
+        willAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).given(transactionTemplate).executeWithoutResult(any(Consumer.class));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void assignIdsOnSave(){
+        AtomicLong sequence = new AtomicLong();
+        given(repository.saveAll(anyList())).willAnswer(invocation -> {
+            List<Person> rows = invocation.getArgument(0);
+            rows.forEach(person -> person.setId(sequence.incrementAndGet()));
+            return rows;
+        });
+    }
+
+    @Test
+    void shouldInsertRowsInChunksTest(){
+        runTransactionsInline();
+        assignIdsOnSave();
+        given(repository.findExistingEmails(anySet())).willReturn(Set.of());
+
+        BatchResult result = batchService.createPeople(List.of(person1, person2, person3));
+
+        verify(repository, times(1)).findExistingEmails(anySet());
+        // apagadas com o mesmo email saem antes do INSERT de cada chunk
+        verify(repository).purgeDeletedByEmails(List.of(person1.getEmail(), person2.getEmail()));
+        verify(repository).purgeDeletedByEmails(List.of(person3.getEmail()));
+        verify(repository, times(2)).saveAll(anyList());
+        verify(entityManager, times(2)).flush();
+        verify(entityManager, times(2)).clear();
+        // um INSERT ... SELECT no outbox por chunk, na transacao do chunk
+        verify(personChangeRepository, times(2)).recordCreated(anyList(), any());
+        assertEquals(3, result.created());
+        assertEquals(0, result.failed());
+        assertEquals(List.of(1L, 2L, 3L), result.rows().stream().map(BatchRowResult::id).toList());
+    }
+
+    @Test
+    void shouldReportExistingAndDuplicatedEmailsPerRowTest(){
+        runTransactionsInline();
+        assignIdsOnSave();
+        Person duplicated = new Person("Outra", "Pessoa", "Rua B", "F", person2.getEmail());
+        given(repository.findExistingEmails(anySet())).willReturn(Set.of(person1.getEmail()));
+
+        BatchResult result = batchService.createPeople(List.of(person1, person2, duplicated));
+
+        assertEquals(1, result.created());
+        assertEquals(2, result.failed());
+        assertEquals(BatchRowResult.Status.FAILED, result.rows().get(0).status());
+        assertEquals("Person with email " + person1.getEmail() + " already exists.", result.rows().get(0).error());
+        assertEquals(BatchRowResult.Status.CREATED, result.rows().get(1).status());
+        assertEquals(BatchRowResult.Status.FAILED, result.rows().get(2).status());
+    }
+
+    @Test
+    void shouldRejectRowsWithoutEmailOrWithIdTest(){
+        person1.setEmail(null);
+        person2.setId(10L);
+        given(repository.findExistingEmails(anySet())).willReturn(Set.of());
+
+        BatchResult result = batchService.createPeople(List.of(person1, person2));
+
+        verify(repository, never()).saveAll(anyList());
+        assertEquals(0, result.created());
+        assertEquals("Email is required.", result.rows().get(0).error());
+        assertEquals("Id must not be provided on create.", result.rows().get(1).error());
+    }
+
+    @Test
+    void shouldFailOnlyTheChunkThatViolatesConstraintTest(){
+        runTransactionsInline();
+        given(repository.findExistingEmails(anySet())).willReturn(Set.of());
+        given(repository.saveAll(anyList()))
+                .willThrow(new DataIntegrityViolationException("duplicate"))
+                .willAnswer(invocation -> invocation.getArgument(0));
+
+        BatchResult result = batchService.createPeople(List.of(person1, person2, person3));
+
+        assertEquals(1, result.created());
+        assertEquals(2, result.failed());
+        assertEquals(BatchRowResult.Status.CREATED, result.rows().get(2).status());
+        assertEquals(1, meterRegistry.counter("person.batch.rows", "status", "created").count());
+        assertEquals(2, meterRegistry.counter("person.batch.rows", "status", "failed").count());
+        assertEquals(1, meterRegistry.timer("person.batch.chunk", "outcome", "failure").count());
+        assertEquals(1, meterRegistry.timer("person.batch.chunk", "outcome", "success").count());
+        verify(personIndex, never()).put(person1);
+        verify(personIndex).put(person3);
+    }
+
+    @Test
+    void shouldRejectBatchLargerThanMaxRowsTest(){
+        properties.setMaxRows(2);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> batchService.createPeople(List.of(person1, person2, person3)));
+
+        verifyNoInteractions(repository);
+    }
+}
@@ -0,0 +1,88 @@
+package com.giordanni.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.model.Person;
+import com.giordanni.repository.PersonRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// commits reais (sem @DataJpaTest/@Transactional) para que a constraint seja disputada entre threads
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+class PersonServiceConcurrencyTest {
+
+    private static final int PARALLEL_CREATES = 16;
+
+    @Autowired
+    private PersonService service;
+
+    @Autowired
+    private PersonRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @AfterEach
+    void cleanUp(){
+        repository.deleteAllInBatch();
+    }
+
+    @Test
+    void shouldCreateExactlyOnePersonWhenSameEmailIsCreatedInParallel() throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Person>> results = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(PARALLEL_CREATES)) {
+            for (int i = 0; i < PARALLEL_CREATES; i++) {
+                int n = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.createPerson(new Person("Name" + n, "Last" + n, "Street " + n, "M", "same@email.com"));
+                }));
+            }
+            start.countDown();
+        }
+
+        int created = 0;
+        int rejected = 0;
+        for (Future<Person> result : results) {
+            try {
+                result.get();
+                created++;
+            } catch (ExecutionException e) {
+                assertInstanceOf(IllegalArgumentException.class, e.getCause());
+                rejected++;
+            }
+        }
+
+        assertEquals(1, created);
+        assertEquals(PARALLEL_CREATES - 1, rejected);
+        assertEquals(1, repository.count());
+    }
+
+    @Test
+    void shouldRejectSecondWriterHoldingStaleVersion() throws Exception {
+        Person person = service.createPerson(new Person("Giordanni", "Formiga", "Rua A", "M", "giordanni@gmail.com"));
+        String stalePatch = "{\"address\": \"%s\", \"version\": " + person.getVersion() + "}";
+
+        service.patchPerson(person.getId(), objectMapper.readTree(stalePatch.formatted("Rua B")));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> service.patchPerson(person.getId(), objectMapper.readTree(stalePatch.formatted("Rua C"))));
+        assertEquals("Rua B", repository.findById(person.getId()).orElseThrow().getAddress());
+    }
+}
@@ -0,0 +1,102 @@
+package com.giordanni.service;
+
+import com.giordanni.config.PersonReplicaProperties;
+import com.giordanni.datasource.LastWrite;
+import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.model.Person;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// dois bancos H2 fazendo papel de primario e replica; a replica nao recebe as escritas,
+// entao o dado lido mostra para onde a consulta foi roteada
+@ActiveProfiles("test")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1",
+        "person.replica.enabled=true",
+        "person.replica.nodes[0].url=jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1",
+        "person.replica.nodes[0].username=sa",
+        "person.replica.sticky-window=0s",
+        "person.cache.maximum-size=0",
+        "person.hibernate-cache.enabled=false"
+})
+class PersonServiceReplicaTest {
+
+    @Autowired
+    private PersonService service;
+
+    @Autowired
+    private PersonReplicaProperties replicaProperties;
+
+    @Autowired
+    private DataSource dataSource;
+
+    private JdbcTemplate primary;
+    private JdbcTemplate replica;
+
+    @BeforeEach
+    void copySchemaToReplica(){
+        primary = new JdbcTemplate(dataSource);
+        JdbcDataSource replicaDataSource = new JdbcDataSource();
+        replicaDataSource.setURL("jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1");
+        replicaDataSource.setUser("sa");
+        replica = new JdbcTemplate(replicaDataSource);
+
+        replica.execute("DROP ALL OBJECTS");
+        primary.queryForList("SCRIPT NODATA", String.class).stream()
+                .filter(statement -> statement.startsWith("CREATE") && !statement.startsWith("CREATE USER"))
+                .forEach(replica::execute);
+    }
+
+    @AfterEach
+    void cleanUp(){
+        LastWrite.unbind();
+        primary.update("DELETE FROM person");
+        replicaProperties.setStickyWindow(Duration.ZERO);
+    }
+
+    @Test
+    void shouldReadFromReplicaAndWriteToPrimary(){
+        Person created = service.createPerson(new Person("Giordanni", "Formiga", "Rua A", "M", "giordanni@gmail.com"));
+
+        // a escrita nao chegou na replica
+        assertThrows(ResourceNotFoundException.class, () -> service.findById(created.getId()));
+
+        replica.update("INSERT INTO person (id, first_name, last_name, address, gender, email, email_domain, version) "
+                + "VALUES (?, 'Replica', 'Formiga', 'Rua A', 'M', 'giordanni@gmail.com', 'gmail.com', 0)", created.getId());
+        assertEquals("Replica", service.findById(created.getId()).getFirstName());
+
+        // a versao e lida e gravada no primario, na mesma transacao
+        created.setVersion(null);
+        created.setAddress("Rua B");
+        service.updatePerson(created);
+        assertEquals("Rua B", primary.queryForObject("SELECT address FROM person WHERE id = ?", String.class, created.getId()));
+        assertEquals("Rua A", replica.queryForObject("SELECT address FROM person WHERE id = ?", String.class, created.getId()));
+    }
+
+    @Test
+    void shouldReadOwnWriteFromPrimaryInsideStickyWindow(){
+        replicaProperties.setStickyWindow(Duration.ofMinutes(1));
+        LastWrite writer = new LastWrite(LastWrite.NONE);
+        LastWrite.bind(writer);
+
+        Person created = service.createPerson(new Person("Emily", "Pereira", "Rua C", "F", "emily@gmail.com"));
+
+        assertEquals("Emily", service.findById(created.getId()).getFirstName());
+        assertEquals(1, service.findAllPerson().size());
+
+        // outro cliente, dentro da mesma janela, le da replica
+        LastWrite.bind(new LastWrite(LastWrite.NONE));
+        assertEquals(0, service.findAllPerson().size());
+    }
+}
@@ -1,17 +1,49 @@
 package com.giordanni.service;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.cache.CacheTier;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.changes.PersonChangeFeed;
+import com.giordanni.config.PersonCacheProperties;
+import com.giordanni.dto.PersonCollectionVersion;
+import com.giordanni.dto.PersonName;
+import com.giordanni.dto.PersonPage;
+import com.giordanni.dto.PersonProjection;
+import com.giordanni.dto.PersonSearchCriteria;
 import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.index.PersonIndex;
+import com.giordanni.loader.PersonIdLoader;
 import com.giordanni.model.Person;
+import com.giordanni.model.PersonChange;
+import com.giordanni.repository.PersonChangeRepository;
 import com.giordanni.repository.PersonRepository;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-
+import org.hibernate.exception.ConstraintViolationException;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
 
 import static org.mockito.BDDMockito.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -25,6 +57,30 @@ class PersonServiceTest {
     @Mock
     private PersonRepository repository;
 
+    @Mock
+    private EntityManager entityManager;
+
+    @Spy
+    private PersonCache personCache = new PersonCache(new PersonCacheProperties(), CacheTier.NONE);
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Spy
+    private ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private PersonChangeRepository personChangeRepository;
+
+    @Mock
+    private PersonIndex personIndex;
+
+    @Mock
+    private ObjectProvider<PersonIdLoader> personIdLoader;
+
+    @Mock
+    private PersonChangeFeed personChangeFeed;
+
     Person person1;
     Person person2;
 
@@ -36,30 +92,58 @@ class PersonServiceTest {
 
     @Test
     void shouldCreatePersonTest(){
-
-        when(repository.findByEmail(anyString())).thenReturn(Optional.empty());
-        when(repository.save(any(Person.class))).thenReturn(person1);
+        runTransactionsInline();
+        when(repository.saveAndFlush(any(Person.class))).thenReturn(person1);
 
         Person createdPerson = services.createPerson(person1);
 
-        verify(repository).save(any(Person.class));
-        verify(repository).findByEmail(anyString());
+        verify(repository).saveAndFlush(any(Person.class));
+        verify(repository, never()).findByEmail(anyString());
+        verify(personChangeRepository).save(argThat(change -> change.getType() == PersonChange.Type.CREATED));
+        verify(personIndex).put(person1);
         assertNotNull(createdPerson);
     }
 
     @Test
     void shouldNotCreatePersonWhenEmailExistsTest(){
-        given(repository.findByEmail(anyString())).willReturn(Optional.of(person1));
+        runTransactionsInline();
+        given(repository.saveAndFlush(any(Person.class))).willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PUBLIC.UK_PERSON_EMAIL")));
 
         IllegalArgumentException error =
                 assertThrows(
                         IllegalArgumentException.class,
                         () -> services.createPerson(person1));
 
-        verify(repository, never()).save(any(Person.class));
         assertEquals("Person with email " + person1.getEmail() + " already exists.", error.getMessage());
     }
 
+    @Test
+    void shouldReuseEmailOfSoftDeletedPersonTest(){
+        runTransactionsInline();
+        person1.setId(50L);
+        given(repository.saveAndFlush(any(Person.class)))
+                .willThrow(new DataIntegrityViolationException("duplicate",
+                        new ConstraintViolationException("duplicate", new SQLException(), "PUBLIC.UK_PERSON_EMAIL")))
+                .willAnswer(invocation -> invocation.getArgument(0));
+        given(repository.purgeDeletedByEmail(person1.getEmail())).willReturn(1);
+
+        Person createdPerson = services.createPerson(person1);
+
+        assertSame(person1, createdPerson);
+        verify(repository, times(2)).saveAndFlush(person1);
+        verify(repository, times(1)).purgeDeletedByEmail(person1.getEmail());
+    }
+
+    @Test
+    void shouldRethrowOtherConstraintViolationsTest(){
+        runTransactionsInline();
+        given(repository.saveAndFlush(any(Person.class))).willThrow(new DataIntegrityViolationException("not null",
+                new ConstraintViolationException("not null", new SQLException(), null)));
+
+        assertThrows(DataIntegrityViolationException.class, () -> services.createPerson(person1));
+    }
+
     @Test
     void shouldFindAllPersonTest(){
         given(repository.findAll()).willReturn(List.of(person1, person2));
@@ -106,6 +190,7 @@ class PersonServiceTest {
 
     @Test
     void shouldUpdatePerson(){
+        runTransactionsInline();
         person1.setId(1L);
         when(repository.findById(anyLong())).thenReturn(Optional.of(person1));
 
@@ -118,12 +203,15 @@ class PersonServiceTest {
 
         verify(repository, timeout(1)).findById(anyLong());
         verify(repository).save(any(Person.class));
+        verify(personChangeRepository).save(argThat(change -> change.getType() == PersonChange.Type.UPDATED
+                && change.getPersonId() == 1L));
         assertNotNull(updatedPerson);
         assertEquals("giordannialves@gmail.com", updatedPerson.getEmail());
     }
 
     @Test
     void shouldNotUpdateWhenPersonDoesNotExistTest(){
+        runTransactionsInline();
         person1.setId(1L);
         when(repository.findById(anyLong())).thenReturn(Optional.empty());
 
@@ -137,12 +225,418 @@ class PersonServiceTest {
     }
 
     @Test
-    void shouldDeletePersonTest(){
+    void shouldServeRepeatedFindByIdFromCacheTest(){
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        services.findById(1L);
+        Person foundPerson = services.findById(1L);
+
+        verify(repository, times(1)).findById(1L);
+        assertEquals(person1, foundPerson);
+        assertEquals(1, personCache.stats().hitCount());
+        assertEquals(1, personCache.stats().missCount());
+    }
+
+    @Test
+    void shouldFindManyByIdWithOneQueryForCacheMissesTest(){
+        person1.setId(1L);
+        person2.setId(2L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+        when(repository.findAllById(List.of(2L, 3L))).thenReturn(List.of(person2));
+
+        services.findById(1L);
+        List<Person> found = services.findAllById(List.of(2L, 1L, 3L));
+
+        assertEquals(List.of(person2, person1), found);
+        verify(repository).findAllById(List.of(2L, 3L));
+        assertEquals(List.of(person1, person2), services.findAllById(List.of(1L, 2L)));
+        verifyNoMoreInteractions(repository);
+    }
+
+    @Test
+    void shouldLoadCacheMissThroughIdLoaderWhenEnabledTest(){
+        PersonIdLoader loader = mock(PersonIdLoader.class);
+        given(personIdLoader.getIfAvailable()).willReturn(loader);
+        given(loader.load(1L)).willReturn(Optional.of(person1));
+
+        assertEquals(person1, services.findById(1L));
+        verify(repository, never()).findById(anyLong());
+    }
+
+    @Test
+    void shouldRejectEmptyOrTooLargeIdListOnFindTest(){
+        List<Long> tooMany = LongStream.rangeClosed(1, PersonService.MAX_GET_IDS + 1).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> services.findAllById(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> services.findAllById(tooMany));
+        verify(repository, never()).findAllById(any());
+    }
+
+    @Test
+    void shouldEvictCacheWhenPersonIsUpdatedTest(){
+        runTransactionsInline();
+        person1.setId(1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+        when(repository.save(person1)).thenReturn(person1);
+
+        services.findById(1L);
+        services.updatePerson(person1);
+        services.findById(1L);
+
+        verify(personCache).evict(1L);
+        verify(repository, times(3)).findById(1L);
+    }
+
+    @Test
+    void shouldFindByEmailThroughIndexWithoutQueryTest(){
+        given(personIndex.idsByEmail(person1.getEmail())).willReturn(new long[]{1L});
+        given(repository.findById(1L)).willReturn(Optional.of(person1));
+
+        Optional<Person> foundPerson = services.findByEmail(person1.getEmail());
+
+        assertEquals(Optional.of(person1), foundPerson);
+        verify(repository, never()).findByEmail(anyString());
+        verify(personIndex, never()).put(any(Person.class));
+    }
+
+    @Test
+    void shouldFallBackToSqlAndIndexOnMissTest(){
+        given(personIndex.idsByEmail(person1.getEmail())).willReturn(new long[0]);
+        given(repository.findByEmail(person1.getEmail())).willReturn(Optional.of(person1));
+
+        Optional<Person> foundPerson = services.findByEmail(person1.getEmail());
+
+        assertEquals(Optional.of(person1), foundPerson);
+        verify(personIndex).put(person1);
+    }
+
+    @Test
+    void shouldRepairStaleIndexEntriesOnNameLookupTest(){
+        person2.setId(2L);
+        given(personIndex.idsByName("Giordanni", "Formiga")).willReturn(new long[]{2L, 3L});
+        given(repository.findById(2L)).willReturn(Optional.of(person2));
+        given(repository.findById(3L)).willReturn(Optional.empty());
+        given(repository.findByJPQL("Giordanni", "Formiga")).willReturn(person1);
+
+        Optional<Person> foundPerson = services.findByName("Giordanni", "Formiga");
+
+        assertEquals(Optional.of(person1), foundPerson);
+        verify(personIndex).put(person2);
+        verify(personIndex).remove(3L);
+        verify(personIndex).put(person1);
+    }
+
+    @Test
+    void shouldSearchAsProjectionTest(){
+        PersonSearchCriteria criteria = new PersonSearchCriteria("Gio", null, null, null);
+        willReturn(List.of(new PersonName(1L, "Giordanni", "Formiga")))
+                .given(repository).searchProjected(any(), eq(Sort.by("lastName")), eq(10), eq(PersonProjection.NAME));
+
+        List<?> result = services.search(criteria, Sort.by("lastName"), 10, PersonProjection.NAME);
+
+        assertEquals(List.of(new PersonName(1L, "Giordanni", "Formiga")), result);
+        verify(repository, never()).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void shouldValidateSearchAsProjectionTest(){
+        PersonSearchCriteria criteria = new PersonSearchCriteria(null, null, null, null);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> services.search(criteria, Sort.by("address"), 10, PersonProjection.EMAIL));
+        verify(repository, never()).searchProjected(any(), any(), anyInt(), any());
+    }
+
+    @Test
+    void shouldEvictCacheWhenPersonIsDeletedTest(){
+        runTransactionsInline();
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        services.findById(1L);
+        services.deletePerson(1L);
+
+        verify(personCache).evict(1L);
+        assertEquals(0, personCache.size());
+    }
+
+    @Test
+    void shouldSoftDeletePersonWithSingleUpdateTest(){
+        runTransactionsInline();
+        given(repository.softDelete(eq(List.of(1L)), any(Instant.class))).willReturn(1);
+
+        services.deletePerson(1L);
+
+        verify(repository, never()).findById(anyLong());
+        verify(repository, never()).delete(any(Person.class));
+        verify(personChangeRepository).recordDeleted(eq(List.of(1L)), any(Instant.class));
+    }
+
+    @Test
+    void shouldNotRecordChangeWhenDeletedPersonDoesNotExistTest(){
+        runTransactionsInline();
+        given(repository.softDelete(eq(List.of(1L)), any(Instant.class))).willReturn(0);
+
+        services.deletePerson(1L);
+
+        verify(personChangeRepository, never()).recordDeleted(anyCollection(), any(Instant.class));
+    }
+
+    @Test
+    void shouldDeletePeopleAndEvictEachOneTest(){
+        runTransactionsInline();
+        List<Long> ids = List.of(1L, 2L, 3L);
+        given(repository.softDelete(eq(ids), any(Instant.class))).willReturn(2);
+
+        int deleted = services.deletePeople(ids);
+
+        assertEquals(2, deleted);
+        verify(personCache).evict(1L);
+        verify(personCache).evict(2L);
+        verify(personCache).evict(3L);
+        verify(personIndex).remove(3L);
+    }
+
+    @Test
+    void shouldRejectEmptyOrTooManyIdsOnDeleteTest(){
+        List<Long> tooMany = LongStream.rangeClosed(1, PersonService.MAX_DELETE_IDS + 1).boxed().toList();
+
+        assertThrows(IllegalArgumentException.class, () -> services.deletePeople(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> services.deletePeople(tooMany));
+        verify(repository, never()).softDelete(anyCollection(), any(Instant.class));
+    }
+
+    @Test
+    void shouldReturnNextCursorWhenPageIsFullTest(){
+        person1.setId(1L);
+        person2.setId(2L);
+        given(repository.findByIdGreaterThanOrderByIdAsc(0L, Limit.of(2))).willReturn(List.of(person1, person2));
+
+        PersonPage page = services.findPage(null, 2);
+
+        assertEquals(2, page.content().size());
+        assertEquals(2L, page.nextCursor());
+    }
+
+    @Test
+    void shouldReturnNullCursorOnLastPageTest(){
+        person2.setId(2L);
+        given(repository.findByIdGreaterThanOrderByIdAsc(1L, Limit.of(2))).willReturn(List.of(person2));
+
+        PersonPage page = services.findPage(1L, 2);
+
+        assertEquals(1, page.content().size());
+        assertNull(page.nextCursor());
+    }
+
+    @Test
+    void shouldRejectInvalidPageSizeTest(){
+        assertThrows(IllegalArgumentException.class, () -> services.findPage(null, 0));
+        assertThrows(IllegalArgumentException.class, () -> services.findPage(null, PersonService.MAX_PAGE_SIZE + 1));
+
+        verify(repository, never()).findByIdGreaterThanOrderByIdAsc(anyLong(), any(Limit.class));
+    }
+
+    @Test
+    void shouldStreamAndDetachEveryPersonTest(){
+        given(repository.streamAll()).willReturn(Stream.of(person1, person2));
+
+        List<Person> streamed = new ArrayList<>();
+        services.streamAllPerson(streamed::add);
+
+        assertEquals(List.of(person1, person2), streamed);
+        verify(entityManager).detach(person1);
+        verify(entityManager).detach(person2);
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldSearchWithSpecificationTest(){
+        given(repository.findBy(any(Specification.class), any())).willReturn(List.of(person1));
+
+        List<Person> persons = services.search(new PersonSearchCriteria("Gio", null, "M", null), Sort.by("lastName"), 10);
+
+        verify(repository).findBy(any(Specification.class), any());
+        assertEquals(List.of(person1), persons);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldRejectSortByUnindexedFieldTest(){
+        PersonSearchCriteria criteria = new PersonSearchCriteria(null, null, null, null);
+
+        assertThrows(IllegalArgumentException.class, () -> services.search(criteria, Sort.by("address"), 10));
+        assertThrows(IllegalArgumentException.class, () -> services.search(criteria, Sort.by("id"), 0));
+
+        verify(repository, never()).findBy(any(Specification.class), any());
+    }
+
+    @Test
+    void shouldRejectUpdateWithEmailOfAnotherPersonTest(){
+        runTransactionsInline();
+        person1.setId(1L);
+        person1.setEmail("emily@gmail.com");
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+        when(repository.save(person1)).thenReturn(person1);
+        willThrow(new DataIntegrityViolationException("duplicate",
+                new ConstraintViolationException("duplicate", new SQLException(), "PUBLIC.UK_PERSON_EMAIL")))
+                .given(repository).flush();
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> services.updatePerson(person1));
+
+        assertEquals("Person with email emily@gmail.com already exists.", error.getMessage());
+        verify(personChangeRepository, never()).save(any(PersonChange.class));
+        verify(personCache, never()).evict(1L);
+    }
+
+    @Test
+    void shouldPurgeSoftDeletedPersonHoldingNewEmailOnUpdateTest(){
+        runTransactionsInline();
+        person1.setId(1L);
+        Person stored = new Person("Giordanni", "Formiga", "123 Main St", "M", "antigo@gmail.com");
+        stored.setId(1L);
+        stored.setVersion(0L);
+        when(repository.findById(1L)).thenReturn(Optional.of(stored));
+        when(repository.save(person1)).thenReturn(person1);
+
+        services.updatePerson(person1);
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).purgeDeletedByEmail(person1.getEmail());
+        order.verify(repository).save(person1);
+        order.verify(repository).flush();
+    }
+
+    @Test
+    void shouldPurgeSoftDeletedPersonHoldingNewEmailOnPatchTest() throws Exception {
+        runTransactionsInline();
+        person1.setId(1L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        Person patched = services.patchPerson(1L, json("{\"email\": \"apagado@gmail.com\"}"));
+
+        InOrder order = inOrder(repository);
+        order.verify(repository).purgeDeletedByEmail("apagado@gmail.com");
+        order.verify(repository).flush();
+        assertEquals("apagado@gmail.com", patched.getEmail());
+    }
+
+    @Test
+    void shouldBuildCollectionVersionFromOutboxWithoutAggregatingPeopleTest(){
+        given(personChangeFeed.cursor()).willReturn(7L);
+        given(personChangeRepository.findLastId()).willReturn(9L);
+
+        assertEquals(new PersonCollectionVersion(7L, 9L), services.collectionVersion());
+
+        given(personChangeRepository.findLastId()).willReturn(null);
+        assertEquals(new PersonCollectionVersion(7L, 0L), services.collectionVersion());
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    void shouldKeepCurrentVersionWhenUpdateHasNoVersionTest(){
+        runTransactionsInline();
         person1.setId(1L);
-        doNothing().when(repository).deleteById(anyLong());
-        services.deletePerson(person1.getId());
+        Person stored = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        stored.setId(1L);
+        stored.setVersion(3L);
+        when(repository.findById(1L)).thenReturn(Optional.of(stored));
+        when(repository.save(person1)).thenReturn(person1);
+
+        services.updatePerson(person1);
 
-        verify(repository, times(1)).deleteById(anyLong());
+        assertEquals(3L, person1.getVersion());
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldRejectStaleVersionBeforeMergeTest(){
+        runTransactionsInline();
+        person1.setId(1L);
+        person1.setVersion(2L);
+        Person stored = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        stored.setId(1L);
+        stored.setVersion(3L);
+        when(repository.findById(1L)).thenReturn(Optional.of(stored));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class, () -> services.updatePerson(person1));
+
+        verify(repository, never()).save(any(Person.class));
+        verify(personCache, never()).evict(1L);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline(){
+        given(transactionTemplate.execute(any())).willAnswer(invocation ->
+                invocation.<TransactionCallback<Person>>getArgument(0).doInTransaction(null));
+    }
+
+    private JsonNode json(String content) throws Exception {
+        return objectMapper.readTree(content);
+    }
+
+    @Test
+    void shouldPatchOnlyGivenFieldsTest() throws Exception {
+        runTransactionsInline();
+        person1.setId(1L);
+        person1.setVersion(0L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        Person patched = services.patchPerson(1L, json("{\"address\": \"Novo Endereco\", \"version\": 0}"));
+
+        verify(repository).flush();
+        verify(personChangeRepository).save(argThat(change -> change.getType() == PersonChange.Type.UPDATED));
+        verify(repository, never()).save(any(Person.class));
+        verify(personCache).evict(1L);
+        assertEquals("Novo Endereco", patched.getAddress());
+        assertEquals("Giordanni", patched.getFirstName());
+    }
+
+    @Test
+    void shouldRejectPatchWithStaleVersionTest() throws Exception {
+        runTransactionsInline();
+        person1.setId(1L);
+        person1.setVersion(2L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        assertThrows(ObjectOptimisticLockingFailureException.class,
+                () -> services.patchPerson(1L, json("{\"address\": \"X\", \"version\": 1}")));
+
+        assertEquals("123 Main St", person1.getAddress());
+    }
+
+    @Test
+    void shouldRejectPatchWithNonNumericVersionTest() throws Exception {
+        runTransactionsInline();
+        person1.setId(1L);
+        person1.setVersion(0L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        assertThrows(IllegalArgumentException.class, () -> services.patchPerson(1L, json("{\"address\": \"X\", \"version\": \"abc\"}")));
+        assertThrows(IllegalArgumentException.class, () -> services.patchPerson(1L, json("{\"address\": \"X\", \"version\": 0.5}")));
+
+        verify(repository, never()).flush();
+        assertEquals("123 Main St", person1.getAddress());
+    }
+
+    @Test
+    void shouldRejectPatchWithUnknownOrNullFieldTest() throws Exception {
+        runTransactionsInline();
+        person1.setId(1L);
+        person1.setVersion(0L);
+        when(repository.findById(1L)).thenReturn(Optional.of(person1));
+
+        assertThrows(IllegalArgumentException.class, () -> services.patchPerson(1L, json("{\"emailDomain\": \"x.com\"}")));
+        assertThrows(IllegalArgumentException.class, () -> services.patchPerson(1L, json("{\"lastName\": null}")));
+        assertThrows(IllegalArgumentException.class, () -> services.patchPerson(1L, json("[]")));
+
+        verify(repository, never()).flush();
+    }
+
+    @Test
+    void shouldNotPatchWhenPersonDoesNotExistTest() throws Exception {
+        runTransactionsInline();
+        when(repository.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ResourceNotFoundException.class, () -> services.patchPerson(1L, json("{\"address\": \"X\"}")));
+    }
+}
@@ -0,0 +1,237 @@
+package com.giordanni.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.giordanni.cache.PersonCache;
+import com.giordanni.config.PersonWriteBehindProperties;
+import com.giordanni.dto.BatchResult;
+import com.giordanni.dto.BatchRowResult;
+import com.giordanni.dto.WriteStatus;
+import com.giordanni.exception.ResourceNotFoundException;
+import com.giordanni.exception.WriteQueueFullException;
+import com.giordanni.model.Person;
+import com.giordanni.service.PersonBatchService;
+import com.giordanni.service.PersonService;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.BDDMockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PersonWriteBehindQueueTest {
+
+    @Mock
+    private PersonBatchService batchService;
+
+    @Mock
+    private PersonService personService;
+
+    @Mock
+    private PersonCache personCache;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PersonWriteBehindProperties properties = new PersonWriteBehindProperties();
+
+    Person person1;
+    Person person2;
+
+    @BeforeEach
+    void setUp(){
+        person1 = new Person("Giordanni", "Formiga", "123 Main St", "M", "giordanniformiga@gmail.com");
+        person2 = new Person("Emily", "Pereira", "456 Elm St", "F", "emily@gmail.com");
+    }
+
+    private PersonWriteBehindQueue queue(WriteJournal journal) throws Exception {
+        return new PersonWriteBehindQueue(properties, batchService, personService, personCache,
+                transactionTemplate, meterRegistry, journal);
+    }
+
+    private static PendingWrite update(String ticket, Long id, Long version){
+        Person person = new Person("Giordanni", "Formiga " + ticket, "123 Main St", "M", "giordanniformiga@gmail.com");
+        person.setId(id);
+        person.setVersion(version);
+        return new PendingWrite(ticket, PendingWrite.Operation.UPDATE, person);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void runTransactionsInline(){
+        willAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).given(transactionTemplate).executeWithoutResult(any(Consumer.class));
+    }
+
+    @Test
+    void shouldRejectWhenQueueIsFull() throws Exception {
+        properties.setCapacity(1);
+        PersonWriteBehindQueue queue = queue(null);
+
+        WriteStatus accepted = queue.submitCreate(person1);
+
+        assertThrows(WriteQueueFullException.class, () -> queue.submitCreate(person2));
+        assertEquals(WriteStatus.Status.PENDING, queue.status(accepted.ticket()).orElseThrow().status());
+        assertEquals(1, meterRegistry.get("person.writebehind.writes").tag("status", "rejected").counter().count());
+        assertEquals(1, meterRegistry.get("person.writebehind.queue").gauge().value());
+    }
+
+    @Test
+    void shouldValidateBeforeEnqueueing() throws Exception {
+        PersonWriteBehindQueue queue = queue(null);
+        person1.setEmail(" ");
+        person2.setId(5L);
+        Person withoutId = new Person("Vilma", "Cleide", "Rua das Flores", "F", "vilma@gmail.com");
+
+        assertThrows(IllegalArgumentException.class, () -> queue.submitCreate(person1));
+        assertThrows(IllegalArgumentException.class, () -> queue.submitCreate(person2));
+        assertThrows(IllegalArgumentException.class, () -> queue.submitUpdate(withoutId));
+        assertEquals(0, meterRegistry.get("person.writebehind.queue").gauge().value());
+    }
+
+    @Test
+    void shouldCreateQueuedPeopleInOneBatch() throws Exception {
+        PersonWriteBehindQueue queue = queue(null);
+        WriteStatus first = queue.submitCreate(person1);
+        WriteStatus second = queue.submitCreate(person2);
+        given(batchService.createPeople(List.of(person1, person2))).willReturn(BatchResult.of(List.of(
+                BatchRowResult.created(0, person1.getEmail(), 10L),
+                BatchRowResult.failed(1, person2.getEmail(), "Person with email " + person2.getEmail() + " already exists."))));
+
+        queue.flush(List.of(
+                new PendingWrite(first.ticket(), PendingWrite.Operation.CREATE, person1),
+                new PendingWrite(second.ticket(), PendingWrite.Operation.CREATE, person2)));
+
+        assertEquals(WriteStatus.done(first.ticket(), 10L), queue.status(first.ticket()).orElseThrow());
+        assertEquals(WriteStatus.Status.FAILED, queue.status(second.ticket()).orElseThrow().status());
+        verify(batchService, times(1)).createPeople(anyList());
+    }
+
+    @Test
+    void shouldCoalesceUnversionedUpdatesToSamePerson() throws Exception {
+        runTransactionsInline();
+        PersonWriteBehindQueue queue = queue(null);
+        PendingWrite first = update("a", 1L, null);
+        PendingWrite second = update("b", 1L, null);
+        PendingWrite versioned = update("c", 2L, 3L);
+        PendingWrite afterVersioned = update("d", 2L, null);
+
+        queue.flush(List.of(first, second, versioned, afterVersioned));
+
+        verify(personService, never()).updatePerson(first.person());
+        verify(personService).updatePerson(second.person());
+        // o PUT com versao ainda precisa ser conferido no banco
+        verify(personService).updatePerson(versioned.person());
+        verify(personService).updatePerson(afterVersioned.person());
+        verify(personCache).evict(1L);
+        assertEquals(WriteStatus.done("a", 1L), queue.status("a").orElseThrow());
+        assertEquals(WriteStatus.done("b", 1L), queue.status("b").orElseThrow());
+    }
+
+    @Test
+    void shouldRetryUpdatesOneByOneWhenBatchFails() throws Exception {
+        PersonWriteBehindQueue queue = queue(null);
+        PendingWrite missing = update("a", 1L, null);
+        PendingWrite existing = update("b", 2L, null);
+        willThrow(new DataIntegrityViolationException("batch")).given(transactionTemplate).executeWithoutResult(any());
+        given(personService.updatePerson(missing.person())).willThrow(new ResourceNotFoundException("Person with id 1 does not exist."));
+
+        queue.flush(List.of(missing, existing));
+
+        assertEquals(WriteStatus.failed("a", "Person with id 1 does not exist."), queue.status("a").orElseThrow());
+        assertEquals(WriteStatus.done("b", 2L), queue.status("b").orElseThrow());
+    }
+
+    @Test
+    void shouldRetryUnversionedUpdateWithoutVersionReadInFailedBatch() throws Exception {
+        PersonWriteBehindQueue queue = queue(null);
+        PendingWrite unversioned = update("a", 1L, null);
+        runTransactionsInline();
+        List<Long> retriedWith = new ArrayList<>();
+        given(personService.updatePerson(unversioned.person()))
+                .willAnswer(invocation -> {
+                    // primeira tentativa: o servico fixa a versao atual e o lote falha depois
+                    unversioned.person().setVersion(3L);
+                    throw new DataIntegrityViolationException("batch");
+                })
+                .willAnswer(invocation -> {
+                    retriedWith.add(unversioned.person().getVersion());
+                    return unversioned.person();
+                });
+
+        queue.flush(List.of(unversioned));
+
+        assertEquals(Collections.singletonList(null), retriedWith);
+        assertEquals(WriteStatus.done("a", 1L), queue.status("a").orElseThrow());
+    }
+
+    @Test
+    void shouldReplayJournaledWritesThatWereNotFlushed(@TempDir Path directory) throws Exception {
+        given(batchService.createPeople(anyList())).willReturn(BatchResult.of(List.of(BatchRowResult.created(0, person1.getEmail(), 10L))));
+        Path path = directory.resolve("write-behind.journal");
+
+        PersonWriteBehindQueue queue = queue(new WriteJournal(path, objectMapper));
+        WriteStatus flushed = queue.submitCreate(person1);
+        WriteStatus pending = queue.submitCreate(person2);
+        queue.flush(List.of(new PendingWrite(flushed.ticket(), PendingWrite.Operation.CREATE, person1)));
+        queue.close();
+
+        // "crash" antes de gravar a segunda escrita: ao subir ela volta para a fila com o mesmo ticket
+        PersonWriteBehindQueue restarted = queue(new WriteJournal(path, objectMapper));
+
+        assertTrue(restarted.status(flushed.ticket()).isEmpty());
+        assertEquals(WriteStatus.Status.PENDING, restarted.status(pending.ticket()).orElseThrow().status());
+        restarted.close();
+    }
+
+    @Test
+    void shouldFlushInBackgroundAndDrainOnClose() throws Exception {
+        given(batchService.createPeople(anyList())).willAnswer(invocation -> {
+            List<Person> people = invocation.getArgument(0);
+            return BatchResult.of(IntStream.range(0, people.size())
+                    .mapToObj(i -> BatchRowResult.created(i, people.get(i).getEmail(), 100L + i))
+                    .toList());
+        });
+        PersonWriteBehindQueue queue = queue(null);
+        queue.start();
+
+        WriteStatus first = queue.submitCreate(person1);
+        WriteStatus second = queue.submitCreate(person2);
+        queue.close();
+
+        assertEquals(WriteStatus.Status.DONE, queue.status(first.ticket()).orElseThrow().status());
+        assertEquals(WriteStatus.Status.DONE, queue.status(second.ticket()).orElseThrow().status());
+    }
+
+    @Test
+    void shouldRejectSubmitsOnceShutdownStarted(@TempDir Path directory) throws Exception {
+        PersonWriteBehindQueue queue = queue(new WriteJournal(directory.resolve("write-behind.journal"), objectMapper));
+        queue.start();
+        queue.close();
+
+        // nem na fila nem no journal ja fechado: o cliente recebe 503 e tenta outra instancia
+        assertThrows(WriteQueueFullException.class, () -> queue.submitCreate(person1));
+        assertThrows(WriteQueueFullException.class, () -> queue.submitUpdate(update("t-1", 1L, null).person()));
+        assertEquals(0, meterRegistry.get("person.writebehind.queue").gauge().value());
+        assertEquals(2, meterRegistry.get("person.writebehind.writes").tag("status", "rejected").counter().count());
+        verifyNoInteractions(batchService);
+    }
+}
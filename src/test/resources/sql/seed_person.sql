@@ -1,5 +1,5 @@
 DELETE FROM person;
 
-INSERT INTO person (id, first_name, last_name, address, gender, email) VALUES
-(1, 'Giordanni', 'Formiga', 'Condado - PB', 'M', 'giordanni@gmail.com'),
-(2, 'Emily',     'Pereira', '456 Elm St',   'F', 'emily@gmail.com');
\ No newline at end of file
+INSERT INTO person (id, first_name, last_name, address, gender, email, email_domain) VALUES
+(1, 'Giordanni', 'Formiga', 'Condado - PB', 'M', 'giordanni@gmail.com', 'gmail.com'),
+(2, 'Emily',     'Pereira', '456 Elm St',   'F', 'emily@gmail.com',     'gmail.com');
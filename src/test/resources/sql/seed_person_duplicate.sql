@@ -1,4 +1,4 @@
 DELETE FROM person;
 
-INSERT INTO person (id, first_name, last_name, address, gender, email) VALUES
-(1, 'Ana', 'Silva', 'Rua A', 'F', 'duplicado@email.com');
\ No newline at end of file
+INSERT INTO person (id, first_name, last_name, address, gender, email, email_domain) VALUES
+(1, 'Ana', 'Silva', 'Rua A', 'F', 'duplicado@email.com', 'email.com');